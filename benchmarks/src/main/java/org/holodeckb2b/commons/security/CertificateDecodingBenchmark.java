@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.security;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the concurrent decoding of certificates by {@link CertificateUtils} using the certificate factory of the
+ * JCA or BouncyCastle provider. The benchmarks run on as many threads as there are processors available, use the
+ * <code>-t</code> option to measure the throughput for a specific number of threads. To quantify the gain of using a
+ * factory per thread, the <i>shared</i> benchmark decodes the certificates with a single factory, synchronising the
+ * access to it as the factories are not guaranteed to be thread safe.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+public class CertificateDecodingBenchmark {
+
+	@Param({ "JCA", "BC" })
+	public String provider;
+
+	private byte[] derEncoded;
+
+	private CertificateFactory sharedFactory;
+
+	@Setup
+	public void setProvider() throws IOException, CertificateException {
+		derEncoded = CertificateUtilsBenchmark.readFixture("certs/partya.der");
+		if ("BC".equals(provider)) {
+			final BouncyCastleProvider bc = new BouncyCastleProvider();
+			CertificateUtils.setCertificateFactoryProvider(bc);
+			sharedFactory = CertificateFactory.getInstance("X.509", bc);
+		} else {
+			CertificateUtils.setCertificateFactoryProvider(null);
+			sharedFactory = CertificateFactory.getInstance("X.509");
+		}
+	}
+
+	@TearDown
+	public void resetProvider() {
+		CertificateUtils.setCertificateFactoryProvider(null);
+	}
+
+	@Benchmark
+	public X509Certificate decode() throws CertificateException {
+		return CertificateUtils.getCertificate(derEncoded);
+	}
+
+	@Benchmark
+	public X509Certificate decodeShared() throws CertificateException {
+		synchronized (sharedFactory) {
+			return (X509Certificate) sharedFactory.generateCertificate(new ByteArrayInputStream(derEncoded));
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.security;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.holodeckb2b.commons.util.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the decoding of certificates and the retrieval of the certificate meta-data by {@link CertificateUtils}.
+ * The certificates are read from the DER and PEM encoded fixtures and a PEM encoded chain consisting of two
+ * certificates. The <i>cached</i> benchmarks decode the certificates with a {@link CertificateCache} enabled.
+ * The meta-data benchmarks use the certificate of <i>Party A</i> that is decoded during set up. As the meta-data is
+ * extracted only once per certificate, see {@link CertificateInfo}, these measure the retrieval of the meta-data.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CertificateUtilsBenchmark {
+
+	private byte[] derEncoded;
+
+	private String pemEncoded;
+
+	private byte[] pemChain;
+
+	private X509Certificate cert;
+
+	private byte[] ski;
+
+	private byte[] sha256Thumbprint;
+
+	@Setup
+	public void loadFixtures() throws IOException, CertificateException, NoSuchAlgorithmException {
+		derEncoded = readFixture("certs/partya.der");
+		pemEncoded = new String(readFixture("certs/partya.cert"), StandardCharsets.US_ASCII);
+		final ByteArrayOutputStream chain = new ByteArrayOutputStream();
+		chain.write(readFixture("certs/partya.cert"));
+		chain.write(readFixture("certs/device.cert"));
+		pemChain = chain.toByteArray();
+
+		cert = CertificateUtils.getCertificate(derEncoded);
+		ski = CertificateUtils.getSKI(cert);
+		sha256Thumbprint = MessageDigest.getInstance("SHA-256").digest(cert.getEncoded());
+	}
+
+	@Benchmark
+	public X509Certificate decodeDER() throws CertificateException {
+		return CertificateUtils.getCertificate(derEncoded);
+	}
+
+	@Benchmark
+	public X509Certificate decodePEM() throws CertificateException {
+		return CertificateUtils.getCertificate(pemEncoded);
+	}
+
+	@Benchmark
+	public X509Certificate decodeDERCached(final Cached c) throws CertificateException {
+		return CertificateUtils.getCertificate(derEncoded);
+	}
+
+	@Benchmark
+	public X509Certificate decodePEMCached(final Cached c) throws CertificateException {
+		return CertificateUtils.getCertificate(pemEncoded);
+	}
+
+	@Benchmark
+	public List<X509Certificate> decodeChain() throws CertificateException {
+		return CertificateUtils.getCertificates(new ByteArrayInputStream(pemChain));
+	}
+
+	@Benchmark
+	public String getSubjectCN() {
+		return CertificateUtils.getSubjectCN(cert);
+	}
+
+	@Benchmark
+	public String getIssuerName() {
+		return CertificateUtils.getIssuerName(cert);
+	}
+
+	@Benchmark
+	public boolean hasSKI() {
+		return CertificateUtils.hasSKI(cert, ski);
+	}
+
+	@Benchmark
+	public boolean hasIssuerSerial() {
+		return CertificateUtils.hasIssuerSerial(cert, cert.getIssuerX500Principal(), cert.getSerialNumber());
+	}
+
+	@Benchmark
+	public boolean hasThumbprint(final Digester d) {
+		return CertificateUtils.hasThumbprint(cert, sha256Thumbprint, d.sha256);
+	}
+
+	@Benchmark
+	public boolean hasThumbprintByAlgorithm() throws NoSuchAlgorithmException {
+		return CertificateUtils.hasThumbprint(cert, sha256Thumbprint, "SHA-256");
+	}
+
+	@Benchmark
+	public byte[] getThumbprintSHA512() throws NoSuchAlgorithmException {
+		return CertificateUtils.getThumbprint(cert, "SHA-512");
+	}
+
+	/**
+	 * Enables the certificate cache for the benchmarks that use this state
+	 */
+	@State(Scope.Benchmark)
+	public static class Cached {
+		@Setup
+		public void enableCache() {
+			CertificateUtils.setCertificateCache(CertificateCache.builder().build());
+		}
+
+		@TearDown
+		public void disableCache() {
+			CertificateUtils.setCertificateCache(null);
+		}
+	}
+
+	/**
+	 * The per thread digester used to calculate the thumbprint
+	 */
+	@State(Scope.Thread)
+	public static class Digester {
+		MessageDigest sha256;
+
+		@Setup
+		public void createDigester() throws NoSuchAlgorithmException {
+			sha256 = MessageDigest.getInstance("SHA-256");
+		}
+	}
+
+	/**
+	 * Reads a fixture from the <code>fixtures</code> directory on the class path.
+	 *
+	 * @param name	path of the fixture relative to the fixtures directory
+	 * @return	the content of the fixture
+	 * @throws IOException	when the fixture cannot be read
+	 */
+	static byte[] readFixture(final String name) throws IOException {
+		try (InputStream is = CertificateUtilsBenchmark.class.getResourceAsStream("/fixtures/" + name)) {
+			if (is == null)
+				throw new IOException("Fixture " + name + " is not available");
+			final ByteArrayOutputStream content = new ByteArrayOutputStream();
+			Utils.copyStream(is, content);
+			return content.toByteArray();
+		}
+	}
+}
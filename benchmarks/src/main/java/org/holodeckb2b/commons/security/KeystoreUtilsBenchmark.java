@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.security;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the loading of keystores by {@link KeystoreUtils}, both from an input stream, which includes the
+ * detection of the keystore type, and from a file. The keystores are PKCS#12 and JKS stores containing one or two key
+ * pairs and a JKS trust store with multiple certificates. As the cost of loading a keystore is dominated by the
+ * derivation of the keys from the password, the benchmarks are measured in milliseconds.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeystoreUtilsBenchmark {
+
+	private static final Map<String, String> PASSWORDS = new HashMap<>();
+	static {
+		PASSWORDS.put("keyandcert.p12", "keyandcert");
+		PASSWORDS.put("keyandcert.jks", "keyandcert");
+		PASSWORDS.put("twokeys.p12", "twokeys");
+		PASSWORDS.put("trustedcerts.jks", "trusted");
+	}
+
+	@Param({ "keyandcert.p12", "keyandcert.jks", "twokeys.p12", "trustedcerts.jks" })
+	public String keystore;
+
+	private byte[] content;
+
+	private String password;
+
+	private Path file;
+
+	@Setup
+	public void loadFixture() throws IOException {
+		content = CertificateUtilsBenchmark.readFixture("keystores/" + keystore);
+		password = PASSWORDS.get(keystore);
+		file = Files.createTempFile("keystorebenchmark", keystore);
+		Files.write(file, content);
+	}
+
+	@TearDown
+	public void removeFile() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public KeyStore loadFromStream() throws KeyStoreException {
+		return KeystoreUtils.load(new ByteArrayInputStream(content), password);
+	}
+
+	@Benchmark
+	public KeyStore loadFromFile() throws KeyStoreException {
+		return KeystoreUtils.load(file, password);
+	}
+}
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the copying of content by {@link Utils#copyStream(InputStream, OutputStream)} and the {@link
+ * StreamCopier}, both between in memory streams and between files. The <i>file</i> benchmarks copy a temporary file
+ * of the given size to another temporary file, using plain file streams and file channels, which allows the content
+ * to be transferred directly between the files. To quantify the gain of the current implementation, the <i>legacy</i>
+ * benchmark runs the implementation of version 1.5.0 that copied the content byte by byte. As this takes very long
+ * for files, it is only run for the in memory copy.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CopyStreamBenchmark {
+
+	@Param({ "1024", "1048576", "16777216" })
+	public int size;
+
+	private byte[] content;
+
+	private Path srcFile;
+
+	private Path dstFile;
+
+	private StreamCopier limitedCopier;
+
+	@Setup
+	public void createContent() throws IOException {
+		content = new byte[size];
+		new Random(size).nextBytes(content);
+		srcFile = Files.createTempFile("copybenchmark", ".src");
+		dstFile = Files.createTempFile("copybenchmark", ".dst");
+		Files.write(srcFile, content);
+		limitedCopier = StreamCopier.builder().maxBytes(size).build();
+	}
+
+	@TearDown
+	public void removeFiles() throws IOException {
+		Files.deleteIfExists(srcFile);
+		Files.deleteIfExists(dstFile);
+	}
+
+	@Benchmark
+	public long copyInMemory() throws IOException {
+		return Utils.copyStream(new ByteArrayInputStream(content), new NullOutputStream());
+	}
+
+	@Benchmark
+	public long copyInMemoryLegacy() throws IOException {
+		return Legacy.copyStream(new ByteArrayInputStream(content), new NullOutputStream());
+	}
+
+	@Benchmark
+	public long copyInMemoryWithLimit() throws IOException {
+		return limitedCopier.copy(new ByteArrayInputStream(content), new NullOutputStream());
+	}
+
+	@Benchmark
+	public long copyFile() throws IOException {
+		try (FileInputStream src = new FileInputStream(srcFile.toFile());
+			 FileOutputStream dst = new FileOutputStream(dstFile.toFile())) {
+			return Utils.copyStream(src, dst);
+		}
+	}
+
+	@Benchmark
+	public long copyFileChannel() throws IOException {
+		try (FileChannel src = FileChannel.open(srcFile, StandardOpenOption.READ);
+			 FileChannel dst = FileChannel.open(dstFile, StandardOpenOption.WRITE,
+												StandardOpenOption.TRUNCATE_EXISTING)) {
+			return Utils.copyStream(src, dst);
+		}
+	}
+
+	/**
+	 * Discards all content written to it so only the cost of the copy operation itself is measured.
+	 */
+	static class NullOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+
+	/**
+	 * The implementation of {@link Utils#copyStream(InputStream, OutputStream)} as in version 1.5.0.
+	 */
+	static class Legacy {
+		static long copyStream(final InputStream src, final OutputStream dst) throws IOException {
+			long total = 0;
+			int b;
+			while ((b = src.read()) >= 0) {
+				dst.write(b);
+				total++;
+			}
+			dst.flush();
+			return total;
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the generation of message ids by {@link MessageIdUtils} using the different {@link MessageIdGenerators}.
+ * As the generators differ mainly in how they scale when used concurrently, the benchmark should be run with different
+ * numbers of threads, e.g. <code>java -jar target/benchmarks.jar MessageIdBenchmark -t 1</code>, <code>-t 8</code> and
+ * <code>-t 64</code>.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageIdBenchmark {
+
+	@Param({ "RANDOM_UUID", "THREAD_LOCAL_UUID", "SEQUENTIAL", "TIME_ORDERED" })
+	public MessageIdGenerators generator;
+
+	private IMessageIdGenerator previous;
+
+	@Setup
+	public void setup() {
+		previous = MessageIdUtils.getGenerator();
+		MessageIdUtils.setGenerator(generator);
+	}
+
+	@TearDown
+	public void tearDown() {
+		MessageIdUtils.setGenerator(previous);
+	}
+
+	@Benchmark
+	public String createMessageId() {
+		return MessageIdUtils.createMessageId();
+	}
+
+	@Benchmark
+	public String createLeftPart() {
+		return generator.createLeftPart();
+	}
+}
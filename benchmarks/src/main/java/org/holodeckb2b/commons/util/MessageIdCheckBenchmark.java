@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the checking and sanitizing of message ids by {@link MessageIdUtils}. The <i>legacy</i> benchmarks run the
+ * implementation of version 1.5.0 that used regular expressions. The benchmarks are run with a valid message id and
+ * with one that contains invalid characters. The batch benchmarks compare the creation of multiple content ids for a
+ * message at once with creating them one by one.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageIdCheckBenchmark {
+
+	@Param({ "7b3a1f4e-0c2d-4e55-9a41-3f2b8c9d0e17@h-3fe4c1a2b3d4e5f6.3fd9a8b7c6d5e4f3",
+			 "message id (with) invalid chars@sender.holodeck-b2b.org" })
+	public String messageId;
+
+	private static final int BATCH_SIZE = 100;
+
+	private final String[] contentIds = new String[BATCH_SIZE];
+
+	@Benchmark
+	public boolean isCorrectFormat() {
+		return MessageIdUtils.isCorrectFormat(messageId);
+	}
+
+	@Benchmark
+	public boolean isCorrectFormatLegacy() {
+		return Legacy.isCorrectFormat(messageId);
+	}
+
+	@Benchmark
+	public boolean isAllowed() {
+		return MessageIdUtils.isAllowed(messageId);
+	}
+
+	@Benchmark
+	public boolean isAllowedLegacy() {
+		return Legacy.isAllowed(messageId);
+	}
+
+	@Benchmark
+	public String sanitizeId() {
+		return MessageIdUtils.sanitizeId(messageId);
+	}
+
+	@Benchmark
+	public String sanitizeIdLegacy() {
+		return Legacy.sanitizeId(messageId);
+	}
+
+	@Benchmark
+	public String createContentId() {
+		return MessageIdUtils.createContentId(messageId);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public String[] createContentIdsBatch() {
+		return MessageIdUtils.createContentIds(messageId, contentIds);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public String[] createContentIdsLoop() {
+		for (int i = 0; i < BATCH_SIZE; i++)
+			contentIds[i] = MessageIdUtils.createContentId(messageId);
+		return contentIds;
+	}
+
+	/**
+	 * The implementation of the check methods of {@link MessageIdUtils} as in version 1.5.0.
+	 */
+	static class Legacy {
+		private static final String	RFC2822_MESSAGE_ID;
+		private static final String	VALID_CHARS;
+		static {
+			String achars = "\\p{Alpha}\\d\\Q!#$%&'*+-/=?^_`{|}~\\E";
+			String atext = "[" + achars + "]";
+			String dot_atom_text = atext + "+" + "(\\." + atext + "+)*";
+			RFC2822_MESSAGE_ID = dot_atom_text + "@" + dot_atom_text;
+			VALID_CHARS = achars + "\\.@";
+		}
+
+		static boolean isAllowed(final String messageId) {
+			return !Utils.isNullOrEmpty(messageId) && messageId.matches("[" + VALID_CHARS + "]*");
+		}
+
+		static boolean isCorrectFormat(final String messageId) {
+			return !Utils.isNullOrEmpty(messageId) && messageId.matches(RFC2822_MESSAGE_ID);
+		}
+
+		static String sanitizeId(final String msgId) {
+			return msgId == null ? null : msgId.replaceAll("[^" + VALID_CHARS + "]", "_");
+		}
+	}
+}
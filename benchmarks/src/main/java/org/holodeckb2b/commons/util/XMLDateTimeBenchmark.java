@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.util;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the formatting and parsing of <code>xs:dateTime</code> values by {@link Utils} and {@link
+ * XMLDateTimeUtils}. To quantify the gain of the current implementation, the <i>legacy</i> benchmarks run the
+ * implementation of version 1.5.0 that rewrote the value before parsing and created new formatters on each invocation.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XMLDateTimeBenchmark {
+
+	@Param({ "2020-05-04T17:13:51Z", "2020-05-04T19:13:51.123+02:00", "2020-05-04T19:13:51.123456789" })
+	public String xmlDateTime;
+
+	private final Date date = new Date(1588612431123L);
+
+	private final LocalDateTime localDateTime = LocalDateTime.of(2020, 5, 4, 17, 13, 51, 123_000_000);
+
+	@Benchmark
+	public String formatDate() {
+		return Utils.toXMLDateTime(date);
+	}
+
+	@Benchmark
+	public String formatDateLegacy() {
+		return Legacy.toXMLDateTime(date);
+	}
+
+	@Benchmark
+	public StringBuilder formatToBuilder(final Output out) {
+		out.sb.setLength(0);
+		return XMLDateTimeUtils.formatTo(date.getTime(), out.sb);
+	}
+
+	@Benchmark
+	public String formatLocalDateTime() {
+		return Utils.toXMLDateTime(localDateTime);
+	}
+
+	@Benchmark
+	public String formatLocalDateTimeLegacy() {
+		return Legacy.toXMLDateTime(localDateTime);
+	}
+
+	@Benchmark
+	public ZonedDateTime parseZonedDateTime() throws ParseException {
+		return Utils.parseDateTimeFromXML(xmlDateTime);
+	}
+
+	@Benchmark
+	public ZonedDateTime parseZonedDateTimeLegacy() {
+		return Legacy.parseDateTimeFromXML(xmlDateTime);
+	}
+
+	@Benchmark
+	public long parseEpochMillis() throws ParseException {
+		return XMLDateTimeUtils.parseEpochMillis(xmlDateTime);
+	}
+
+	@Benchmark
+	public Date parseDate() throws ParseException {
+		return Utils.fromXMLDateTime(xmlDateTime);
+	}
+
+	@Benchmark
+	public Date parseDateLegacy() throws ParseException {
+		return Legacy.fromXMLDateTime(xmlDateTime);
+	}
+
+	/**
+	 * The per thread buffer to which the time stamp is written
+	 */
+	@State(Scope.Thread)
+	public static class Output {
+		final StringBuilder sb = new StringBuilder(32);
+	}
+
+	/**
+	 * The implementation of the date time methods of {@link Utils} as in version 1.5.0.
+	 */
+	static class Legacy {
+		private static final String XML_DATETIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSXX";
+
+		static String toXMLDateTime(final Date date) {
+			SimpleDateFormat xmlDateFormatter = new SimpleDateFormat(XML_DATETIME_FORMAT);
+			xmlDateFormatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+			return xmlDateFormatter.format(date);
+		}
+
+		static String toXMLDateTime(final LocalDateTime timestamp) {
+			DateTimeFormatter xmlDateFormatter = DateTimeFormatter.ofPattern(XML_DATETIME_FORMAT);
+			return timestamp.atZone(ZoneOffset.UTC).format(xmlDateFormatter);
+		}
+
+		static ZonedDateTime parseDateTimeFromXML(final String xmlDateTimeString) {
+			final String[] formatAndC14NValue = getFormatAndC14N(xmlDateTimeString);
+			if (formatAndC14NValue[0].endsWith("Z"))
+				return ZonedDateTime.parse(formatAndC14NValue[1], DateTimeFormatter.ofPattern(formatAndC14NValue[0]));
+			else
+				return ZonedDateTime.of(LocalDateTime.parse(formatAndC14NValue[1],
+															DateTimeFormatter.ofPattern(formatAndC14NValue[0])),
+										ZoneId.systemDefault());
+		}
+
+		static Date fromXMLDateTime(final String xmlDateTimeString) throws ParseException {
+			final String[] formatAndC14NValue = getFormatAndC14N(xmlDateTimeString);
+			return new SimpleDateFormat(formatAndC14NValue[0]).parse(formatAndC14NValue[1]);
+		}
+
+		private static String[] getFormatAndC14N(final String xmlDateTimeString) {
+			String s = xmlDateTimeString;
+			String f = null;
+			if (s.indexOf("Z") > 0)
+				s = s.replace("Z", "+00:00");
+			int i = s.indexOf(".");
+			if (i > 0) {
+				int z = Math.max(s.indexOf("+"), s.indexOf("-", s.indexOf("T")));
+				z = (z == -1 ? s.length() : z);
+				final int S = Math.min(z-i-1, 3);
+				s = s.substring(0, i + S + 1) + s.substring(z);
+				i = s.indexOf(":", i + S + 1);
+				f = "yyyy-MM-dd'T'HH:mm:ss." + "SSS".substring(0, S);
+				if (i > 0) {
+					s = s.substring(0, i) + s.substring(i + 1);
+					f = f + "Z";
+				}
+			} else {
+				if (s.length() > 22 ) {
+					s = s.substring(0, 22) + s.substring(23);
+					f = "yyyy-MM-dd'T'HH:mm:ssZ";
+				} else {
+					f = "yyyy-MM-dd'T'HH:mm:ss";
+				}
+			}
+			return new String[] { f , s };
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.xml;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+
+import org.holodeckb2b.commons.xml.XMLElementFinder.Engine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Element;
+
+/**
+ * Benchmarks the extraction of elements from a SOAP envelope by the {@link XMLElementFinder} using the different
+ * parsing engines. The envelope contains an ebMS header and a body with the given number of elements. The
+ * <i>header</i> benchmark searches for the ebMS header at the start of the envelope, the <i>body</i> benchmark for the
+ * last element in the body. The <i>absent</i> benchmarks search for an element that is not in the envelope and
+ * therefore measure the cost of checking every element, both name space aware and by local name only. The <i>by
+ * path</i> benchmarks search by {@link XMLElementPath}, which stops parsing at the end of the header when the element
+ * is not found in it and allows the StAX engine to skip the sub trees that cannot contain the element.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XMLElementFinderBenchmark {
+
+	static final String SOAP_NS = "http://www.w3.org/2003/05/soap-envelope";
+	static final String EBMS_NS = "http://docs.oasis-open.org/ebxml-msg/ebms/v3.0/ns/core/200704/";
+	static final String PAYLOAD_NS = "urn:holodeck-b2b:benchmark";
+
+	static final QName MESSAGING = new QName(EBMS_NS, "Messaging");
+	static final QName LAST_ITEM = new QName(PAYLOAD_NS, "Last");
+	static final QName ABSENT = new QName(PAYLOAD_NS, "Absent");
+	static final QName ABSENT_ANY_NS = new QName("Absent");
+
+	static final XMLElementPath ABSENT_IN_HEADER = XMLElementPath.compile("/{" + SOAP_NS + "}Envelope/{" + SOAP_NS
+																		  + "}Header/*/Absent");
+	static final XMLElementPath LAST_IN_BODY = XMLElementPath.compile("/Envelope/Body/Document/{" + PAYLOAD_NS
+																	  + "}Last");
+
+	@Param({ "SAX", "STAX" })
+	public Engine engine;
+
+	@Param({ "10000", "100000", "1000000" })
+	public int bodyElements;
+
+	private byte[] envelope;
+
+	@Setup
+	public void createEnvelope() {
+		envelope = createSOAPEnvelope(bodyElements);
+	}
+
+	@Benchmark
+	public Element findHeader() {
+		return XMLElementFinder.parse(new ByteArrayInputStream(envelope), MESSAGING, -1, engine);
+	}
+
+	@Benchmark
+	public Element findInBody() {
+		return XMLElementFinder.parse(new ByteArrayInputStream(envelope), LAST_ITEM, -1, engine);
+	}
+
+	@Benchmark
+	public Element findAbsent() {
+		return XMLElementFinder.parse(new ByteArrayInputStream(envelope), ABSENT, -1, engine);
+	}
+
+	@Benchmark
+	public Element findAbsentAnyNamespace() {
+		return XMLElementFinder.parse(new ByteArrayInputStream(envelope), ABSENT_ANY_NS, -1, engine);
+	}
+
+	@Benchmark
+	public Element findAbsentByPath() {
+		return XMLElementFinder.parse(new ByteArrayInputStream(envelope), ABSENT_IN_HEADER, null, engine);
+	}
+
+	@Benchmark
+	public Element findInBodyByPath() {
+		return XMLElementFinder.parse(new ByteArrayInputStream(envelope), LAST_IN_BODY, null, engine);
+	}
+
+	/**
+	 * Creates a SOAP envelope with an ebMS header and a body containing the given number of elements, with the last
+	 * one named <i>Last</i>.
+	 *
+	 * @param bodyElements	the number of elements in the body
+	 * @return	the UTF-8 encoded envelope
+	 */
+	static byte[] createSOAPEnvelope(final int bodyElements) {
+		final StringBuilder xml = new StringBuilder(100 * bodyElements + 2000);
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+		   .append("<env:Envelope xmlns:env=\"").append(SOAP_NS).append("\" xmlns:eb=\"").append(EBMS_NS).append("\">")
+		   .append("<env:Header><eb:Messaging env:mustUnderstand=\"true\"><eb:UserMessage><eb:MessageInfo>")
+		   .append("<eb:Timestamp>2026-10-16T10:00:00.000Z</eb:Timestamp>")
+		   .append("<eb:MessageId>7b3a1f4e-0c2d-4e55-9a41-3f2b8c9d0e17@holodeck-b2b.org</eb:MessageId>")
+		   .append("</eb:MessageInfo><eb:PartyInfo><eb:From><eb:PartyId>sender</eb:PartyId><eb:Role>Sender</eb:Role>")
+		   .append("</eb:From><eb:To><eb:PartyId>receiver</eb:PartyId><eb:Role>Receiver</eb:Role></eb:To>")
+		   .append("</eb:PartyInfo><eb:CollaborationInfo><eb:Service>benchmark</eb:Service><eb:Action>test")
+		   .append("</eb:Action><eb:ConversationId>1</eb:ConversationId></eb:CollaborationInfo>")
+		   .append("</eb:UserMessage></eb:Messaging></env:Header>")
+		   .append("<env:Body><p:Document xmlns:p=\"").append(PAYLOAD_NS).append("\">");
+		for (int i = 1; i < bodyElements; i++)
+			xml.append("<p:Item seq=\"").append(i).append("\"><p:Value>Some payload text ").append(i)
+			   .append("</p:Value></p:Item>");
+		xml.append("<p:Last>end</p:Last></p:Document></env:Body></env:Envelope>");
+		return xml.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
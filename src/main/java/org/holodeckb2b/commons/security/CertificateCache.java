@@ -0,0 +1,317 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.security;
+
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Is a bounded cache of decoded X509 certificates that can be used by {@link CertificateUtils} to prevent decoding the
+ * same certificate over and over again, see {@link CertificateUtils#setCertificateCache(CertificateCache)}. The
+ * certificates are cached by their encoded form, i.e. the base64 encoded string or the DER encoded bytes. The cache
+ * holds at most the configured number of certificates, when this number is exceeded the certificates that were added
+ * first are evicted. Optionally a time to live can be set after which a cached certificate will be decoded again when
+ * requested. Expired certificates are evicted when they are requested or when a new certificate is added to the
+ * cache.
+ * <p>The cache can be used concurrently by multiple threads and keeps track of the number of hits, misses and
+ * evictions. New instances are created using the {@link Builder}, for example:
+ * <pre>
+ * CertificateUtils.setCertificateCache(CertificateCache.builder().maxSize(500)
+ * 																  .timeToLive(Duration.ofHours(1))
+ * 																  .build());
+ * </pre>
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 1.6.0
+ */
+public class CertificateCache {
+	/**
+	 * The default maximum number of certificates in the cache
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
+	/**
+	 * Is the call back used to decode a certificate that is not available in the cache.
+	 */
+	@FunctionalInterface
+	interface IDecoder {
+		X509Certificate decode() throws CertificateException;
+	}
+
+	private final int	maxSize;
+	private final long	ttlNanos;
+
+	private final ConcurrentHashMap<Object, Entry>	entries;
+	// The entries in the order they were added, used to evict the oldest entries when the cache is full
+	private final ConcurrentLinkedQueue<Entry>		insertionOrder = new ConcurrentLinkedQueue<>();
+
+	private final LongAdder	hits = new LongAdder();
+	private final LongAdder	misses = new LongAdder();
+	private final LongAdder	evictions = new LongAdder();
+
+	private CertificateCache(final Builder b) {
+		this.maxSize = b.maxSize;
+		this.ttlNanos = b.timeToLive != null ? b.timeToLive.toNanos() : -1;
+		this.entries = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+	}
+
+	/**
+	 * Builder for creating a new {@link CertificateCache} instance.
+	 */
+	public static class Builder {
+		private int			maxSize = DEFAULT_MAX_SIZE;
+		private Duration	timeToLive;
+
+		/**
+		 * Sets the maximum number of certificates that can be held in the cache.
+		 *
+		 * @param maxSize	maximum number of cached certificates
+		 * @return	this builder
+		 */
+		public Builder maxSize(final int maxSize) {
+			if (maxSize <= 0)
+				throw new IllegalArgumentException("Maximum size must be positive");
+			this.maxSize = maxSize;
+			return this;
+		}
+
+		/**
+		 * Sets the time a certificate is kept in the cache after it has been decoded.
+		 *
+		 * @param timeToLive	time to keep certificates in the cache, <code>null</code> to keep them until the cache
+		 * 						is full
+		 * @return	this builder
+		 */
+		public Builder timeToLive(final Duration timeToLive) {
+			if (timeToLive != null && (timeToLive.isNegative() || timeToLive.isZero()))
+				throw new IllegalArgumentException("Time to live must be positive");
+			this.timeToLive = timeToLive;
+			return this;
+		}
+
+		/**
+		 * @return a new {@link CertificateCache} using the configuration of this builder
+		 */
+		public CertificateCache build() {
+			return new CertificateCache(this);
+		}
+	}
+
+	/**
+	 * @return a new builder for configuring a {@link CertificateCache}
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Gets the certificate with the given base64 encoded form from the cache, decoding and adding it when it is not
+	 * available.
+	 *
+	 * @param b64Encoded	the base64 encoded certificate
+	 * @param decoder		the call back to decode the certificate when it is not in the cache
+	 * @return	the decoded certificate
+	 * @throws CertificateException	when the certificate is not in the cache and cannot be decoded
+	 */
+	X509Certificate get(final String b64Encoded, final IDecoder decoder) throws CertificateException {
+		return get(b64Encoded, b64Encoded, decoder);
+	}
+
+	/**
+	 * Gets the certificate with the given DER encoded form from the cache, decoding and adding it when it is not
+	 * available.
+	 *
+	 * @param encoded	the DER encoded certificate
+	 * @param decoder	the call back to decode the certificate when it is not in the cache
+	 * @return	the decoded certificate
+	 * @throws CertificateException	when the certificate is not in the cache and cannot be decoded
+	 */
+	X509Certificate get(final byte[] encoded, final IDecoder decoder) throws CertificateException {
+		return get(new EncodedKey(encoded), null, decoder);
+	}
+
+	/**
+	 * Gets the certificate with the given key from the cache or decodes and adds it.
+	 *
+	 * @param key		the key to look up the certificate
+	 * @param storeKey	the key to store a newly decoded certificate, <code>null</code> if a copy of the look up key
+	 * 					should be used
+	 * @param decoder	the call back to decode the certificate
+	 * @return	the decoded certificate
+	 * @throws CertificateException	when the certificate cannot be decoded
+	 */
+	private X509Certificate get(final Object key, final Object storeKey, final IDecoder decoder)
+																						throws CertificateException {
+		final Entry cached = entries.get(key);
+		if (cached != null) {
+			if (!cached.isExpired(System.nanoTime())) {
+				hits.increment();
+				return cached.cert;
+			}
+			// The entry stays in the insertion order queue, it is dropped from it when it reaches the head
+			evict(cached);
+		}
+		misses.increment();
+		final X509Certificate cert = decoder.decode();
+		if (cert != null)
+			add(storeKey != null ? storeKey : ((EncodedKey) key).copy(), cert);
+		return cert;
+	}
+
+	/**
+	 * Adds a newly decoded certificate to the cache and evicts the oldest entries whose time to live has passed or
+	 * that have already been removed. As all entries have the same time to live, these are at the head of the
+	 * insertion order queue. When the cache is still full after that, the oldest entries are evicted as well.
+	 *
+	 * @param key	the key of the certificate
+	 * @param cert	the certificate
+	 */
+	private void add(final Object key, final X509Certificate cert) {
+		final Entry e = new Entry(key, cert, ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0);
+		if (entries.putIfAbsent(key, e) != null)
+			// Another thread decoded the same certificate concurrently
+			return;
+		insertionOrder.add(e);
+		final long now = System.nanoTime();
+		Entry head;
+		while ((head = insertionOrder.peek()) != null && (head.isExpired(now) || entries.get(head.key) != head))
+			if (insertionOrder.remove(head))
+				evict(head);
+		while (entries.size() > maxSize) {
+			final Entry oldest = insertionOrder.poll();
+			if (oldest == null)
+				break;
+			evict(oldest);
+		}
+	}
+
+	/**
+	 * Removes the given entry from the cache, if it has not been removed already.
+	 *
+	 * @param e	the entry to remove
+	 */
+	private void evict(final Entry e) {
+		if (entries.remove(e.key, e))
+			evictions.increment();
+	}
+
+	/**
+	 * Removes all certificates from the cache. The statistics are not reset.
+	 */
+	public void clear() {
+		entries.clear();
+		insertionOrder.clear();
+	}
+
+	/**
+	 * @return the number of certificates currently in the cache, including the ones whose time to live has passed but
+	 * 		   that have not been evicted yet
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the maximum number of certificates in the cache
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the number of requests for which the certificate was available in the cache
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the number of requests for which the certificate had to be decoded
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return the number of certificates that were removed from the cache because it was full or their time to live
+	 * 		   had passed
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * A cached certificate
+	 */
+	private static final class Entry {
+		final Object			key;
+		final X509Certificate	cert;
+		// Moment, as given by System.nanoTime(), the entry expires, 0 if it does not expire
+		final long				expiresAt;
+
+		Entry(final Object key, final X509Certificate cert, final long expiresAt) {
+			this.key = key;
+			this.cert = cert;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isExpired(final long now) {
+			return expiresAt != 0 && now - expiresAt >= 0;
+		}
+	}
+
+	/**
+	 * The key of a DER encoded certificate. Its hash code is calculated once over the bytes of the certificate, the
+	 * bytes are only compared completely when the hash codes are equal.
+	 */
+	private static final class EncodedKey {
+		private final byte[]	encoded;
+		private final int		hash;
+
+		EncodedKey(final byte[] encoded) {
+			this(encoded, Arrays.hashCode(encoded));
+		}
+
+		private EncodedKey(final byte[] encoded, final int hash) {
+			this.encoded = encoded;
+			this.hash = hash;
+		}
+
+		/**
+		 * @return a key with a copy of the encoded certificate so it is not affected by changes made by the caller
+		 */
+		EncodedKey copy() {
+			return new EncodedKey(encoded.clone(), hash);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			return o instanceof EncodedKey && ((EncodedKey) o).hash == hash
+					&& Arrays.equals(((EncodedKey) o).encoded, encoded);
+		}
+	}
+}
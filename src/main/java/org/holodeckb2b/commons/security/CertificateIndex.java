@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.security;
+
+import java.math.BigInteger;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.bouncycastle.asn1.x500.X500Name;
+
+/**
+ * Is an index of X509 certificates for finding a certificate by the identifiers used to reference it, for example in
+ * a WS-Security token reference: the Subject Key Identifier, the issuer and serial number or the SHA-1 or SHA-256
+ * thumbprint. The identifiers are calculated once when a certificate is added to the index, see {@link
+ * CertificateInfo}, so a certificate can be found without checking each certificate in the index. This makes the
+ * index suitable for large trust stores.
+ * <p>The index can be used concurrently by multiple threads. Certificates can be added and removed at any time, which
+ * does not block the look ups. A look up that runs concurrently with the addition or removal of a certificate may or
+ * may not find that certificate.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 1.6.0
+ */
+public class CertificateIndex {
+
+	private final ConcurrentHashMap<BytesKey, X509Certificate>		bySHA256 = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<BytesKey, X509Certificate[]>	bySHA1 = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<BytesKey, X509Certificate[]>	bySKI = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<IssuerSerial, X509Certificate[]> byIssuerSerial = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates an empty index.
+	 */
+	public CertificateIndex() {
+	}
+
+	/**
+	 * Creates an index containing the given certificates.
+	 *
+	 * @param certs	the certificates to add to the index
+	 */
+	public CertificateIndex(final Collection<X509Certificate> certs) {
+		addAll(certs);
+	}
+
+	/**
+	 * Adds the given certificate to the index.
+	 *
+	 * @param cert	the certificate to add
+	 * @return	<code>true</code> if the certificate was added, <code>false</code> if it was already in the index
+	 * @throws IllegalArgumentException	when no certificate is given or the given certificate cannot be encoded
+	 */
+	public synchronized boolean add(final X509Certificate cert) {
+		final CertificateInfo info = CertificateInfo.of(cert);
+		if (bySHA256.putIfAbsent(new BytesKey(info.getSHA256Thumbprint()), cert) != null)
+			return false;
+		put(bySHA1, new BytesKey(info.getSHA1Thumbprint()), cert);
+		put(byIssuerSerial, new IssuerSerial(info.getNormalisedIssuer(), info.getSerialNumber()), cert);
+		final byte[] ski = info.getSKI();
+		if (ski != null)
+			put(bySKI, new BytesKey(ski), cert);
+		return true;
+	}
+
+	/**
+	 * Adds all given certificates to the index.
+	 *
+	 * @param certs	the certificates to add
+	 */
+	public synchronized void addAll(final Collection<X509Certificate> certs) {
+		for (X509Certificate c : certs)
+			add(c);
+	}
+
+	/**
+	 * Adds all X509 certificates contained in the given keystore to the index. These are both the trusted
+	 * certificates and the certificates of the key pairs in the keystore.
+	 *
+	 * @param keystore	the keystore
+	 * @throws KeyStoreException	when the certificates cannot be read from the keystore
+	 */
+	public synchronized void addAll(final KeyStore keystore) throws KeyStoreException {
+		final Enumeration<String> aliases = keystore.aliases();
+		while (aliases.hasMoreElements()) {
+			final Certificate c = keystore.getCertificate(aliases.nextElement());
+			if (c instanceof X509Certificate)
+				add((X509Certificate) c);
+		}
+	}
+
+	/**
+	 * Removes the given certificate from the index.
+	 *
+	 * @param cert	the certificate to remove
+	 * @return	<code>true</code> if the certificate was removed, <code>false</code> if it was not in the index
+	 */
+	public synchronized boolean remove(final X509Certificate cert) {
+		if (cert == null)
+			return false;
+		final CertificateInfo info = CertificateInfo.of(cert);
+		final X509Certificate indexed = bySHA256.remove(new BytesKey(info.getSHA256Thumbprint()));
+		if (indexed == null)
+			return false;
+		remove(bySHA1, new BytesKey(info.getSHA1Thumbprint()), indexed);
+		remove(byIssuerSerial, new IssuerSerial(info.getNormalisedIssuer(), info.getSerialNumber()), indexed);
+		final byte[] ski = info.getSKI();
+		if (ski != null)
+			remove(bySKI, new BytesKey(ski), indexed);
+		return true;
+	}
+
+	/**
+	 * Removes all certificates from the index.
+	 */
+	public synchronized void clear() {
+		bySHA256.clear();
+		bySHA1.clear();
+		bySKI.clear();
+		byIssuerSerial.clear();
+	}
+
+	/**
+	 * Checks whether the given certificate is in the index.
+	 *
+	 * @param cert	the certificate to check
+	 * @return	<code>true</code> if the certificate is in the index, <code>false</code> otherwise
+	 */
+	public boolean contains(final X509Certificate cert) {
+		return cert != null && bySHA256.containsKey(new BytesKey(CertificateInfo.of(cert).getSHA256Thumbprint()));
+	}
+
+	/**
+	 * @return the number of certificates in the index
+	 */
+	public int size() {
+		return bySHA256.size();
+	}
+
+	/**
+	 * @return a copy of the list of certificates in the index
+	 */
+	public List<X509Certificate> getAll() {
+		return new ArrayList<>(bySHA256.values());
+	}
+
+	/**
+	 * Finds the certificate with the given Subject Key Identifier. When multiple certificates have the same SKI, for
+	 * example because the key pair was re-used when the certificate was renewed, the certificate that was added last
+	 * is returned. Use {@link #findAllBySKI(byte[])} to get all of them.
+	 *
+	 * @param ski	the SKI of the certificate
+	 * @return	the certificate with the given SKI, <code>null</code> if there is no such certificate in the index
+	 */
+	public X509Certificate findBySKI(final byte[] ski) {
+		return ski != null ? last(bySKI.get(new BytesKey(ski))) : null;
+	}
+
+	/**
+	 * Finds all certificates with the given Subject Key Identifier.
+	 *
+	 * @param ski	the SKI of the certificates
+	 * @return	the certificates with the given SKI in the order they were added, an empty list if there is no such
+	 * 			certificate in the index
+	 */
+	public List<X509Certificate> findAllBySKI(final byte[] ski) {
+		final X509Certificate[] certs = ski != null ? bySKI.get(new BytesKey(ski)) : null;
+		return certs != null ? Collections.unmodifiableList(Arrays.asList(certs)) : Collections.emptyList();
+	}
+
+	/**
+	 * Finds the certificate issued by the given issuer with the given serial number. The issuer is compared in the
+	 * same way as done by {@link CertificateUtils#hasIssuerSerial(X509Certificate, X500Principal, BigInteger)}.
+	 *
+	 * @param issuer	the issuer of the certificate
+	 * @param serial	the serial number of the certificate
+	 * @return	the certificate with the given issuer and serial number, <code>null</code> if there is no such
+	 * 			certificate in the index
+	 */
+	public X509Certificate findByIssuerSerial(final X500Principal issuer, final BigInteger serial) {
+		if (issuer == null || serial == null)
+			return null;
+		return last(byIssuerSerial.get(new IssuerSerial(CertificateInfo.normalise(issuer), serial)));
+	}
+
+	/**
+	 * Finds the certificate with the given thumbprint. The digest algorithm used to calculate the thumbprint is
+	 * derived from its length, only SHA-1 and SHA-256 thumbprints are supported.
+	 *
+	 * @param thumbprint	the SHA-1 or SHA-256 hash of the encoded certificate
+	 * @return	the certificate with the given thumbprint, <code>null</code> if there is no such certificate in the
+	 * 			index
+	 */
+	public X509Certificate findByThumbprint(final byte[] thumbprint) {
+		if (thumbprint == null)
+			return null;
+		switch (thumbprint.length) {
+		case 20 :
+			return last(bySHA1.get(new BytesKey(thumbprint)));
+		case 32 :
+			return bySHA256.get(new BytesKey(thumbprint));
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Adds the certificate to the certificates registered under the given key.
+	 */
+	private static <K> void put(final ConcurrentHashMap<K, X509Certificate[]> map, final K key,
+								final X509Certificate cert) {
+		map.merge(key, new X509Certificate[] { cert }, (current, added) -> {
+			final X509Certificate[] certs = Arrays.copyOf(current, current.length + 1);
+			certs[current.length] = cert;
+			return certs;
+		});
+	}
+
+	/**
+	 * Removes the certificate from the certificates registered under the given key.
+	 */
+	private static <K> void remove(final ConcurrentHashMap<K, X509Certificate[]> map, final K key,
+								   final X509Certificate cert) {
+		map.computeIfPresent(key, (k, current) -> {
+			final List<X509Certificate> certs = new ArrayList<>(Arrays.asList(current));
+			certs.remove(cert);
+			return certs.isEmpty() ? null : certs.toArray(new X509Certificate[certs.size()]);
+		});
+	}
+
+	private static X509Certificate last(final X509Certificate[] certs) {
+		return certs != null ? certs[certs.length - 1] : null;
+	}
+
+	/**
+	 * The key of a byte array identifier, i.e. the SKI or a thumbprint
+	 */
+	private static final class BytesKey {
+		private final byte[]	bytes;
+		private final int		hash;
+
+		BytesKey(final byte[] bytes) {
+			this.bytes = bytes;
+			this.hash = Arrays.hashCode(bytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			return o instanceof BytesKey && ((BytesKey) o).hash == hash && Arrays.equals(((BytesKey) o).bytes, bytes);
+		}
+	}
+
+	/**
+	 * The key of the combination of the normalised issuer name and serial number
+	 */
+	private static final class IssuerSerial {
+		private final X500Name		issuer;
+		private final BigInteger	serial;
+
+		IssuerSerial(final X500Name issuer, final BigInteger serial) {
+			this.issuer = issuer;
+			this.serial = serial;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * issuer.hashCode() + serial.hashCode();
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			return o instanceof IssuerSerial && ((IssuerSerial) o).serial.equals(serial)
+					&& ((IssuerSerial) o).issuer.equals(issuer);
+		}
+	}
+}
@@ -0,0 +1,424 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.security;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.asn1.x500.style.IETFUtils;
+import org.bouncycastle.asn1.x509.Extension;
+
+/**
+ * Is a read only view on the meta-data of a X509 certificate that is commonly used to identify a certificate or to
+ * decide whether it can be trusted: the subject and issuer DN, Subject Key Identifier, serial number, thumbprints and
+ * validity period. Each item is extracted from the certificate only once, the DNs and thumbprints when they are first
+ * requested, so they can be retrieved again without parsing the certificate.
+ * <p>Views are created using {@link #of(X509Certificate)}, which returns the same view for a certificate as long as the
+ * certificate is in use, i.e. the views are cached alongside the certificates they describe. The methods of {@link
+ * CertificateUtils} that retrieve the DN fields of a certificate use these views.
+ * <p>Instances of this class are thread safe and can be shared between threads.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 1.6.0
+ */
+public final class CertificateInfo {
+	/**
+	 * The views of certificates currently in use. The certificates are referenced weakly and as the views do not
+	 * reference the certificate, a view is removed when its certificate is no longer used.
+	 */
+	private static final ConcurrentHashMap<CertificateKey, CertificateInfo> VIEWS = new ConcurrentHashMap<>();
+	/**
+	 * The keys of the views whose certificate is no longer used
+	 */
+	private static final ReferenceQueue<X509Certificate> UNUSED = new ReferenceQueue<>();
+	/**
+	 * The digesters used by the current thread to calculate thumbprints, by algorithm name
+	 */
+	private static final ThreadLocal<Map<String, MessageDigest>> DIGESTERS = ThreadLocal.withInitial(HashMap::new);
+
+	private final byte[]		encoded;
+	private final X500Principal	subjectPrincipal;
+	private final X500Principal	issuerPrincipal;
+	private final BigInteger	serialNumber;
+	private final byte[]		ski;
+	private final Instant		notBefore;
+	private final Instant		notAfter;
+
+	private volatile DN			subject;
+	private volatile DN			issuer;
+	private volatile X500Name	normalisedIssuer;
+	/**
+	 * The thumbprints calculated so far, by upper cased algorithm name
+	 */
+	private final Map<String, byte[]> thumbprints = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the view on the meta-data of the given certificate. If a view was already created for the certificate, or
+	 * an equal one, that view is returned, otherwise a new view is created.
+	 *
+	 * @param cert	the certificate
+	 * @return	the view on the certificate's meta-data
+	 * @throws IllegalArgumentException	when no certificate is given or the given certificate cannot be encoded
+	 */
+	public static CertificateInfo of(final X509Certificate cert) {
+		if (cert == null)
+			throw new IllegalArgumentException("A certificate must be specified");
+		for (Reference<?> unused; (unused = UNUSED.poll()) != null;)
+			VIEWS.remove(unused);
+		CertificateInfo info = VIEWS.get(new CertificateKey(cert, null));
+		if (info == null) {
+			final CertificateInfo created = new CertificateInfo(cert);
+			info = VIEWS.putIfAbsent(new CertificateKey(cert, UNUSED), created);
+			if (info == null)
+				info = created;
+		}
+		return info;
+	}
+
+	private CertificateInfo(final X509Certificate cert) {
+		try {
+			this.encoded = cert.getEncoded();
+		} catch (CertificateEncodingException invalidCert) {
+			throw new IllegalArgumentException("Certificate cannot be encoded", invalidCert);
+		}
+		this.subjectPrincipal = cert.getSubjectX500Principal();
+		this.issuerPrincipal = cert.getIssuerX500Principal();
+		this.serialNumber = cert.getSerialNumber();
+		this.ski = extractSKI(cert);
+		this.notBefore = cert.getNotBefore().toInstant();
+		this.notAfter = cert.getNotAfter().toInstant();
+	}
+
+	/**
+	 * Gets the Subject Key Identifier from the extension in the given certificate.
+	 *
+	 * @param cert	the certificate
+	 * @return	the SKI, <code>null</code> if the certificate does not contain the SKI extension
+	 */
+	static byte[] extractSKI(final X509Certificate cert) {
+		final byte[] skiExtValue = cert.getExtensionValue(Extension.subjectKeyIdentifier.getId());
+		return skiExtValue != null ? Arrays.copyOfRange(skiExtValue, 4, skiExtValue.length) : null;
+	}
+
+	/**
+	 * Gets the value of the first occurrence of the given field in the DN.
+	 *
+	 * @param dn	the DN
+	 * @param field	the ASN1 OID of the field
+	 * @return	the value of the field, <code>null</code> if the DN does not contain the field or it cannot be read
+	 */
+	private static String getField(final X500Name dn, final ASN1ObjectIdentifier field) {
+		try {
+			final RDN[] rdns = dn.getRDNs(field);
+			return rdns.length > 0 ? IETFUtils.valueToString(rdns[0].getFirst().getValue()) : null;
+		} catch (Exception invalidField) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the digester of the current thread for the given algorithm. As the digesters are only used by one thread
+	 * they are created once per thread and then re-used.
+	 *
+	 * @param algorithm	the digest algorithm
+	 * @return	a digester for the given algorithm in its initial state
+	 * @throws NoSuchAlgorithmException	when the algorithm is not supported
+	 */
+	private static MessageDigest getDigester(final String algorithm) throws NoSuchAlgorithmException {
+		final Map<String, MessageDigest> digesters = DIGESTERS.get();
+		MessageDigest digester = digesters.get(algorithm);
+		if (digester == null) {
+			digester = MessageDigest.getInstance(algorithm);
+			digesters.put(algorithm, digester);
+		} else
+			digester.reset();
+		return digester;
+	}
+
+	/**
+	 * @return the parsed Subject's DN
+	 */
+	private DN subject() {
+		DN dn = subject;
+		if (dn == null)
+			subject = dn = new DN(subjectPrincipal);
+		return dn;
+	}
+
+	/**
+	 * @return the parsed Issuer's DN
+	 */
+	private DN issuer() {
+		DN dn = issuer;
+		if (dn == null)
+			issuer = dn = new DN(issuerPrincipal);
+		return dn;
+	}
+
+	/**
+	 * @return the Subject's DN in RFC4519 style, as returned by {@link
+	 * 		   CertificateUtils#getSubjectName(X509Certificate)}
+	 */
+	public String getSubjectName() {
+		return subject().name;
+	}
+
+	/**
+	 * @return the CN field of the Subject's DN, <code>null</code> if the DN does not contain a CN
+	 */
+	public String getSubjectCN() {
+		return subject().cn;
+	}
+
+	/**
+	 * @return the Serial Number field of the Subject's DN, <code>null</code> if the DN does not contain a serial number
+	 */
+	public String getSubjectSN() {
+		return subject().sn;
+	}
+
+	/**
+	 * Gets the specified field of the Subject's DN.
+	 *
+	 * @param field	ASN1 OID of the field to retrieve. It is recommend to use a constant from the {@link BCStyle} class.
+	 * @return	the value of the field or <code>null</code> if the DN does not contain the field
+	 */
+	public String getSubjectDNField(final ASN1ObjectIdentifier field) {
+		final DN dn = subject();
+		return BCStyle.CN.equals(field) ? dn.cn : BCStyle.SERIALNUMBER.equals(field) ? dn.sn : getField(dn.x500, field);
+	}
+
+	/**
+	 * @return the Issuer's DN in RFC4519 style, as returned by {@link CertificateUtils#getIssuerName(X509Certificate)}
+	 */
+	public String getIssuerName() {
+		return issuer().name;
+	}
+
+	/**
+	 * @return the CN field of the Issuer's DN, <code>null</code> if the DN does not contain a CN
+	 */
+	public String getIssuerCN() {
+		return issuer().cn;
+	}
+
+	/**
+	 * @return the serial number of the certificate
+	 */
+	public BigInteger getSerialNumber() {
+		return serialNumber;
+	}
+
+	/**
+	 * @return a copy of the Subject Key Identifier, <code>null</code> if the certificate does not contain the SKI
+	 * 		   extension
+	 */
+	public byte[] getSKI() {
+		return ski != null ? ski.clone() : null;
+	}
+
+	/**
+	 * @return a copy of the SHA-1 hash of the encoded certificate
+	 */
+	public byte[] getSHA1Thumbprint() {
+		return supportedThumbprint("SHA-1").clone();
+	}
+
+	/**
+	 * @return a copy of the SHA-256 hash of the encoded certificate
+	 */
+	public byte[] getSHA256Thumbprint() {
+		return supportedThumbprint("SHA-256").clone();
+	}
+
+	/**
+	 * Gets the thumbprint of the certificate calculated with the given digest algorithm.
+	 *
+	 * @param algorithm	the digest algorithm
+	 * @return	a copy of the thumbprint
+	 * @throws NoSuchAlgorithmException	when the algorithm is not supported
+	 */
+	public byte[] getThumbprint(final String algorithm) throws NoSuchAlgorithmException {
+		return thumbprint(algorithm).clone();
+	}
+
+	/**
+	 * Gets the thumbprint calculated with a digest algorithm that must be supported by every Java platform.
+	 *
+	 * @param algorithm	the digest algorithm
+	 * @return	the thumbprint, which must not be modified by the caller
+	 */
+	private byte[] supportedThumbprint(final String algorithm) {
+		try {
+			return thumbprint(algorithm);
+		} catch (NoSuchAlgorithmException unsupported) {
+			throw new IllegalStateException(algorithm + " is not supported", unsupported);
+		}
+	}
+
+	/**
+	 * Gets the thumbprint of the certificate calculated with the given digest algorithm. The thumbprint is calculated
+	 * when first requested and then kept in the view.
+	 *
+	 * @param algorithm	the digest algorithm
+	 * @return	the thumbprint, which must not be modified by the caller
+	 * @throws NoSuchAlgorithmException	when the algorithm is not supported
+	 */
+	byte[] thumbprint(final String algorithm) throws NoSuchAlgorithmException {
+		String name = algorithm.toUpperCase(Locale.ROOT);
+		if ("SHA1".equals(name) || "SHA".equals(name))
+			name = "SHA-1";
+		else if ("SHA256".equals(name))
+			name = "SHA-256";
+		byte[] thumbprint = thumbprints.get(name);
+		if (thumbprint == null) {
+			thumbprint = getDigester(name).digest(encoded);
+			thumbprints.putIfAbsent(name, thumbprint);
+		}
+		return thumbprint;
+	}
+
+	/**
+	 * @return the start of the certificate's validity period
+	 */
+	public Instant getNotBefore() {
+		return notBefore;
+	}
+
+	/**
+	 * @return the end of the certificate's validity period
+	 */
+	public Instant getNotAfter() {
+		return notAfter;
+	}
+
+	/**
+	 * Determines whether the certificate is valid at the given time.
+	 *
+	 * @param time	the time to check
+	 * @return	<code>true</code> if the given time is within the validity period, <code>false</code> otherwise
+	 */
+	public boolean isValidAt(final Instant time) {
+		return !time.isBefore(notBefore) && !time.isAfter(notAfter);
+	}
+
+	/**
+	 * Determines whether the certificate has the given Subject Key Identifier.
+	 *
+	 * @param skiBytes	the expected SKI
+	 * @return	<code>true</code> if the certificate has the same SKI, <code>false</code> otherwise
+	 */
+	public boolean hasSKI(final byte[] skiBytes) {
+		return ski != null && Arrays.equals(ski, skiBytes);
+	}
+
+	/**
+	 * Determines whether the certificate has the given serial number and is issued by the given issuer.
+	 *
+	 * @param issuer	the expected issuer
+	 * @param serial	the expected serial number
+	 * @return	<code>true</code> if the certificate has the same serial number and issuer, <code>false</code> otherwise
+	 */
+	public boolean hasIssuerSerial(final X500Principal issuer, final BigInteger serial) {
+		return serialNumber.equals(serial) && getNormalisedIssuer().equals(normalise(issuer));
+	}
+
+	/**
+	 * @return the Issuer's DN in the normalised form used to compare issuers, see {@link #normalise(X500Principal)}
+	 */
+	X500Name getNormalisedIssuer() {
+		X500Name name = normalisedIssuer;
+		if (name == null)
+			normalisedIssuer = name = normalise(issuerPrincipal);
+		return name;
+	}
+
+	/**
+	 * Converts the given name to the form used to compare issuers. We convert the issuer names to a BouncyCastle
+	 * X509Name, which will set the attributes of the DN in a particular way (see WSS-168) which we can then compare.
+	 *
+	 * @param name	the name to convert
+	 * @return	the normalised name
+	 */
+	static X500Name normalise(final X500Principal name) {
+		return new X500Name(name.getName());
+	}
+
+	/**
+	 * Holds a parsed DN together with the fields that are retrieved most often.
+	 */
+	private static final class DN {
+		final X500Name	x500;
+		final String	name;
+		final String	cn;
+		final String	sn;
+
+		DN(final X500Principal principal) {
+			this.x500 = X500Name.getInstance(HB2BStyle.INSTANCE, principal.getEncoded());
+			this.name = x500.toString();
+			this.cn = getField(x500, BCStyle.CN);
+			this.sn = getField(x500, BCStyle.SERIALNUMBER);
+		}
+	}
+
+	/**
+	 * Is the weak reference to a certificate used as key of the cached views. Like the certificates, two keys are
+	 * equal when they reference equal certificates. Once the certificate is no longer used, the key is only equal to
+	 * itself so it can be removed from the cache.
+	 */
+	private static final class CertificateKey extends WeakReference<X509Certificate> {
+		private final int	hash;
+
+		CertificateKey(final X509Certificate cert, final ReferenceQueue<X509Certificate> queue) {
+			super(cert, queue);
+			this.hash = cert.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (o == this)
+				return true;
+			if (!(o instanceof CertificateKey) || ((CertificateKey) o).hash != hash)
+				return false;
+			final X509Certificate cert = get();
+			return cert != null && cert.equals(((CertificateKey) o).get());
+		}
+	}
+}
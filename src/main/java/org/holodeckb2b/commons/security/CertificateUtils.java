@@ -23,31 +23,44 @@ import java.io.InputStream;
 import java.math.BigInteger;
 import java.nio.file.Path;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Security;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import java.util.List;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import javax.security.auth.x500.X500Principal;
 
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
-import org.bouncycastle.asn1.x500.RDN;
-import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x500.style.BCStyle;
-import org.bouncycastle.asn1.x500.style.IETFUtils;
-import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.util.encoders.Base64;
 import org.holodeckb2b.commons.util.Utils;
 
 /**
  * Is a utility class for processing of X509 certificates.
+ * <p>Certificates are decoded using a {@link CertificateFactory} per thread, so certificates can be decoded
+ * concurrently without synchronisation. By default the factory of the preferred JCA provider is used. Another
+ * provider can be selected using the {@value #CERTIFICATE_PROVIDER_PROPERTY} system property, which should contain
+ * either <i>BC</i> to use the BouncyCastle provider, whether registered or not, or the name of another registered
+ * provider, or by calling {@link #setCertificateFactoryProvider(Provider)}. When the provider configured by the system
+ * property is not available a warning is logged and the preferred JCA provider is used.
  *
  * @author Sander Fieten (sander at holodeck-b2b.org)
  */
 public class CertificateUtils {
+	/**
+	 * Name of the system property to select the security provider of the certificate factory
+	 * @since 1.6.0
+	 */
+	public static final String CERTIFICATE_PROVIDER_PROPERTY = "org.holodeckb2b.commons.security.certificateProvider";
+
 	/**
 	 * The start boundary of a PEM formatted certificate
 	 */
@@ -58,9 +71,35 @@ public class CertificateUtils {
     private static final String PEM_END_BOUNDARY = "-----END CERTIFICATE-----";
 
 	/**
-     * Certificate factory to create the X509 Certificate object
+     * Supplies the certificate factories to create the X509 Certificate objects
+     */
+    private static volatile FactorySupplier factorySupplier = new FactorySupplier(loadInitialProvider());
+
+    /**
+     * The cache of decoded certificates, <code>null</code> if certificates should always be decoded
+     */
+    private static volatile CertificateCache certificateCache;
+
+    /**
+     * Sets the cache to use for certificates decoded by {@link #getCertificate(String)} and {@link
+     * #getCertificate(byte[])}. By default no cache is used and the certificate is decoded on every call.
+     *
+     * @param cache	the cache to use, <code>null</code> to disable caching
+     * @since 1.6.0
      */
-    private static CertificateFactory certificateFactory;
+    public static void setCertificateCache(final CertificateCache cache) {
+    	certificateCache = cache;
+    }
+
+    /**
+     * Gets the cache used for decoded certificates.
+     *
+     * @return	the cache in use, <code>null</code> if certificates are not cached
+     * @since 1.6.0
+     */
+    public static CertificateCache getCertificateCache() {
+    	return certificateCache;
+    }
 
     /**
      * Gets the X509 Certificate from the base64 encoded DER byte array which may be PEM encapsulated.
@@ -73,6 +112,19 @@ public class CertificateUtils {
     public static X509Certificate getCertificate(final String b64EncodedCertificate) throws CertificateException {
     	if (Utils.isNullOrEmpty(b64EncodedCertificate))
     		return null;
+    	final CertificateCache cache = certificateCache;
+    	return cache != null ? cache.get(b64EncodedCertificate, () -> decode(b64EncodedCertificate))
+    						 : decode(b64EncodedCertificate);
+    }
+
+    /**
+     * Decodes the base64 encoded certificate which may be PEM encapsulated.
+     *
+     * @param b64EncodedCertificate The string containing the base64 encoded bytes
+     * @return  The decoded Certificate instance, <code>null</code> if the string contains no bytes
+     * @throws CertificateException When the string does not contain a valid base64 encoded certificate
+     */
+    private static X509Certificate decode(final String b64EncodedCertificate) throws CertificateException {
     	// Strip everything up to and after the first start and end PEM boundaries
 		final int startBIdx = b64EncodedCertificate.indexOf(PEM_START_BOUNDARY);
 		final int endBIdx = b64EncodedCertificate.indexOf(PEM_END_BOUNDARY);
@@ -88,7 +140,7 @@ public class CertificateUtils {
     		throw new CertificateException("String is not a valid base64 encoding", decodingFailure);
     	}
 
-        return getCertificate(certBytes);
+        return decode(certBytes);
     }
 
     /**
@@ -120,8 +172,19 @@ public class CertificateUtils {
     public static X509Certificate getCertificate(final byte[] certBytes) throws CertificateException {
         if (certBytes == null || certBytes.length == 0)
             return null;
-        else
-        	return getCertificate(new ByteArrayInputStream(certBytes));
+    	final CertificateCache cache = certificateCache;
+    	return cache != null ? cache.get(certBytes, () -> decode(certBytes)) : decode(certBytes);
+    }
+
+    /**
+     * Decodes the DER encoded certificate.
+     *
+     * @param certBytes The byte array containing the DER encoded certificate
+     * @return  The Certificate instance, <code>null</code> if the array is empty
+     * @throws CertificateException When the bytes do not contain a valid certificate
+     */
+    private static X509Certificate decode(final byte[] certBytes) throws CertificateException {
+    	return certBytes.length == 0 ? null : getCertificate(new ByteArrayInputStream(certBytes));
     }
 
     /**
@@ -197,7 +260,7 @@ public class CertificateUtils {
 	 * @since 1.1.0
      */
     public static String getSubjectName(final X509Certificate cert) {
-		return X500Name.getInstance(HB2BStyle.INSTANCE, cert.getSubjectX500Principal().getEncoded()).toString();
+		return CertificateInfo.of(cert).getSubjectName();
     }
 
     /**
@@ -208,13 +271,7 @@ public class CertificateUtils {
      * @since 1.2.0
      */
     public static String getIssuerCN(final X509Certificate cert) {
-    	try {
-			X500Name x500name = X500Name.getInstance(cert.getIssuerX500Principal().getEncoded());
-			RDN cn = x500name.getRDNs(BCStyle.CN)[0];
-			return IETFUtils.valueToString(cn.getFirst().getValue());
-		} catch (Exception invalidCert) {
-			return null;
-		}
+    	return cert != null ? CertificateInfo.of(cert).getIssuerCN() : null;
     }
 
 	/**
@@ -225,7 +282,7 @@ public class CertificateUtils {
 	 * @since 1.1.0
      */
     public static String getIssuerName(final X509Certificate cert) {
-		return X500Name.getInstance(HB2BStyle.INSTANCE, cert.getIssuerX500Principal().getEncoded()).toString();
+		return CertificateInfo.of(cert).getIssuerName();
     }
 
     /**
@@ -248,13 +305,7 @@ public class CertificateUtils {
      * @since 1.4.0
      */
     public static String getSubjectDNField(final X509Certificate cert, final ASN1ObjectIdentifier field)  {
-    	try {
-    		X500Name x500name = X500Name.getInstance(cert.getSubjectX500Principal().getEncoded());
-    		RDN cn = x500name.getRDNs(field)[0];
-    		return IETFUtils.valueToString(cn.getFirst().getValue());
-    	} catch (Exception invalidCert) {
-    		return null;
-    	}
+    	return cert != null ? CertificateInfo.of(cert).getSubjectDNField(field) : null;
     }
     
 	/**
@@ -266,8 +317,7 @@ public class CertificateUtils {
 	 * @since 1.3.0
      */    
     public static byte[] getSKI(final X509Certificate cert) {
-    	byte[] skiExtValue = cert.getExtensionValue(Extension.subjectKeyIdentifier.getId());
-		return skiExtValue != null ? Arrays.copyOfRange(skiExtValue, 4, skiExtValue.length) : null;
+    	return CertificateInfo.extractSKI(cert);
     }
 
     /**
@@ -279,7 +329,7 @@ public class CertificateUtils {
      * @since 1.2.0
      */
     public static boolean hasSKI(final X509Certificate cert, byte[] skiBytes) {
-    	byte[] certSKI = getSKI(cert);
+    	final byte[] certSKI = getSKI(cert);
     	return certSKI != null && Arrays.equals(certSKI, skiBytes);
     }
 
@@ -295,15 +345,13 @@ public class CertificateUtils {
      */
     public static boolean hasIssuerSerial(final X509Certificate cert, final X500Principal issuer,
     										final BigInteger serial) {
-    	
-        // We convert the issuer names to a BouncyCastle X509Name, which will set the attributes of the DN in a 
-    	// particular way (see WSS-168) which we can then compare.        
-        return new X500Name(cert.getIssuerX500Principal().getName()).equals(new X500Name(issuer.getName()))
-        		&& cert.getSerialNumber().equals(serial);
+    	return CertificateInfo.of(cert).hasIssuerSerial(issuer, serial);
     }
 
     /**
      * Determines if the given X509 certificate has the specified hash value calculated by the given diget method
+     * <p>Since version 1.6.0 the thumbprint is calculated only once per certificate and algorithm, the given digester
+     * is only used when its algorithm is not available from the installed providers.
      *
      * @param cert			certificate to check
      * @param hash 		the expected hash value
@@ -313,13 +361,54 @@ public class CertificateUtils {
      */
     public static boolean hasThumbprint(final X509Certificate cert, final byte[] hash, final MessageDigest digester) {
         try {
-        	digester.reset();
-        	return Arrays.equals(digester.digest(cert.getEncoded()), hash);
-        } catch (CertificateEncodingException ex) {
-            return false;
+        	return hasThumbprint(cert, hash, digester.getAlgorithm());
+        } catch (NoSuchAlgorithmException providerSpecific) {
+        	try {
+        		digester.reset();
+        		return MessageDigest.isEqual(digester.digest(cert.getEncoded()), hash);
+        	} catch (CertificateEncodingException ex) {
+        		return false;
+        	}
         }
     }
 
+    /**
+     * Determines if the given X509 certificate has the specified hash value calculated using the given digest
+     * algorithm. The hash values are compared in constant time.
+     *
+     * @param cert			certificate to check
+     * @param hash 		the expected hash value
+     * @param algorithm	name of the digest algorithm used to calculate the hash, e.g. "SHA-256"
+     * @return	<code>true</code> if the given certificate has the same hash value,	<code>false</code> otherwise
+     * @throws NoSuchAlgorithmException	when the digest algorithm is not supported
+     * @since 1.6.0
+     */
+    public static boolean hasThumbprint(final X509Certificate cert, final byte[] hash, final String algorithm)
+    																				throws NoSuchAlgorithmException {
+    	try {
+    		return hash != null && MessageDigest.isEqual(CertificateInfo.of(cert).thumbprint(algorithm), hash);
+    	} catch (IllegalArgumentException invalidCert) {
+    		return false;
+    	}
+    }
+
+    /**
+     * Gets the thumbprint of the given X509 certificate, i.e. the hash value of the encoded certificate, calculated
+     * using the given digest algorithm. The thumbprint is calculated only once per certificate and algorithm, the
+     * digesters used for the calculation are re-used by each thread.
+     *
+     * @param cert			the X509 certificate
+     * @param algorithm	name of the digest algorithm to use, e.g. "SHA-256"
+     * @return	the thumbprint of the certificate
+     * @throws NoSuchAlgorithmException	when the digest algorithm is not supported
+     * @throws IllegalArgumentException	when the certificate cannot be encoded
+     * @since 1.6.0
+     */
+    public static byte[] getThumbprint(final X509Certificate cert, final String algorithm)
+    																				throws NoSuchAlgorithmException {
+    	return CertificateInfo.of(cert).getThumbprint(algorithm);
+    }
+
     /**
      * Gets the {@link CertificateFactory} instance to use for creating the <code>X509Certificate</code> object from a
      * byte array.
@@ -328,8 +417,88 @@ public class CertificateUtils {
      * @throws CertificateException     When the certificate factory could not be loaded
      */
     private static CertificateFactory getCertificateFactory() throws CertificateException {
-        if (certificateFactory == null)
-            certificateFactory = CertificateFactory.getInstance("X.509");
-        return certificateFactory;
+        return factorySupplier.get();
+    }
+
+    /**
+     * Sets the security provider whose certificate factory should be used to decode certificates. Threads start using
+     * the factory of the new provider on their next decoding operation.
+     *
+     * @param provider	the provider to use, <code>null</code> to reset to the provider configured by the {@value
+     * 					#CERTIFICATE_PROVIDER_PROPERTY} system property or the preferred JCA provider if none is
+     * 					configured
+     * @throws IllegalStateException when <code>null</code> is given and the configured provider is not available
+     * @since 1.6.0
+     */
+    public static void setCertificateFactoryProvider(final Provider provider) {
+    	factorySupplier = new FactorySupplier(provider != null ? provider : loadConfiguredProvider());
+    }
+
+    /**
+     * Gets the security provider whose certificate factory is used to decode certificates.
+     *
+     * @return	the provider in use, <code>null</code> if the preferred JCA provider is used
+     * @since 1.6.0
+     */
+    public static Provider getCertificateFactoryProvider() {
+    	return factorySupplier.provider;
+    }
+
+    /**
+     * Gets the provider to use when the class is initialised. As an error in the optional configuration should not
+     * prevent the use of this class, the preferred JCA provider is used when the configured one is not available.
+     *
+     * @return	the configured provider, or <code>null</code> when no provider is configured or it is not available
+     */
+    private static Provider loadInitialProvider() {
+    	try {
+    		return loadConfiguredProvider();
+    	} catch (IllegalStateException unavailable) {
+    		Logger.getLogger(CertificateUtils.class.getName()).warning(unavailable.getMessage()
+    																	+ ", using the preferred JCA provider instead");
+    		return null;
+    	}
+    }
+
+    /**
+     * Gets the provider configured by the {@value #CERTIFICATE_PROVIDER_PROPERTY} system property.
+     *
+     * @return	the configured provider, or <code>null</code> when no provider is configured
+     * @throws IllegalStateException when the configured provider is not available
+     */
+    private static Provider loadConfiguredProvider() {
+    	final String configured = System.getProperty(CERTIFICATE_PROVIDER_PROPERTY);
+    	if (Utils.isNullOrEmpty(configured))
+    		return null;
+    	final Provider provider = Security.getProvider(configured.trim());
+    	if (provider != null)
+    		return provider;
+    	else if (BouncyCastleProvider.PROVIDER_NAME.equalsIgnoreCase(configured.trim()))
+    		return new BouncyCastleProvider();
+    	else
+    		throw new IllegalStateException("Configured certificate provider is not available: " + configured);
+    }
+
+    /**
+     * Creates and holds the certificate factory of a specific provider for each thread. As the factories are not
+     * guaranteed to be thread safe, each thread uses its own instance.
+     */
+    private static final class FactorySupplier {
+    	final Provider	provider;
+    	final ThreadLocal<CertificateFactory> factories = new ThreadLocal<>();
+
+    	FactorySupplier(final Provider provider) {
+    		this.provider = provider;
+    	}
+
+    	CertificateFactory get() throws CertificateException {
+    		CertificateFactory factory = factories.get();
+    		if (factory == null) {
+    			factory = provider != null ? CertificateFactory.getInstance("X.509", provider)
+    									   : CertificateFactory.getInstance("X.509");
+    			factories.set(factory);
+    		}
+    		return factory;
+    	}
     }
 }
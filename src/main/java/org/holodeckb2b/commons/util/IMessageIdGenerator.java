@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.util;
+
+/**
+ * Defines the interface of the component that generates the unique left part of the message ids created by {@link
+ * MessageIdUtils}. The generated value must only contain characters allowed in the <code>id-left</code> part of a
+ * message id as specified in <a href="https://tools.ietf.org/html/rfc2822">RFC2822</a>, i.e. consist of one or more
+ * <code>atext</code> sequences separated by a dot. As generators are used concurrently by multiple threads,
+ * implementations must be thread safe.
+ * <p>The {@link MessageIdGenerators} enumeration contains the generators provided by this library.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 1.6.0
+ */
+@FunctionalInterface
+public interface IMessageIdGenerator {
+
+	/**
+	 * Generates a new left part for a message id.
+	 *
+	 * @return a new unique left part of a message id
+	 */
+	String createLeftPart();
+}
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.util;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contains the {@link IMessageIdGenerator}s provided by this library. They differ in how uniqueness of the generated
+ * ids is guaranteed and how well they perform when many threads generate ids concurrently:<ul>
+ * <li>{@link #RANDOM_UUID} creates random UUIDs using the shared {@link SecureRandom} instance of {@link
+ * 		UUID#randomUUID()}. This results in unpredictable ids but generation is serialised on the shared random number
+ * 		generator. This is the default generator.</li>
+ * <li>{@link #THREAD_LOCAL_UUID} creates random (version 4) UUIDs using the {@link ThreadLocalRandom} of the current
+ * 		thread. Uniqueness is as likely as with <code>RANDOM_UUID</code>, but the ids are not cryptographically
+ * 		unpredictable. Generation scales with the number of threads.</li>
+ * <li>{@link #SEQUENTIAL} combines a random node prefix, created once at start up, with a counter. The ids are
+ * 		guaranteed to be unique within the JVM and are unique across JVMs as long as their node prefixes differ,
+ * 		which is very likely given the 64 bit random prefix. To prevent contention on the counter each thread
+ * 		reserves a block of counter values at a time.</li>
+ * <li>{@link #TIME_ORDERED} creates ids that sort in the order they were generated, similar to ULIDs. The 128 bit
+ * 		value of the id consists of a 48 bit time stamp in milliseconds since the epoch, a 16 bit sequence number and
+ * 		64 random bits and is encoded in 26 characters using Crockford's base32 alphabet. Because the encoded id starts
+ * 		with the time stamp, ids created later sort after ids created earlier, which keeps inserts into database indexes
+ * 		local. Within the JVM the ids are strictly increasing, also when generated concurrently. When more than 65536
+ * 		ids are generated within the same millisecond, the time stamp is advanced to the next millisecond.</li></ul>
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 1.6.0
+ */
+public enum MessageIdGenerators implements IMessageIdGenerator {
+
+	RANDOM_UUID {
+		@Override
+		public String createLeftPart() {
+			return UUID.randomUUID().toString();
+		}
+	},
+
+	THREAD_LOCAL_UUID {
+		@Override
+		public String createLeftPart() {
+			final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+			// Set the version (4) and variant (IETF) bits as in UUID.randomUUID()
+			final long msb = (rnd.nextLong() & 0xffffffffffff0fffL) | 0x0000000000004000L;
+			final long lsb = (rnd.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+			return formatUUID(msb, lsb);
+		}
+	},
+
+	SEQUENTIAL {
+		@Override
+		public String createLeftPart() {
+			final long[] block = COUNTER_BLOCK.get();
+			if (block[0] == block[1]) {
+				block[0] = NEXT_BLOCK.getAndAdd(BLOCK_SIZE);
+				block[1] = block[0] + BLOCK_SIZE;
+			}
+			final long counter = block[0]++;
+			final char[] id = new char[NODE_PREFIX.length + 1 + 16];
+			System.arraycopy(NODE_PREFIX, 0, id, 0, NODE_PREFIX.length);
+			id[NODE_PREFIX.length] = '-';
+			toHex(counter, id, NODE_PREFIX.length + 1, 16);
+			return new String(id);
+		}
+	},
+
+	TIME_ORDERED {
+		@Override
+		public String createLeftPart() {
+			long prev, next;
+			do {
+				prev = LAST_TIME_SEQ.get();
+				final long now = System.currentTimeMillis() << 16;
+				next = now > prev ? now : prev + 1;
+			} while (!LAST_TIME_SEQ.compareAndSet(prev, next));
+
+			final long rnd = ThreadLocalRandom.current().nextLong();
+			final char[] id = new char[SORTABLE_ID_LENGTH];
+			// The 128 bit value is encoded in 26 characters, so the first character only encodes the 3 most
+			// significant bits. The 14th character encodes the least significant bit of the time stamp and sequence
+			// number and the 4 most significant bits of the random part
+			id[0] = CROCKFORD_DIGITS[(int) (next >>> 61)];
+			for (int i = 1; i < 13; i++)
+				id[i] = CROCKFORD_DIGITS[(int) (next >>> (61 - 5 * i)) & 0x1f];
+			id[13] = CROCKFORD_DIGITS[(int) ((next & 0x1) << 4 | rnd >>> 60)];
+			for (int i = 14; i < SORTABLE_ID_LENGTH; i++)
+				id[i] = CROCKFORD_DIGITS[(int) (rnd >>> (5 * (SORTABLE_ID_LENGTH - 1 - i))) & 0x1f];
+			return new String(id);
+		}
+	};
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * The digits of Crockford's base32 encoding, which are in ascending ASCII order so the encoded values sort the same
+	 * as the numeric values
+	 */
+	private static final char[] CROCKFORD_DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+	/**
+	 * Length of the left part created by the {@link #TIME_ORDERED} generator
+	 */
+	static final int SORTABLE_ID_LENGTH = 26;
+
+	/**
+	 * The time stamp and sequence number of the last id created by the {@link #TIME_ORDERED} generator
+	 */
+	private static final AtomicLong LAST_TIME_SEQ = new AtomicLong();
+
+	/**
+	 * The random prefix used by the {@link #SEQUENTIAL} generator
+	 */
+	private static final char[] NODE_PREFIX = new char[16];
+	static {
+		toHex(new SecureRandom().nextLong(), NODE_PREFIX, 0, 16);
+	}
+
+	/**
+	 * Number of counter values reserved by a thread at once
+	 */
+	private static final long BLOCK_SIZE = 1024;
+
+	/**
+	 * Start of the next block of counter values to be reserved
+	 */
+	private static final AtomicLong NEXT_BLOCK = new AtomicLong();
+
+	/**
+	 * The block of counter values reserved by the current thread, as [next value, end of block]
+	 */
+	private static final ThreadLocal<long[]> COUNTER_BLOCK = ThreadLocal.withInitial(() -> new long[2]);
+
+	/**
+	 * Creates the string representation of the UUID with the given bits, in the same format as {@link
+	 * UUID#toString()}.
+	 *
+	 * @param msb	the most significant bits of the UUID
+	 * @param lsb	the least significant bits of the UUID
+	 * @return	the string representation of the UUID
+	 */
+	static String formatUUID(final long msb, final long lsb) {
+		final char[] uuid = new char[36];
+		toHex(msb >>> 32, uuid, 0, 8);
+		uuid[8] = '-';
+		toHex(msb >>> 16, uuid, 9, 4);
+		uuid[13] = '-';
+		toHex(msb, uuid, 14, 4);
+		uuid[18] = '-';
+		toHex(lsb >>> 48, uuid, 19, 4);
+		uuid[23] = '-';
+		toHex(lsb, uuid, 24, 12);
+		return new String(uuid);
+	}
+
+	/**
+	 * Gets the time stamp from a left part created by the {@link #TIME_ORDERED} generator.
+	 *
+	 * @param leftPart	the left part of the message id
+	 * @return	the time stamp in milliseconds since the epoch, or -1 if the given left part was not created by the
+	 * 			<code>TIME_ORDERED</code> generator
+	 */
+	static long getTimestamp(final CharSequence leftPart) {
+		if (leftPart.length() != SORTABLE_ID_LENGTH)
+			return -1;
+		long value = 0;
+		for (int i = 0; i < SORTABLE_ID_LENGTH; i++) {
+			final char c = leftPart.charAt(i);
+			final int d = Arrays.binarySearch(CROCKFORD_DIGITS, c);
+			if (d < 0 || (i == 0 && d > 7))
+				return -1;
+			// The time stamp is encoded in the first 10 characters (3 + 9 * 5 bits)
+			if (i < 10)
+				value = (value << 5) | d;
+		}
+		return value;
+	}
+
+	/**
+	 * Writes the given number of least significant hexadecimal digits of the value into the character array.
+	 *
+	 * @param value		the value to write
+	 * @param dst		the array to write to
+	 * @param offset	the position in the array where the first digit should be written
+	 * @param digits	the number of digits to write
+	 */
+	private static void toHex(long value, final char[] dst, final int offset, final int digits) {
+		for (int i = offset + digits - 1; i >= offset; i--) {
+			dst[i] = HEX_DIGITS[(int) (value & 0xf)];
+			value >>>= 4;
+		}
+	}
+}
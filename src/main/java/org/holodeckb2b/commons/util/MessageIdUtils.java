@@ -16,29 +16,45 @@
  ******************************************************************************/
 package org.holodeckb2b.commons.util;
 
-import java.util.UUID;
+import java.time.Instant;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
 
 
 /**
  * Is a utility class to generate and check the message and MIME content-id identifiers as specified in RFC2822.
+ * <p>The left part of the generated message ids is created by an {@link IMessageIdGenerator}. By default the {@link
+ * MessageIdGenerators#RANDOM_UUID} generator is used. Another generator can be selected using the {@value
+ * #GENERATOR_PROPERTY} system property, which should either contain the name of one of the {@link
+ * MessageIdGenerators} or the class name of a custom <code>IMessageIdGenerator</code> implementation that has a public
+ * no-argument constructor, or by calling {@link #setGenerator(IMessageIdGenerator)}. When the generator configured by
+ * the system property cannot be loaded a warning is logged and the default generator is used.
  *
  * @author Sander Fieten (sander at holodeck-b2b.org)
  */
 public class MessageIdUtils {
+	/**
+	 * Name of the system property to select the generator of the message id's left part
+	 * @since 1.6.0
+	 */
+	public static final String GENERATOR_PROPERTY = "org.holodeckb2b.commons.util.messageIdGenerator";
+
 	// A static random value that can be used as right part of a message or content id
 	private static final String RIGHT_PART = "h-" + Long.toHexString(Double.doubleToLongBits(Math.random())) 
 											+ "." + Long.toHexString(Double.doubleToLongBits(Math.random())) ;	
-	
+
+	// The generator of the left part of message ids
+	private static volatile IMessageIdGenerator generator = loadInitialGenerator();
+
     /**
      * Generates an unique message id as specified in RFC2822. The uniqueness of the identifier is ensured by using a
-     * randomly generated left part. The right part is also random generated, but only created once and reused for all 
-     * invocations of this method.  
+     * generated left part, see {@link IMessageIdGenerator}. The right part is random generated, but only created once
+     * and reused for all invocations of this method.  
      *
      * @return A new unique message id conforming to RFC2822.
      */
     public static String createMessageId() {
-        return UUID.randomUUID().toString() + '@' + RIGHT_PART;
+        return generator.createLeftPart() + '@' + RIGHT_PART;
     }
 
     /**
@@ -49,8 +65,117 @@ public class MessageIdUtils {
      * @return A new unique message id conforming to RFC2822.
      */
     public static String createMessageId(final String rightPart) {
-        return UUID.randomUUID().toString() + '@' + rightPart.replaceAll("[^" + VALID_CHARS + "]", "_");
+        return generator.createLeftPart() + '@' + sanitizeId(rightPart);
     }    
+
+    /**
+     * Generates an unique message id as specified in RFC2822 that sorts after all message ids previously created by
+     * this method. The left part of the id is created by the {@link MessageIdGenerators#TIME_ORDERED} generator and
+     * starts with the time the id was created, which can be retrieved using {@link #getTimestamp(String)}. The right
+     * part is the same as used by {@link #createMessageId()}.
+     * <p>As these ids are increasing over time they are better suited for use as key in database indexes than random
+     * ids. Note however that they reveal when the message was created and that they are only strictly increasing
+     * within the JVM that generates them.
+     *
+     * @return A new unique, time ordered message id conforming to RFC2822.
+     * @since 1.6.0
+     */
+    public static String createSortableMessageId() {
+    	return MessageIdGenerators.TIME_ORDERED.createLeftPart() + '@' + RIGHT_PART;
+    }
+
+    /**
+     * Generates an unique message id as specified in RFC2822 that sorts after all message ids previously created by
+     * this method using the given string as right part. If the specified string contains characters not allowed in a
+     * messageId these are replaced by an underscore.
+     *
+     * @param rightPart the string to use as right part of the identifier
+     * @return A new unique, time ordered message id conforming to RFC2822.
+     * @see #createSortableMessageId()
+     * @since 1.6.0
+     */
+    public static String createSortableMessageId(final String rightPart) {
+    	return MessageIdGenerators.TIME_ORDERED.createLeftPart() + '@' + sanitizeId(rightPart);
+    }
+
+    /**
+     * Gets the time at which the given message id was created by {@link #createSortableMessageId()} or when the
+     * {@link MessageIdGenerators#TIME_ORDERED} generator was used. The message id may be surrounded by brackets.
+     *
+     * @param messageId	the message id
+     * @return	the time stamp embedded in the message id, or <code>null</code> if the message id was not created by the
+     * 			time ordered generator
+     * @since 1.6.0
+     */
+    public static Instant getTimestamp(final String messageId) {
+    	final String msgId = stripBrackets(messageId);
+    	if (Utils.isNullOrEmpty(msgId))
+    		return null;
+    	final int at = msgId.indexOf('@');
+    	final long timestamp = MessageIdGenerators.getTimestamp(at < 0 ? msgId : msgId.substring(0, at));
+    	return timestamp >= 0 ? Instant.ofEpochMilli(timestamp) : null;
+    }
+
+    /**
+     * Sets the generator to use for creating the left part of new message ids.
+     *
+     * @param newGenerator	the generator to use, <code>null</code> to reset to the generator configured by the
+     * 						{@value #GENERATOR_PROPERTY} system property or the default if none is configured
+     * @throws IllegalStateException when <code>null</code> is given and the configured generator cannot be loaded
+     * @since 1.6.0
+     */
+    public static void setGenerator(final IMessageIdGenerator newGenerator) {
+    	generator = newGenerator != null ? newGenerator : loadConfiguredGenerator();
+    }
+
+    /**
+     * Gets the generator currently used for creating the left part of new message ids.
+     *
+     * @return	the current message id generator
+     * @since 1.6.0
+     */
+    public static IMessageIdGenerator getGenerator() {
+    	return generator;
+    }
+
+    /**
+     * Gets the generator to use when the class is initialised. To ensure that an invalid configuration does not make
+     * the other methods of this class unavailable, the default generator is used when the configured one cannot be
+     * loaded.
+     *
+     * @return	the configured generator, or {@link MessageIdGenerators#RANDOM_UUID} when no generator is configured
+     * 			or it cannot be loaded
+     */
+    private static IMessageIdGenerator loadInitialGenerator() {
+    	try {
+    		return loadConfiguredGenerator();
+    	} catch (IllegalStateException invalidConfig) {
+    		Logger.getLogger(MessageIdUtils.class.getName()).warning(invalidConfig.getMessage()
+    																	+ ", using the default generator instead");
+    		return MessageIdGenerators.RANDOM_UUID;
+    	}
+    }
+
+    /**
+     * Gets the generator configured by the {@value #GENERATOR_PROPERTY} system property.
+     *
+     * @return	the configured generator, or {@link MessageIdGenerators#RANDOM_UUID} when no generator is configured
+     * @throws IllegalStateException when the configured generator cannot be loaded
+     */
+    private static IMessageIdGenerator loadConfiguredGenerator() {
+    	final String configured = System.getProperty(GENERATOR_PROPERTY);
+    	if (Utils.isNullOrEmpty(configured))
+    		return MessageIdGenerators.RANDOM_UUID;
+    	for (MessageIdGenerators g : MessageIdGenerators.values())
+    		if (g.name().equalsIgnoreCase(configured.trim()))
+    			return g;
+    	try {
+    		return (IMessageIdGenerator) Class.forName(configured.trim()).getConstructor().newInstance();
+    	} catch (ReflectiveOperationException | ClassCastException | LinkageError invalidGenerator) {
+    		throw new IllegalStateException("Cannot load configured message id generator: " + configured,
+    										invalidGenerator);
+    	}
+    }
     
     /**
      * Generates a unique [MIME] content id based on the given message id.
@@ -83,50 +208,159 @@ public class MessageIdUtils {
             // And return with rightPart added again, but ensure that the contentId does not contain any special chars
             // as this can cause issues in security processing
             
-            return (leftPart + rightPart).replaceAll("[^" + VALID_CHARS + "]", "_");
+            return sanitizeId(leftPart + rightPart);
         }
     }
     
+    /**
+     * Generates the given number of unique [MIME] content ids based on the given message id. The content ids are the
+     * same as would be created by calling {@link #createContentId(String)} for each content id, but the message id is
+     * only split and sanitized once and the random suffixes of the content ids are guaranteed to be distinct.
+     * <p><b>NOTE:</b> If the given message id is <code>null</code> or empty random content ids will be generated.
+     *
+     * @param msgId     The message id to use as base for the content ids
+     * @param n			The number of content ids to generate
+     * @return          Array containing the <code>n</code> unique content ids
+     * @since 1.6.0
+     */
+    public static String[] createContentIds(final String msgId, final int n) {
+    	if (n < 0)
+    		throw new IllegalArgumentException("Number of content ids must not be negative");
+    	return createContentIds(msgId, new String[n]);
+    }
+
+    /**
+     * Generates unique [MIME] content ids based on the given message id and stores them in the given array, filling
+     * the complete array.
+     *
+     * @param msgId     	The message id to use as base for the content ids
+     * @param contentIds	The array to store the generated content ids in
+     * @return          	The given array
+     * @see #createContentIds(String, int)
+     * @since 1.6.0
+     */
+    public static String[] createContentIds(final String msgId, final String[] contentIds) {
+    	if (Utils.isNullOrEmpty(msgId))
+    		return createMessageIds(null, contentIds);
+
+    	final int i = msgId.indexOf('@');
+    	final String leftPart = sanitizeId(i > 0 ? msgId.substring(0, i) : msgId);
+    	final String rightPart = i > 0 ? sanitizeId(msgId.substring(i)) : "";
+    	// Use consecutive suffixes starting at a random base so they are distinct and non-negative
+    	final int base = ThreadLocalRandom.current().nextInt(0, Integer.MAX_VALUE - contentIds.length);
+    	final StringBuilder cid = new StringBuilder(leftPart.length() + rightPart.length() + 11)
+    													.append(leftPart).append('-');
+    	final int prefixLength = cid.length();
+    	for (int n = 0; n < contentIds.length; n++) {
+    		cid.setLength(prefixLength);
+    		contentIds[n] = cid.append(base + n).append(rightPart).toString();
+    	}
+    	return contentIds;
+    }
+
+    /**
+     * Generates the given number of unique message ids as specified in RFC2822. The message ids are the same as would
+     * be created by calling {@link #createMessageId()} for each message id.
+     *
+     * @param n		The number of message ids to generate
+     * @return		Array containing the <code>n</code> unique message ids
+     * @since 1.6.0
+     */
+    public static String[] createMessageIds(final int n) {
+    	if (n < 0)
+    		throw new IllegalArgumentException("Number of message ids must not be negative");
+    	return createMessageIds(null, new String[n]);
+    }
+
+    /**
+     * Generates unique message ids as specified in RFC2822 using the given string as right part and stores them in
+     * the given array, filling the complete array. If the specified right part contains characters not allowed in a
+     * messageId these are replaced by an underscore. The right part is sanitized only once for all message ids.
+     *
+     * @param rightPart	The string to use as right part of the identifiers, or <code>null</code> to use the same
+     * 					right part as {@link #createMessageId()}
+     * @param msgIds	The array to store the generated message ids in
+     * @return			The given array
+     * @since 1.6.0
+     */
+    public static String[] createMessageIds(final String rightPart, final String[] msgIds) {
+    	final String suffix = '@' + (rightPart == null ? RIGHT_PART : sanitizeId(rightPart));
+    	final IMessageIdGenerator g = generator;
+    	for (int n = 0; n < msgIds.length; n++)
+    		msgIds[n] = g.createLeftPart() + suffix;
+    	return msgIds;
+    }
+
     /**
      * Ensures that the given message id does not contain non valid characters as defined by the format as specified in 
      * RFC2822 by replacing all non valid characters with '_'.
      * 
      * @param msgId		the message id to make compliant
-     * @return			the message id without any invalid characters
+     * @return			the message id without any invalid characters, which is the given instance if it did not
+     * 					contain any invalid characters
      */
     public static String sanitizeId(final String msgId) {
-    	return msgId == null ? null : msgId.replaceAll("[^" + VALID_CHARS + "]", "_");
+    	if (msgId == null)
+    		return null;
+    	final int length = msgId.length();
+    	int i = 0;
+    	while (i < length && isValidChar(msgId.charAt(i)))
+    		i++;
+    	if (i == length)
+    		return msgId;
+
+    	final StringBuilder sanitized = new StringBuilder(length).append(msgId, 0, i);
+    	while (i < length) {
+    		final char c = msgId.charAt(i++);
+    		if (isValidChar(c))
+    			sanitized.append(c);
+    		else {
+    			sanitized.append('_');
+    			// A surrogate pair represents one character, so is replaced by one '_'
+    			if (Character.isHighSurrogate(c) && i < length && Character.isLowSurrogate(msgId.charAt(i)))
+    				i++;
+    		}
+    	}
+    	return sanitized.toString();
     }
     
     /**
-     * Contains the regular expression to use for checking on conformance to RFC2822. The regular expression is based
-     * on the ABNF definition of messageId given in the RFC.
+     * Bit masks indicating which of the US-ASCII characters are <i>atext</i> characters as defined in RFC2822. Bit
+     * <i>n</i> of <code>ATEXT_LOW</code> corresponds with character <i>n</i>, bit <i>n</i> of <code>ATEXT_HIGH</code>
+     * with character <i>n + 64</i>.
      */
-    private static final String	RFC2822_MESSAGE_ID;
-    private static final String	VALID_CHARS;    
+    private static final long ATEXT_LOW;
+    private static final long ATEXT_HIGH;
     static {
-        String  ALPHA  = "\\p{Alpha}";
-        String  DIGIT  = "\\d";
-        String  achars = ALPHA + DIGIT + "\\Q" +
-                            "!" + "#" +
-                            "$" + "%" +
-                            "&" + "'" +
-                            "*" + "+" +
-                            "-" + "/" +
-                            "=" + "?" +
-                            "^" + "_" +
-                            "`" + "{" +
-                            "|" + "}" +
-                            "~" + "\\E";
-        String 	atext  = "[" + achars + "]";
-
-        String  dot_atom_text   =   atext + "+" +  "(\\." + atext + "+)*";
+    	long low = 0, high = 0;
+    	for (char c : ("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789"
+    					+ "!#$%&'*+-/=?^_`{|}~").toCharArray())
+    		if (c < 64)
+    			low |= 1L << c;
+    		else
+    			high |= 1L << (c - 64);
+    	ATEXT_LOW = low;
+    	ATEXT_HIGH = high;
+    }
 
-        String  id_left         =   dot_atom_text;
-        String  id_right        =   dot_atom_text;
+    /**
+     * Checks whether the given character is an <i>atext</i> character as defined in RFC2822.
+     *
+     * @param c	the character to check
+     * @return	<code>true</code> if the character is an atext character, <code>false</code> otherwise
+     */
+    private static boolean isAtext(final char c) {
+    	return c < 64 ? (ATEXT_LOW >>> c & 1) != 0 : c < 128 && (ATEXT_HIGH >>> (c - 64) & 1) != 0;
+    }
 
-        RFC2822_MESSAGE_ID = id_left + "@" + id_right;
-        VALID_CHARS = achars + "\\.@";
+    /**
+     * Checks whether the given character is allowed in a message id, i.e. is an <i>atext</i> character, '.' or '@'.
+     *
+     * @param c	the character to check
+     * @return	<code>true</code> if the character is allowed, <code>false</code> otherwise
+     */
+    private static boolean isValidChar(final char c) {
+    	return isAtext(c) || c == '.' || c == '@';
     }
 
     /**
@@ -140,8 +374,11 @@ public class MessageIdUtils {
     public static boolean isAllowed(final String messageId) {
         if (Utils.isNullOrEmpty(messageId))
             return false;
-        else
-            return messageId.matches("[" + VALID_CHARS + "]*");    	
+
+        for (int i = 0; i < messageId.length(); i++)
+        	if (!isValidChar(messageId.charAt(i)))
+        		return false;
+        return true;
     }
     
     /**
@@ -155,8 +392,26 @@ public class MessageIdUtils {
     public static boolean isCorrectFormat(final String messageId) {
         if (Utils.isNullOrEmpty(messageId))
             return false;
-        else
-            return messageId.matches(RFC2822_MESSAGE_ID);
+
+        // Both the left and right part must be a dot-atom-text, i.e. one or more atext characters optionally followed
+        // by more groups of one or more atext characters that are separated by a single '.'
+        boolean inLeftPart = true;
+        boolean atomStart = true;
+        for (int i = 0; i < messageId.length(); i++) {
+        	final char c = messageId.charAt(i);
+        	if (isAtext(c))
+        		atomStart = false;
+        	else if (atomStart)
+        		return false;
+        	else if (c == '.')
+        		atomStart = true;
+        	else if (c == '@' && inLeftPart) {
+        		inLeftPart = false;
+        		atomStart = true;
+        	} else
+        		return false;
+        }
+        return !inLeftPart && !atomStart;
     }
     
     /**
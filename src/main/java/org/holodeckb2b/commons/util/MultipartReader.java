@@ -0,0 +1,478 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Is a streaming reader of MIME multipart content, like the <code>multipart/related</code> messages used for SOAP with
+ * Attachments and MTOM. The parts are read one by one from the underlying stream, without buffering a complete part,
+ * so the content of each part can be processed while it is received. The boundaries between the parts are located
+ * using the Boyer-Moore-Horspool algorithm, which in most cases only needs to inspect a fraction of the bytes.
+ * <p>The root part of a <code>multipart/related</code> message can be retrieved using {@link #getRootPart()}, after
+ * which the other parts can be read on demand using {@link #nextPart()}. The content of a part is only available until
+ * the next part is requested, any unread content of the part is then skipped.
+ * <p>This class is not thread safe.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 1.6.0
+ */
+public class MultipartReader implements Closeable {
+	/**
+	 * The maximum total size of the headers of a part
+	 */
+	private static final int MAX_HEADER_SIZE = 64 * 1024;
+
+	/**
+	 * Is a part of the multipart content.
+	 */
+	public static final class Part {
+		private final Map<String, String>	headers;
+		private final InputStream			content;
+
+		private Part(final Map<String, String> headers, final InputStream content) {
+			this.headers = Collections.unmodifiableMap(headers);
+			this.content = content;
+		}
+
+		/**
+		 * @return	the headers of the part, with the lower case header names as key
+		 */
+		public Map<String, String> getHeaders() {
+			return headers;
+		}
+
+		/**
+		 * Gets the value of the given header.
+		 *
+		 * @param name	the name of the header, case insensitive
+		 * @return	the value of the header, or <code>null</code> if the part does not have the header
+		 */
+		public String getHeader(final String name) {
+			return headers.get(name.toLowerCase(Locale.ROOT));
+		}
+
+		/**
+		 * @return	the value of the <i>Content-Type</i> header of the part, or <code>null</code> if not specified
+		 */
+		public String getContentType() {
+			return getHeader("Content-Type");
+		}
+
+		/**
+		 * @return	the value of the <i>Content-ID</i> header of the part, or <code>null</code> if not specified
+		 */
+		public String getContentId() {
+			return getHeader("Content-ID");
+		}
+
+		/**
+		 * Gets the stream to read the content of the part. The stream ends at the boundary following the part and
+		 * becomes invalid when the next part is requested. Closing the stream does not close the underlying stream.
+		 *
+		 * @return	the content of the part
+		 */
+		public InputStream getContent() {
+			return content;
+		}
+	}
+
+	// The stream containing the multipart content
+	private final InputStream	in;
+	// The delimiter of the parts, i.e. CRLF followed by "--" and the boundary
+	private final byte[]		delimiter;
+	// The Boyer-Moore-Horspool shift table for the delimiter
+	private final int[]			shift = new int[256];
+	// The Content-ID of the root part as specified by the "start" parameter, null if not specified
+	private final String		start;
+
+	// The buffer with the bytes read from the stream
+	private final byte[]		buffer;
+	// The position of the next byte to process and the end of the valid bytes in the buffer
+	private int					pos;
+	private int					limit;
+	// Position before which no delimiter starts in the buffer, i.e. positions already searched
+	private int					searched;
+	// Position of the delimiter that ends the current part, -1 if not found yet
+	private int					delimiterAt = -1;
+	// Indicates whether the end of the underlying stream has been reached
+	private boolean				eof;
+
+	// The part being read, null if no part has been read yet
+	private PartInputStream		current;
+	// Indicates whether the closing delimiter has been read
+	private boolean				closed;
+
+	/**
+	 * Creates a new reader for the given stream using the boundary and start parameter of the given content type.
+	 *
+	 * @param is			the stream containing the multipart content
+	 * @param contentType	the value of the Content-Type header of the multipart content, e.g.
+	 * 						<code>multipart/related; boundary="MIMEBoundary"; type="application/soap+xml"</code>
+	 * @return	the reader
+	 * @throws IllegalArgumentException	when the content type is not multipart or has no boundary parameter
+	 */
+	public static MultipartReader fromContentType(final InputStream is, final String contentType) {
+		if (contentType == null || !contentType.trim().toLowerCase(Locale.ROOT).startsWith("multipart/"))
+			throw new IllegalArgumentException("Not a multipart content type");
+		final String boundary = getParameter(contentType, "boundary");
+		if (Utils.isNullOrEmpty(boundary))
+			throw new IllegalArgumentException("No boundary specified in content type");
+		return new MultipartReader(is, boundary, getParameter(contentType, "start"));
+	}
+
+	/**
+	 * Creates a new reader for the given stream using the given boundary. The root part is the first part.
+	 *
+	 * @param is		the stream containing the multipart content
+	 * @param boundary	the boundary separating the parts
+	 */
+	public MultipartReader(final InputStream is, final String boundary) {
+		this(is, boundary, null);
+	}
+
+	/**
+	 * Creates a new reader for the given stream using the given boundary and Content-ID of the root part.
+	 *
+	 * @param is		the stream containing the multipart content
+	 * @param boundary	the boundary separating the parts
+	 * @param start		the Content-ID of the root part, <code>null</code> if the root part is the first part
+	 */
+	public MultipartReader(final InputStream is, final String boundary, final String start) {
+		if (is == null)
+			throw new IllegalArgumentException("Input stream must be specified");
+		if (Utils.isNullOrEmpty(boundary) || boundary.length() > 70)
+			throw new IllegalArgumentException("Invalid boundary");
+		this.in = is;
+		this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+		final int last = delimiter.length - 1;
+		for (int i = 0; i < shift.length; i++)
+			shift[i] = delimiter.length;
+		for (int i = 0; i < last; i++)
+			shift[delimiter[i] & 0xff] = last - i;
+		this.start = Utils.isNullOrEmpty(start) ? null : MessageIdUtils.stripBrackets(start.trim());
+		this.buffer = new byte[Math.max(8192, 4 * delimiter.length)];
+		// The first delimiter may directly start the content, so act as if the content is preceded by a line break
+		buffer[0] = '\r';
+		buffer[1] = '\n';
+		limit = 2;
+	}
+
+	/**
+	 * Gets the root part of the multipart content. This is the part whose Content-ID is specified by the start
+	 * parameter of the content type or, if no start parameter was specified, the first part. The parts preceding the
+	 * root part are skipped.
+	 *
+	 * @return	the root part, or <code>null</code> if there is no such part
+	 * @throws IOException	when an error occurs reading the underlying stream or the content is not valid multipart
+	 * @throws IllegalStateException when parts have already been read
+	 */
+	public Part getRootPart() throws IOException {
+		if (current != null)
+			throw new IllegalStateException("Parts have already been read");
+		Part part = nextPart();
+		if (start != null)
+			while (part != null && !start.equals(part.getContentId() == null ? null
+												: MessageIdUtils.stripBrackets(part.getContentId().trim())))
+				part = nextPart();
+		return part;
+	}
+
+	/**
+	 * Gets the next part of the multipart content. The unread content of the current part is skipped.
+	 *
+	 * @return	the next part, or <code>null</code> if there are no more parts
+	 * @throws IOException	when an error occurs reading the underlying stream or the content is not valid multipart
+	 */
+	public Part nextPart() throws IOException {
+		if (current == null)
+			// Skip the preamble
+			current = new PartInputStream();
+		current.skipRemaining();
+		if (closed)
+			return null;
+		final Map<String, String> headers = readHeaders();
+		current = new PartInputStream();
+		return new Part(headers, current);
+	}
+
+	/**
+	 * Closes the underlying stream.
+	 *
+	 * @throws IOException	when the underlying stream cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Gets the value of a parameter from a header value, like the boundary from a Content-Type header.
+	 *
+	 * @param headerValue	the value of the header
+	 * @param name			the name of the parameter, case insensitive
+	 * @return	the value of the parameter without quotes, or <code>null</code> if the header does not contain the
+	 * 			parameter
+	 */
+	static String getParameter(final String headerValue, final String name) {
+		int i = headerValue.indexOf(';');
+		while (i >= 0 && i < headerValue.length()) {
+			final int eq = headerValue.indexOf('=', i);
+			if (eq < 0)
+				return null;
+			final String pName = headerValue.substring(i + 1, eq).trim();
+			int s = eq + 1;
+			while (s < headerValue.length() && headerValue.charAt(s) == ' ')
+				s++;
+			String value;
+			if (s < headerValue.length() && headerValue.charAt(s) == '"') {
+				final StringBuilder v = new StringBuilder();
+				for (s++; s < headerValue.length() && headerValue.charAt(s) != '"'; s++) {
+					if (headerValue.charAt(s) == '\\' && s + 1 < headerValue.length())
+						s++;
+					v.append(headerValue.charAt(s));
+				}
+				value = v.toString();
+				i = headerValue.indexOf(';', s);
+			} else {
+				final int semicolon = headerValue.indexOf(';', s);
+				value = headerValue.substring(s, semicolon < 0 ? headerValue.length() : semicolon).trim();
+				i = semicolon;
+			}
+			if (pName.equalsIgnoreCase(name))
+				return value;
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the headers of the part following the delimiter that was just read.
+	 *
+	 * @return	the headers of the part, with the lower case header names as key
+	 * @throws IOException	when an error occurs reading the underlying stream or the headers are not valid
+	 */
+	private Map<String, String> readHeaders() throws IOException {
+		final Map<String, String> headers = new LinkedHashMap<>();
+		final StringBuilder header = new StringBuilder();
+		int size = 0;
+		String line;
+		while (!(line = readLine()).isEmpty()) {
+			size += line.length();
+			if (size > MAX_HEADER_SIZE)
+				throw new IOException("Part headers exceed maximum size");
+			if (line.charAt(0) == ' ' || line.charAt(0) == '\t')
+				// Continuation of the previous header
+				header.append(line);
+			else {
+				addHeader(headers, header);
+				header.setLength(0);
+				header.append(line);
+			}
+		}
+		addHeader(headers, header);
+		return headers;
+	}
+
+	private static void addHeader(final Map<String, String> headers, final StringBuilder header) {
+		final int colon = header.indexOf(":");
+		if (colon > 0)
+			headers.put(header.substring(0, colon).trim().toLowerCase(Locale.ROOT), header.substring(colon + 1).trim());
+	}
+
+	/**
+	 * Reads a line terminated by CRLF.
+	 *
+	 * @return	the line without the line terminator
+	 * @throws IOException	when an error occurs reading the underlying stream or the line is too long
+	 */
+	private String readLine() throws IOException {
+		int lf;
+		while (true) {
+			lf = -1;
+			for (int i = pos; i < limit && lf < 0; i++)
+				if (buffer[i] == '\n')
+					lf = i;
+			if (lf >= 0)
+				break;
+			if (limit - pos == buffer.length)
+				throw new IOException("Header line too long");
+			if (!fill())
+				throw new IOException("Unexpected end of multipart content");
+		}
+		final int end = lf > pos && buffer[lf - 1] == '\r' ? lf - 1 : lf;
+		final String line = new String(buffer, pos, end - pos, StandardCharsets.ISO_8859_1);
+		pos = lf + 1;
+		return line;
+	}
+
+	/**
+	 * Reads more bytes from the underlying stream into the buffer, moving the unprocessed bytes to the start of the
+	 * buffer when needed.
+	 *
+	 * @return	<code>true</code> if bytes were read, <code>false</code> if the end of the stream was reached
+	 * @throws IOException	when an error occurs reading the underlying stream
+	 */
+	private boolean fill() throws IOException {
+		if (eof)
+			return false;
+		if (pos > 0 && (limit == buffer.length || pos > buffer.length / 2)) {
+			System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+			limit -= pos;
+			searched = Math.max(0, searched - pos);
+			if (delimiterAt >= 0)
+				delimiterAt -= pos;
+			pos = 0;
+		}
+		final int read = in.read(buffer, limit, buffer.length - limit);
+		if (read < 0) {
+			eof = true;
+			return false;
+		}
+		limit += read;
+		return true;
+	}
+
+	/**
+	 * Searches the buffer for the delimiter using the Boyer-Moore-Horspool algorithm.
+	 *
+	 * @return	the position of the delimiter in the buffer, or -1 if the buffer does not contain the delimiter
+	 */
+	private int findDelimiter() {
+		if (delimiterAt >= 0)
+			return delimiterAt;
+		final int last = delimiter.length - 1;
+		int i = Math.max(pos, searched);
+		while (i + last < limit) {
+			int j = last;
+			while (buffer[i + j] == delimiter[j]) {
+				if (j-- == 0)
+					return delimiterAt = i;
+			}
+			i += shift[buffer[i + last] & 0xff];
+		}
+		searched = i;
+		return -1;
+	}
+
+	/**
+	 * Processes the remainder of the boundary line after a delimiter, which either indicates the end of the multipart
+	 * content or is followed by the headers of the next part.
+	 *
+	 * @throws IOException	when an error occurs reading the underlying stream
+	 */
+	private void readBoundaryLine() throws IOException {
+		pos = delimiterAt + delimiter.length;
+		delimiterAt = -1;
+		searched = pos;
+		while (limit - pos < 2 && fill())
+			;
+		if (limit - pos >= 2 && buffer[pos] == '-' && buffer[pos + 1] == '-') {
+			// Closing delimiter, the epilogue is ignored
+			closed = true;
+			pos = limit;
+		} else
+			// Skip transport padding
+			readLine();
+	}
+
+	/**
+	 * Is the stream that reads the content of a part, up to the next delimiter.
+	 */
+	private final class PartInputStream extends InputStream {
+		// Indicates whether the delimiter ending the part has been read
+		private boolean ended;
+		// Buffer for reading a single byte
+		private final byte[] single = new byte[1];
+
+		@Override
+		public int read() throws IOException {
+			return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (ended || current != this)
+				return -1;
+			if (len == 0)
+				return 0;
+			while (true) {
+				final int d = findDelimiter();
+				final int available = d >= 0 ? d - pos : limit - pos - (delimiter.length - 1);
+				if (available > 0) {
+					final int n = Math.min(len, available);
+					System.arraycopy(buffer, pos, b, off, n);
+					pos += n;
+					return n;
+				} else if (d >= 0) {
+					ended = true;
+					readBoundaryLine();
+					return -1;
+				} else if (!fill())
+					throw new IOException("Unexpected end of multipart content");
+			}
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			long skipped = 0;
+			while (skipped < n && !ended && current == this) {
+				final int d = findDelimiter();
+				final int available = d >= 0 ? d - pos : limit - pos - (delimiter.length - 1);
+				if (available > 0) {
+					final int s = (int) Math.min(n - skipped, available);
+					pos += s;
+					skipped += s;
+				} else if (d >= 0) {
+					ended = true;
+					readBoundaryLine();
+				} else if (!fill())
+					throw new IOException("Unexpected end of multipart content");
+			}
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			if (ended || current != this)
+				return 0;
+			final int d = delimiterAt;
+			return Math.max(0, d >= 0 ? d - pos : limit - pos - (delimiter.length - 1));
+		}
+
+		/**
+		 * Skips the unread content of the part, including the delimiter that ends it.
+		 *
+		 * @throws IOException	when an error occurs reading the underlying stream
+		 */
+		void skipRemaining() throws IOException {
+			while (!ended)
+				skip(Long.MAX_VALUE);
+		}
+
+		@Override
+		public void close() {
+			// The underlying stream is closed by the reader
+		}
+	}
+}
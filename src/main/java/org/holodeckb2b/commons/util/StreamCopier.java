@@ -0,0 +1,439 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.util;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Copies the content of an input stream or channel to an output stream or channel. Next to the plain copy operation
+ * as provided by {@link Utils#copyStream(InputStream, OutputStream)}, which uses the default configuration of this
+ * class, a copier can be configured to:<ul>
+ * <li>limit the number of bytes that may be copied,</li>
+ * <li>use a specific buffer size,</li>
+ * <li>report the progress of the copy operation to a {@link IProgressListener} every <i>N</i> bytes,</li>
+ * <li>report the number of bytes copied and time taken by each copy operation to a {@link IMetricsSink}.</li></ul>
+ * <p>When both the source and destination are plain file streams, or when one of the channels is a {@link
+ * FileChannel}, the content is transferred directly between the channels, allowing the operating system to copy the
+ * data without moving it through the JVM. Otherwise the content is copied using a buffer that is reused for
+ * subsequent copy operations on the same thread.
+ * <p>A copier is immutable and can be used concurrently by multiple threads. New instances are created using the
+ * {@link Builder}, for example:
+ * <pre>
+ * StreamCopier copier = StreamCopier.builder().maxBytes(10 * 1024 * 1024)
+ * 											  .progressListener(l, 1024 * 1024)
+ * 											  .build();
+ * </pre>
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 1.6.0
+ */
+public class StreamCopier {
+	/**
+	 * The default size of the buffer used for copying
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The copier using the default configuration, i.e. without limits, listener and metrics
+	 */
+	private static final StreamCopier DEFAULT = new Builder().build();
+
+	/**
+	 * The largest buffer that will be cached for reuse by a thread
+	 */
+	private static final int MAX_CACHED_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * Per thread cache of the buffer used for copying
+	 */
+	private static final ThreadLocal<byte[]> COPY_BUFFER = new ThreadLocal<>();
+
+	/**
+	 * Is the call back interface for getting informed about the progress of a copy operation.
+	 */
+	@FunctionalInterface
+	public interface IProgressListener {
+		/**
+		 * Is called every time the configured number of bytes has been copied.
+		 *
+		 * @param copied	the total number of bytes copied so far
+		 */
+		void bytesCopied(long copied);
+	}
+
+	/**
+	 * Is the call back interface for collecting metrics on the executed copy operations. See {@link
+	 * StreamCopyStatistics} for an implementation that calculates the throughput and latency distribution.
+	 */
+	@FunctionalInterface
+	public interface IMetricsSink {
+		/**
+		 * Is called when a copy operation has completed successfully.
+		 *
+		 * @param bytes			the number of bytes copied
+		 * @param durationNanos	the duration of the copy operation in nanoseconds
+		 */
+		void copyCompleted(long bytes, long durationNanos);
+	}
+
+	/**
+	 * Indicates that the source contained more bytes than the configured maximum. Note that when this exception is
+	 * thrown the destination may already contain part of the content.
+	 */
+	@SuppressWarnings("serial")
+	public static class MaxBytesExceededException extends IOException {
+		private final long	maxBytes;
+
+		MaxBytesExceededException(final long maxBytes) {
+			super("Source contains more than the maximum of " + maxBytes + " bytes");
+			this.maxBytes = maxBytes;
+		}
+
+		/**
+		 * @return the maximum number of bytes that was allowed to be copied
+		 */
+		public long getMaxBytes() {
+			return maxBytes;
+		}
+	}
+
+	/**
+	 * Builder for creating a new {@link StreamCopier} instance.
+	 */
+	public static class Builder {
+		private long				maxBytes = -1;
+		private int					bufferSize = DEFAULT_BUFFER_SIZE;
+		private IProgressListener	progressListener;
+		private long				progressInterval;
+		private IMetricsSink		metricsSink;
+
+		/**
+		 * Sets the maximum number of bytes that may be copied. When the source contains more bytes the copy operation
+		 * is aborted with a {@link MaxBytesExceededException}.
+		 *
+		 * @param maxBytes	maximum number of bytes to copy, -1 indicates no limit
+		 * @return	this builder
+		 */
+		public Builder maxBytes(final long maxBytes) {
+			if (maxBytes < -1)
+				throw new IllegalArgumentException("Maximum must be positive or -1");
+			this.maxBytes = maxBytes;
+			return this;
+		}
+
+		/**
+		 * Sets the size of the buffer to use when the content cannot be transferred directly between channels.
+		 *
+		 * @param bufferSize	size of the buffer in bytes
+		 * @return	this builder
+		 */
+		public Builder bufferSize(final int bufferSize) {
+			if (bufferSize <= 0)
+				throw new IllegalArgumentException("Buffer size must be positive");
+			this.bufferSize = bufferSize;
+			return this;
+		}
+
+		/**
+		 * Sets the listener that should be informed about the progress of the copy operation.
+		 *
+		 * @param listener	the progress listener
+		 * @param interval	number of bytes after which the listener should be called
+		 * @return	this builder
+		 */
+		public Builder progressListener(final IProgressListener listener, final long interval) {
+			if (listener != null && interval <= 0)
+				throw new IllegalArgumentException("Interval must be positive");
+			this.progressListener = listener;
+			this.progressInterval = interval;
+			return this;
+		}
+
+		/**
+		 * Sets the sink to which the metrics of completed copy operations should be reported.
+		 *
+		 * @param sink	the metrics sink
+		 * @return	this builder
+		 */
+		public Builder metricsSink(final IMetricsSink sink) {
+			this.metricsSink = sink;
+			return this;
+		}
+
+		/**
+		 * @return a new {@link StreamCopier} using the configuration of this builder
+		 */
+		public StreamCopier build() {
+			return new StreamCopier(this);
+		}
+	}
+
+	/**
+	 * @return a new builder for configuring a {@link StreamCopier}
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return the copier that uses the default configuration, i.e. without limit, progress listener and metrics
+	 */
+	public static StreamCopier getDefault() {
+		return DEFAULT;
+	}
+
+	private final long				maxBytes;
+	private final int				bufferSize;
+	private final IProgressListener	progressListener;
+	private final long				progressInterval;
+	private final IMetricsSink		metricsSink;
+
+	private StreamCopier(final Builder b) {
+		this.maxBytes = b.maxBytes;
+		this.bufferSize = b.bufferSize;
+		this.progressListener = b.progressListener;
+		this.progressInterval = b.progressInterval;
+		this.metricsSink = b.metricsSink;
+	}
+
+	/**
+	 * Copies the content of an input stream to an output stream and returns the numbers of bytes copied.
+	 * <p>Note that this method will copy all content <b>remaining</b> on the source stream and <b>append</b> it to
+	 * what is already written to the destination stream. Neither the input nor the output stream will be closed by
+	 * this method.
+	 *
+	 * @param src	source stream
+	 * @param dst	destination stream
+	 * @return	the number of bytes copied from the source to the destination stream
+	 * @throws MaxBytesExceededException when the source contains more bytes than the configured maximum
+	 * @throws IOException	when an error occurs reading from the source or writing to the destination stream
+	 */
+	public long copy(final InputStream src, final OutputStream dst) throws IOException {
+		final long start = System.nanoTime();
+		final Progress progress = new Progress();
+		// Only use the channels of "real" file streams as sub classes may alter the content read or written
+		if (src.getClass() == FileInputStream.class && dst.getClass() == FileOutputStream.class)
+			transferTo(((FileInputStream) src).getChannel(), ((FileOutputStream) dst).getChannel(), progress);
+
+		// Copy whatever is left, which is all content if the channels could not be used
+		final byte[] buffer = borrowBuffer();
+		try {
+			int r;
+			while ((r = src.read(buffer, 0, readLength(progress.copied))) >= 0) {
+				checkLimit(progress.copied + r);
+				dst.write(buffer, 0, r);
+				progress.add(r);
+			}
+		} finally {
+			releaseBuffer(buffer);
+		}
+		dst.flush();
+
+		return completed(progress.copied, start);
+	}
+
+	/**
+	 * Copies the content of a readable channel to a writable channel and returns the numbers of bytes copied.
+	 * <p>Like {@link #copy(InputStream, OutputStream)} this method will copy all content <b>remaining</b> on the
+	 * source channel and write it at the current position of the destination channel. Neither channel will be closed
+	 * by this method. Both channels are expected to be in blocking mode.
+	 *
+	 * @param src	source channel
+	 * @param dst	destination channel
+	 * @return	the number of bytes copied from the source to the destination channel
+	 * @throws MaxBytesExceededException when the source contains more bytes than the configured maximum
+	 * @throws IOException	when an error occurs reading from the source or writing to the destination channel
+	 */
+	public long copy(final ReadableByteChannel src, final WritableByteChannel dst) throws IOException {
+		final long start = System.nanoTime();
+		final Progress progress = new Progress();
+		if (src instanceof FileChannel)
+			transferTo((FileChannel) src, dst, progress);
+		else if (dst instanceof FileChannel && transferFrom(src, (FileChannel) dst, progress))
+			return completed(progress.copied, start);
+
+		final byte[] buffer = borrowBuffer();
+		try {
+			final ByteBuffer bb = ByteBuffer.wrap(buffer, 0, readLength(progress.copied));
+			while (src.read(bb) >= 0) {
+				// Call the Buffer methods, not their ByteBuffer overrides added in Java 9, to keep running on Java 8
+				((Buffer) bb).flip();
+				checkLimit(progress.copied + bb.remaining());
+				while (bb.hasRemaining())
+					progress.add(dst.write(bb));
+				((Buffer) bb).clear().limit(readLength(progress.copied));
+			}
+		} finally {
+			releaseBuffer(buffer);
+		}
+
+		return completed(progress.copied, start);
+	}
+
+	/**
+	 * Keeps track of the number of bytes copied and informs the progress listener when the next interval is reached.
+	 */
+	private class Progress {
+		long copied = 0;
+		long nextReport = progressInterval;
+
+		void add(final long n) {
+			copied += n;
+			if (progressListener != null && copied >= nextReport) {
+				progressListener.bytesCopied(copied);
+				nextReport = (copied / progressInterval + 1) * progressInterval;
+			}
+		}
+	}
+
+	/**
+	 * Calculates how many bytes should be read into the buffer. When a maximum is set no more than one byte above the
+	 * limit is read, which is enough to detect the limit is exceeded.
+	 *
+	 * @param copied	number of bytes copied so far
+	 * @return	number of bytes to read
+	 */
+	private int readLength(final long copied) {
+		return maxBytes < 0 ? bufferSize : (int) Math.min(bufferSize, maxBytes - copied + 1);
+	}
+
+	/**
+	 * Checks whether copying the given number of bytes stays within the configured maximum.
+	 *
+	 * @param total		the total number of bytes that would have been copied
+	 * @throws MaxBytesExceededException when the total exceeds the maximum
+	 */
+	private void checkLimit(final long total) throws MaxBytesExceededException {
+		if (maxBytes >= 0 && total > maxBytes)
+			throw new MaxBytesExceededException(maxBytes);
+	}
+
+	/**
+	 * Reports the completed copy operation to the metrics sink, if configured.
+	 *
+	 * @param copied	number of bytes copied
+	 * @param start		start time of the copy operation as given by {@link System#nanoTime()}
+	 * @return	the number of bytes copied
+	 */
+	private long completed(final long copied, final long start) {
+		if (metricsSink != null)
+			metricsSink.copyCompleted(copied, System.nanoTime() - start);
+		return copied;
+	}
+
+	/**
+	 * Gets a buffer of the configured size, using the buffer cached by the current thread when it is large enough.
+	 * The buffer is removed from the cache while in use so a nested copy operation on the same thread, for example
+	 * from within the <code>read</code> method of a stream, will not overwrite its content.
+	 *
+	 * @return the buffer to use for copying
+	 */
+	private byte[] borrowBuffer() {
+		final byte[] buffer = COPY_BUFFER.get();
+		if (buffer == null || buffer.length < bufferSize)
+			return new byte[bufferSize];
+		COPY_BUFFER.set(null);
+		return buffer;
+	}
+
+	/**
+	 * Returns the buffer to the cache of the current thread so it can be reused by the next copy operation.
+	 *
+	 * @param buffer	the buffer to return
+	 */
+	private static void releaseBuffer(final byte[] buffer) {
+		final byte[] cached = COPY_BUFFER.get();
+		if (buffer.length <= MAX_CACHED_BUFFER_SIZE && (cached == null || cached.length < buffer.length))
+			COPY_BUFFER.set(buffer);
+	}
+
+	/**
+	 * Transfers the remaining content of the given file channel to the destination channel and moves the position of
+	 * the file channel to the end of the copied content. Note that the size of the file is determined at the start of
+	 * the transfer, so if the channel is not connected to a regular file it may not have copied all content. When the
+	 * channel is not seekable, for example because it is connected to a pipe, or reports no content, nothing is
+	 * transferred and the content must be copied by reading the channel.
+	 *
+	 * @param src		source file channel
+	 * @param dst		destination channel
+	 * @param progress	progress of the copy operation
+	 * @throws IOException	when an error occurs reading from the source or writing to the destination channel
+	 */
+	private void transferTo(final FileChannel src, final WritableByteChannel dst, final Progress progress)
+																								throws IOException {
+		final long start, size;
+		try {
+			start = src.position();
+			size = src.size();
+		} catch (IOException notSeekable) {
+			return;
+		}
+		if (size == 0)
+			return;
+		// Fail fast when it is already known that the content is too large
+		checkLimit(size - start);
+		final long chunk = progressListener != null ? progressInterval : Long.MAX_VALUE;
+		while (start + progress.copied < size) {
+			final long n = src.transferTo(start + progress.copied,
+										  Math.min(chunk, size - start - progress.copied), dst);
+			if (n <= 0)
+				break;
+			progress.add(n);
+		}
+		src.position(start + progress.copied);
+	}
+
+	/**
+	 * Transfers all content from the source channel to the current position of the given file channel and moves the
+	 * position of the file channel to the end of the copied content. When the file channel is not seekable, for
+	 * example because it is connected to a pipe, nothing is transferred.
+	 *
+	 * @param src		source channel
+	 * @param dst		destination file channel
+	 * @param progress	progress of the copy operation
+	 * @return	<code>true</code> if the content was transferred, <code>false</code> if the file channel is not seekable
+	 * @throws IOException	when an error occurs reading from the source or writing to the destination channel
+	 */
+	private boolean transferFrom(final ReadableByteChannel src, final FileChannel dst, final Progress progress)
+																								throws IOException {
+		final long start;
+		try {
+			start = dst.position();
+		} catch (IOException notSeekable) {
+			return false;
+		}
+		long n;
+		try {
+			while ((n = dst.transferFrom(src, start + progress.copied, readLength(progress.copied))) > 0) {
+				checkLimit(progress.copied + n);
+				progress.add(n);
+			}
+		} finally {
+			dst.position(start + progress.copied);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Is a {@link StreamCopier.IMetricsSink} that collects statistics on the copy operations executed by one or more
+ * {@link StreamCopier}s. It keeps track of the number of copy operations, the total number of bytes copied and the
+ * time spent, from which the average throughput is calculated, and registers the latency of each copy operation in a
+ * histogram.
+ * <p>The histogram uses buckets with exponentially increasing upper bounds, starting at 1 microsecond and doubling for
+ * each next bucket, i.e. bucket <i>i</i> counts the operations that took less than 2<sup>i</sup> microseconds. The
+ * last bucket also counts all operations that took longer.
+ * <p>This class is thread safe, so a single instance can be shared by copiers used concurrently.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 1.6.0
+ */
+public class StreamCopyStatistics implements StreamCopier.IMetricsSink {
+	/**
+	 * Number of buckets in the latency histogram, the last bucket starts at about 18 minutes
+	 */
+	public static final int HISTOGRAM_BUCKETS = 32;
+
+	private final LongAdder			copies = new LongAdder();
+	private final LongAdder			bytes = new LongAdder();
+	private final LongAdder			nanos = new LongAdder();
+	private final AtomicLongArray	latencies = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+	@Override
+	public void copyCompleted(final long copied, final long durationNanos) {
+		copies.increment();
+		bytes.add(copied);
+		nanos.add(durationNanos);
+		final long micros = durationNanos / 1000;
+		latencies.incrementAndGet(Math.min(HISTOGRAM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+	}
+
+	/**
+	 * @return the number of completed copy operations
+	 */
+	public long getCopyCount() {
+		return copies.sum();
+	}
+
+	/**
+	 * @return the total number of bytes copied
+	 */
+	public long getTotalBytes() {
+		return bytes.sum();
+	}
+
+	/**
+	 * @return the total time spent copying in nanoseconds
+	 */
+	public long getTotalTimeNanos() {
+		return nanos.sum();
+	}
+
+	/**
+	 * Gets the average throughput of the copy operations, calculated as the total number of bytes copied divided by the
+	 * total time spent copying.
+	 *
+	 * @return the throughput in bytes per second, 0 if no copy operation has completed yet
+	 */
+	public double getThroughput() {
+		final long t = nanos.sum();
+		return t > 0 ? bytes.sum() * 1_000_000_000d / t : 0;
+	}
+
+	/**
+	 * Gets a snapshot of the latency histogram.
+	 *
+	 * @return	array with the number of copy operations per bucket
+	 * @see #getBucketUpperBound(int)
+	 */
+	public long[] getLatencyHistogram() {
+		final long[] h = new long[HISTOGRAM_BUCKETS];
+		for (int i = 0; i < HISTOGRAM_BUCKETS; i++)
+			h[i] = latencies.get(i);
+		return h;
+	}
+
+	/**
+	 * Gets the exclusive upper bound of the given histogram bucket.
+	 *
+	 * @param bucket	index of the bucket
+	 * @return	the upper bound of the bucket in microseconds, {@link Long#MAX_VALUE} for the last bucket
+	 */
+	public static long getBucketUpperBound(final int bucket) {
+		if (bucket < 0 || bucket >= HISTOGRAM_BUCKETS)
+			throw new IllegalArgumentException("Invalid bucket index");
+		return bucket < HISTOGRAM_BUCKETS - 1 ? 1L << bucket : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Resets all statistics.
+	 */
+	public void reset() {
+		copies.reset();
+		bytes.reset();
+		nanos.reset();
+		for (int i = 0; i < HISTOGRAM_BUCKETS; i++)
+			latencies.set(i, 0);
+	}
+}
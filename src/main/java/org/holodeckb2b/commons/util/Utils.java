@@ -21,14 +21,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
@@ -38,7 +38,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ServiceLoader;
-import java.util.TimeZone;
 
 /**
  * A container for some generic helper methods not related to a specific topic.
@@ -47,8 +46,6 @@ import java.util.TimeZone;
  */
 public final class Utils {
 
-	private static final String XML_DATETIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSXX";
-
 	/**
      * Transform a {@link Date} into a {@link String} formatted according to the specification of the <code>dateTime
      * </code> datatype of XML schema and using the UTC time zone.<br>
@@ -61,9 +58,8 @@ public final class Utils {
     public static String toXMLDateTime(final Date date) {
         if (date == null)
             return null;
-		SimpleDateFormat xmlDateFormatter = new SimpleDateFormat(XML_DATETIME_FORMAT);
-		xmlDateFormatter.setTimeZone(TimeZone.getTimeZone("UTC"));
-		return xmlDateFormatter.format(date);
+        // Use getTime() instead of toInstant() as the latter is not supported by java.sql.Date
+		return XMLDateTimeUtils.format(date.getTime());
     }
 
 	/**
@@ -78,8 +74,7 @@ public final class Utils {
     public static String toXMLDateTime(final LocalDateTime timestamp) {
     	if (timestamp == null)
     		return null;
-    	DateTimeFormatter xmlDateFormatter = DateTimeFormatter.ofPattern(XML_DATETIME_FORMAT);
-    	return timestamp.atZone(ZoneOffset.UTC).format(xmlDateFormatter);
+    	return XMLDateTimeUtils.format(timestamp.atZone(ZoneOffset.UTC));
     }
 
     /**
@@ -87,6 +82,7 @@ public final class Utils {
      * of the XML Specification</a>) and when a valid date is found return a {@link ZonedDateTime} object representing
      * the same time stamp. NOTE: When the given XML date time does not include a time zone the returned date time will
      * be in the system's default time zone.
+     * <p>See {@link XMLDateTimeUtils} for details on the supported formats.
      *
      * @param   xmlDateTimeString   string that should contain the <code>xs:dateTime</code> formatted date
      * @return  A {@link Date} object for the parsed date or,<br>
@@ -94,15 +90,8 @@ public final class Utils {
      * @throws  ParseException on date time parsing error
      */
     public static ZonedDateTime parseDateTimeFromXML(final String xmlDateTimeString) throws ParseException {
-    	final String[] formatAndC14NValue = getFormatAndC14N(xmlDateTimeString);
-    	if (formatAndC14NValue == null)
-    		return null;
-    	else if (formatAndC14NValue[0].endsWith("Z"))
-    		return ZonedDateTime.parse(formatAndC14NValue[1], DateTimeFormatter.ofPattern(formatAndC14NValue[0]));
-    	else
-    		return ZonedDateTime.of(LocalDateTime.parse(formatAndC14NValue[1],
-    													DateTimeFormatter.ofPattern(formatAndC14NValue[0])),
-    								ZoneId.systemDefault());
+    	return Utils.isNullOrEmpty(xmlDateTimeString) ? null
+    												 : XMLDateTimeUtils.parseZonedDateTime(xmlDateTimeString);
     }
 
     /**
@@ -116,65 +105,8 @@ public final class Utils {
      * @throws  ParseException on date time parsing error
      */
     public static Date fromXMLDateTime(final String xmlDateTimeString) throws ParseException {
-    	final String[] formatAndC14NValue = getFormatAndC14N(xmlDateTimeString);
-    	return formatAndC14NValue != null ? new SimpleDateFormat(formatAndC14NValue[0]).parse(formatAndC14NValue[1])
-    									  : null;
-    }
-
-    /**
-     * Helper method to determine the format of given XML date time string and how it should be parsed. The string is
-     * reformatted so it can be correctly parsed.
-     *
-     * @param xmlDateTimeString	string containing the XML date time
-     * @return	a String array with two elements; first the pattern to parse the date time and second the reformated
-     * 			XML date time
-     */
-    private static String[] getFormatAndC14N(final String xmlDateTimeString) {
-    	if (Utils.isNullOrEmpty(xmlDateTimeString))
-    		return null;
-
-    	String s = xmlDateTimeString;
-        String f = null;
-
-        // If there is no text, there is no date
-        if (s == null || s.isEmpty())
-            return null;
-
-        // Check whether UTC is specified as timezone using "Z" and replace with "+00:00" if yes
-        if (s.indexOf("Z") > 0)
-            s = s.replace("Z", "+00:00");
-
-        // Check if value contains fractional seconds
-        int i = s.indexOf(".");
-        if (i > 0) {
-            // Contains fractional seconds, limit to milliseconds (3 digits)
-            // Get start of timezone which is indicated by either "+" or "-"
-            // Because "-" also occurs in the date part, only start looking for it from start of the time part
-            int z = Math.max(s.indexOf("+"), s.indexOf("-", s.indexOf("T")));
-            z = (z == -1 ? s.length() : z); // It's possible that no timezone was included, then fractional seconds are last part of string
-            // Limit the number of digits to extract to 3 but use less if no more available
-            final int S = Math.min(z-i-1, 3);
-            s = s.substring(0, i + S + 1) + s.substring(z);
-            // Remove ':' from timezone (if there is a timezone)
-            i = s.indexOf(":", i + S + 1);
-            f = "yyyy-MM-dd'T'HH:mm:ss." + "SSS".substring(0, S);
-            if (i > 0) {
-                s = s.substring(0, i) + s.substring(i + 1);
-                f = f + "Z";
-            }
-        } else {
-            // No fractional seconds, just remove the ':' from the timezone indication (when it is there)
-            if (s.length() > 22 ) {
-                s = s.substring(0, 22) + s.substring(23);
-                // Set format
-                f = "yyyy-MM-dd'T'HH:mm:ssZ";
-            } else {
-                // Only set format
-                f = "yyyy-MM-dd'T'HH:mm:ss";
-            }
-        }
-
-        return new String[] { f , s };
+    	return Utils.isNullOrEmpty(xmlDateTimeString) ? null
+    												 : new Date(XMLDateTimeUtils.parseEpochMillis(xmlDateTimeString));
     }
 
     /**
@@ -510,6 +442,8 @@ public final class Utils {
      * <p>Note that this method will copy all content <b>remaining</b> on the source stream and <b>append</b> it to the
      * what is already written to the destination stream. Neither the input nor the output stream will be close by this
      * method.
+     * <p>This method uses the default configuration of the {@link StreamCopier}. Use a specifically configured copier
+     * when the number of bytes to copy should be limited or the progress of the copy operation should be monitored.
      *
      * @param src	source stream
      * @param dst	destination stream
@@ -517,15 +451,24 @@ public final class Utils {
      * @throws IOException	when an error occurs reading from the source or writing to the destination stream
      */
     public static long copyStream(InputStream src, OutputStream dst) throws IOException {
-    	long copied = 0;
-    	int b;
-    	while ((b = src.read()) >= 0) {
-    		dst.write(b);
-    		copied++;
-    	}
-    	dst.flush();
+    	return StreamCopier.getDefault().copy(src, dst);
+    }
 
-    	return copied;
+    /**
+     * Copies the content of a readable channel to a writable channel and returns the numbers of bytes copied.
+     * <p>Like {@link #copyStream(InputStream, OutputStream)} this method will copy all content <b>remaining</b> on the
+     * source channel and write it at the current position of the destination channel. Neither channel will be closed
+     * by this method. Both channels are expected to be in blocking mode. When either of the channels is a {@link
+     * FileChannel} the content is transferred directly from or to the file.
+     *
+     * @param src	source channel
+     * @param dst	destination channel
+     * @return	the number of bytes copied from the source to the destination channel
+     * @throws IOException	when an error occurs reading from the source or writing to the destination channel
+     * @since 1.6.0
+     */
+    public static long copyStream(ReadableByteChannel src, WritableByteChannel dst) throws IOException {
+    	return StreamCopier.getDefault().copy(src, dst);
     }
 
     /**
@@ -0,0 +1,539 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.util;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Is a utility class for converting <code>xs:dateTime</code> and <code>xs:date</code> values, as defined in <a href=
+ * "http://www.w3.org/TR/xmlschema-2/#dateTime">section 3.2.7</a> and <a href="http://www.w3.org/TR/xmlschema-2/#date">
+ * section 3.2.9</a> of the XML Schema Datatypes specification.
+ * <p>The parse methods read the components of the date time directly from the given character sequence in a single
+ * pass, without creating intermediate strings. They support fractional seconds up to nanosecond precision (further
+ * digits are ignored), years with more than four digits and negative years, the end-of-day time <code>24:00:00
+ * </code> and time zones specified as <code>Z</code>, <code>±hh:mm</code>, <code>±hhmm</code> or <code>±hh</code>.
+ * An <code>xs:date</code> value is interpreted as the start of the day. When the value does not include a time zone
+ * it is interpreted in the system's default time zone. Leading and trailing whitespace is ignored.
+ * <p>The format methods create the <code>xs:dateTime</code> representation in the UTC time zone with millisecond
+ * precision, e.g. <code>2020-05-04T17:13:51.123Z</code>, and can write it directly into a {@link StringBuilder},
+ * {@link CharBuffer} or {@link ByteBuffer} supplied by the caller. The formatted date and time up to the seconds is
+ * cached, so formatting time stamps within the same second only requires the milliseconds to be formatted.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 1.6.0
+ */
+public final class XMLDateTimeUtils {
+
+	// Indexes of the components in the array filled by the parser
+	private static final int YEAR = 0;
+	private static final int MONTH = 1;
+	private static final int DAY = 2;
+	private static final int HOUR = 3;
+	private static final int MINUTE = 4;
+	private static final int SECOND = 5;
+	private static final int NANO = 6;
+	private static final int OFFSET = 7;
+	/**
+	 * Value of the offset component when the parsed value does not specify a time zone
+	 */
+	private static final int NO_OFFSET = Integer.MIN_VALUE;
+
+	/**
+	 * Number of days from 0000-01-01 to 1970-01-01
+	 */
+	private static final long DAYS_0000_TO_1970 = 719528L;
+
+	/**
+	 * Maximum length of a formatted time stamp, occurs for negative years with more than four digits
+	 */
+	private static final int MAX_FORMATTED_LENGTH = 30;
+
+	/**
+	 * The cached formatted date and time up to the seconds of the last formatted time stamp
+	 */
+	private static volatile FormattedSecond lastFormattedSecond = new FormattedSecond(0);
+
+	private XMLDateTimeUtils() {}
+
+	/**
+	 * Formats the given time stamp as <code>xs:dateTime</code> in the UTC time zone.
+	 *
+	 * @param epochMillis	the time stamp as number of milliseconds since the epoch
+	 * @return	the <code>xs:dateTime</code> representation of the time stamp
+	 */
+	public static String format(final long epochMillis) {
+		return formatTo(epochMillis, new StringBuilder(MAX_FORMATTED_LENGTH)).toString();
+	}
+
+	/**
+	 * Formats the given instant as <code>xs:dateTime</code> in the UTC time zone.
+	 *
+	 * @param instant	the instant to format
+	 * @return	the <code>xs:dateTime</code> representation of the instant
+	 */
+	public static String format(final Instant instant) {
+		return format(instant.toEpochMilli());
+	}
+
+	/**
+	 * Formats the given date time as <code>xs:dateTime</code> in the UTC time zone.
+	 *
+	 * @param dateTime	the date time to format
+	 * @return	the <code>xs:dateTime</code> representation of the date time
+	 */
+	public static String format(final ZonedDateTime dateTime) {
+		return format(toEpochMillis(dateTime));
+	}
+
+	/**
+	 * Appends the <code>xs:dateTime</code> representation of the given time stamp to the string builder.
+	 *
+	 * @param epochMillis	the time stamp as number of milliseconds since the epoch
+	 * @param sb			the string builder to append to
+	 * @return	the given string builder
+	 */
+	public static StringBuilder formatTo(final long epochMillis, final StringBuilder sb) {
+		final int millis = (int) Math.floorMod(epochMillis, 1000L);
+		return sb.append(getFormattedSecond(Math.floorDiv(epochMillis, 1000L)).chars)
+				 .append((char) ('0' + millis / 100)).append((char) ('0' + millis / 10 % 10))
+				 .append((char) ('0' + millis % 10)).append('Z');
+	}
+
+	/**
+	 * Appends the <code>xs:dateTime</code> representation of the given instant to the string builder.
+	 *
+	 * @param instant	the instant to format
+	 * @param sb		the string builder to append to
+	 * @return	the given string builder
+	 */
+	public static StringBuilder formatTo(final Instant instant, final StringBuilder sb) {
+		return formatTo(instant.toEpochMilli(), sb);
+	}
+
+	/**
+	 * Appends the <code>xs:dateTime</code> representation of the given date time to the string builder.
+	 *
+	 * @param dateTime	the date time to format
+	 * @param sb		the string builder to append to
+	 * @return	the given string builder
+	 */
+	public static StringBuilder formatTo(final ZonedDateTime dateTime, final StringBuilder sb) {
+		return formatTo(toEpochMillis(dateTime), sb);
+	}
+
+	/**
+	 * Writes the <code>xs:dateTime</code> representation of the given time stamp into the character buffer at its
+	 * current position.
+	 *
+	 * @param epochMillis	the time stamp as number of milliseconds since the epoch
+	 * @param cb			the buffer to write to
+	 * @return	the given buffer
+	 * @throws BufferOverflowException when the buffer has not enough space remaining, in which case nothing is
+	 * 								   written
+	 */
+	public static CharBuffer formatTo(final long epochMillis, final CharBuffer cb) {
+		final char[] second = getFormattedSecond(Math.floorDiv(epochMillis, 1000L)).chars;
+		if (cb.remaining() < second.length + 4)
+			throw new BufferOverflowException();
+		final int millis = (int) Math.floorMod(epochMillis, 1000L);
+		return cb.put(second).put((char) ('0' + millis / 100)).put((char) ('0' + millis / 10 % 10))
+				 .put((char) ('0' + millis % 10)).put('Z');
+	}
+
+	/**
+	 * Writes the <code>xs:dateTime</code> representation of the given instant into the character buffer at its
+	 * current position.
+	 *
+	 * @param instant	the instant to format
+	 * @param cb		the buffer to write to
+	 * @return	the given buffer
+	 * @throws BufferOverflowException when the buffer has not enough space remaining, in which case nothing is
+	 * 								   written
+	 */
+	public static CharBuffer formatTo(final Instant instant, final CharBuffer cb) {
+		return formatTo(instant.toEpochMilli(), cb);
+	}
+
+	/**
+	 * Writes the <code>xs:dateTime</code> representation of the given date time into the character buffer at its
+	 * current position.
+	 *
+	 * @param dateTime	the date time to format
+	 * @param cb		the buffer to write to
+	 * @return	the given buffer
+	 * @throws BufferOverflowException when the buffer has not enough space remaining, in which case nothing is
+	 * 								   written
+	 */
+	public static CharBuffer formatTo(final ZonedDateTime dateTime, final CharBuffer cb) {
+		return formatTo(toEpochMillis(dateTime), cb);
+	}
+
+	/**
+	 * Writes the <code>xs:dateTime</code> representation of the given time stamp as US-ASCII, and therefore also
+	 * UTF-8, encoded bytes into the byte buffer at its current position.
+	 *
+	 * @param epochMillis	the time stamp as number of milliseconds since the epoch
+	 * @param bb			the buffer to write to
+	 * @return	the given buffer
+	 * @throws BufferOverflowException when the buffer has not enough space remaining, in which case nothing is
+	 * 								   written
+	 */
+	public static ByteBuffer formatTo(final long epochMillis, final ByteBuffer bb) {
+		final byte[] second = getFormattedSecond(Math.floorDiv(epochMillis, 1000L)).bytes;
+		if (bb.remaining() < second.length + 4)
+			throw new BufferOverflowException();
+		final int millis = (int) Math.floorMod(epochMillis, 1000L);
+		return bb.put(second).put((byte) ('0' + millis / 100)).put((byte) ('0' + millis / 10 % 10))
+				 .put((byte) ('0' + millis % 10)).put((byte) 'Z');
+	}
+
+	/**
+	 * Writes the <code>xs:dateTime</code> representation of the given instant as US-ASCII, and therefore also UTF-8,
+	 * encoded bytes into the byte buffer at its current position.
+	 *
+	 * @param instant	the instant to format
+	 * @param bb		the buffer to write to
+	 * @return	the given buffer
+	 * @throws BufferOverflowException when the buffer has not enough space remaining, in which case nothing is
+	 * 								   written
+	 */
+	public static ByteBuffer formatTo(final Instant instant, final ByteBuffer bb) {
+		return formatTo(instant.toEpochMilli(), bb);
+	}
+
+	/**
+	 * Writes the <code>xs:dateTime</code> representation of the given date time as US-ASCII, and therefore also
+	 * UTF-8, encoded bytes into the byte buffer at its current position.
+	 *
+	 * @param dateTime	the date time to format
+	 * @param bb		the buffer to write to
+	 * @return	the given buffer
+	 * @throws BufferOverflowException when the buffer has not enough space remaining, in which case nothing is
+	 * 								   written
+	 */
+	public static ByteBuffer formatTo(final ZonedDateTime dateTime, final ByteBuffer bb) {
+		return formatTo(toEpochMillis(dateTime), bb);
+	}
+
+	/**
+	 * Converts the date time into the number of milliseconds since the epoch without creating an intermediate {@link
+	 * Instant}.
+	 *
+	 * @param dateTime	the date time
+	 * @return	number of milliseconds since the epoch
+	 */
+	private static long toEpochMillis(final ZonedDateTime dateTime) {
+		return Math.addExact(Math.multiplyExact(dateTime.toEpochSecond(), 1000L), dateTime.getNano() / 1_000_000);
+	}
+
+	/**
+	 * Gets the formatted date and time up to the seconds of the given second, using the cached value when it is for
+	 * the same second.
+	 *
+	 * @param epochSecond	number of seconds since the epoch
+	 * @return	the formatted date and time up to the seconds
+	 */
+	private static FormattedSecond getFormattedSecond(final long epochSecond) {
+		FormattedSecond formatted = lastFormattedSecond;
+		if (formatted.epochSecond != epochSecond) {
+			formatted = new FormattedSecond(epochSecond);
+			lastFormattedSecond = formatted;
+		}
+		return formatted;
+	}
+
+	/**
+	 * Contains the formatted date and time up to and including the decimal point of the seconds, i.e. <code>
+	 * yyyy-MM-ddTHH:mm:ss.</code>, of a specific second in both character and byte representation. Instances are
+	 * immutable so they can be safely shared between threads.
+	 */
+	private static final class FormattedSecond {
+		final long		epochSecond;
+		final char[]	chars;
+		final byte[]	bytes;
+
+		FormattedSecond(final long epochSecond) {
+			this.epochSecond = epochSecond;
+
+			final LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(epochSecond, 86400L));
+			final int secondOfDay = (int) Math.floorMod(epochSecond, 86400L);
+			final StringBuilder sb = new StringBuilder(MAX_FORMATTED_LENGTH);
+			final int year = date.getYear();
+			if (year < 0)
+				sb.append('-');
+			appendPadded(sb, Math.abs(year), 4).append('-');
+			appendPadded(sb, date.getMonthValue(), 2).append('-');
+			appendPadded(sb, date.getDayOfMonth(), 2).append('T');
+			appendPadded(sb, secondOfDay / 3600, 2).append(':');
+			appendPadded(sb, secondOfDay / 60 % 60, 2).append(':');
+			appendPadded(sb, secondOfDay % 60, 2).append('.');
+
+			this.chars = new char[sb.length()];
+			sb.getChars(0, chars.length, chars, 0);
+			this.bytes = new byte[chars.length];
+			for (int i = 0; i < chars.length; i++)
+				bytes[i] = (byte) chars[i];
+		}
+
+		private static StringBuilder appendPadded(final StringBuilder sb, final int value, final int width) {
+			for (int w = 1, limit = 10; w < width; w++, limit *= 10)
+				if (value < limit)
+					sb.append('0');
+			return sb.append(value);
+		}
+	}
+
+	/**
+	 * Parses the given <code>xs:dateTime</code> or <code>xs:date</code> value into a {@link ZonedDateTime}. When the
+	 * value includes a time zone the returned date time uses the corresponding fixed offset, otherwise the system's
+	 * default time zone.
+	 *
+	 * @param xmlDateTime	the <code>xs:dateTime</code> or <code>xs:date</code> value
+	 * @return	the parsed date time
+	 * @throws ParseException when the given value is not a valid <code>xs:dateTime</code> or <code>xs:date</code>
+	 */
+	public static ZonedDateTime parseZonedDateTime(final CharSequence xmlDateTime) throws ParseException {
+		final int[] f = parse(xmlDateTime);
+		final LocalDateTime ldt = toLocalDateTime(f);
+		return f[OFFSET] == NO_OFFSET ? ZonedDateTime.of(ldt, ZoneId.systemDefault())
+									  : ZonedDateTime.of(ldt, ZoneOffset.ofTotalSeconds(f[OFFSET]));
+	}
+
+	/**
+	 * Parses the given <code>xs:dateTime</code> or <code>xs:date</code> value into an {@link Instant}.
+	 *
+	 * @param xmlDateTime	the <code>xs:dateTime</code> or <code>xs:date</code> value
+	 * @return	the parsed instant
+	 * @throws ParseException when the given value is not a valid <code>xs:dateTime</code> or <code>xs:date</code>
+	 */
+	public static Instant parseInstant(final CharSequence xmlDateTime) throws ParseException {
+		final int[] f = parse(xmlDateTime);
+		if (f[OFFSET] == NO_OFFSET)
+			return ZonedDateTime.of(toLocalDateTime(f), ZoneId.systemDefault()).toInstant();
+		else
+			return Instant.ofEpochSecond(toEpochSecond(f), f[NANO]);
+	}
+
+	/**
+	 * Parses the given <code>xs:dateTime</code> or <code>xs:date</code> value into the number of milliseconds since
+	 * the epoch (1970-01-01T00:00:00Z). Fractional seconds beyond millisecond precision are truncated.
+	 *
+	 * @param xmlDateTime	the <code>xs:dateTime</code> or <code>xs:date</code> value
+	 * @return	the parsed time stamp as milliseconds since the epoch
+	 * @throws ParseException when the given value is not a valid <code>xs:dateTime</code> or <code>xs:date</code>
+	 */
+	public static long parseEpochMillis(final CharSequence xmlDateTime) throws ParseException {
+		final int[] f = parse(xmlDateTime);
+		try {
+			if (f[OFFSET] == NO_OFFSET)
+				return ZonedDateTime.of(toLocalDateTime(f), ZoneId.systemDefault()).toInstant().toEpochMilli();
+			else
+				return Math.addExact(Math.multiplyExact(toEpochSecond(f), 1000L), f[NANO] / 1_000_000);
+		} catch (ArithmeticException outOfRange) {
+			throw new ParseException("Date time cannot be represented as milliseconds since the epoch", 0);
+		}
+	}
+
+	/**
+	 * Converts the parsed components into a {@link LocalDateTime}.
+	 *
+	 * @param f	the parsed components
+	 * @return	the local date time
+	 */
+	private static LocalDateTime toLocalDateTime(final int[] f) {
+		final LocalDateTime ldt = LocalDateTime.of(f[YEAR], f[MONTH], f[DAY], f[HOUR] % 24, f[MINUTE], f[SECOND],
+												   f[NANO]);
+		return f[HOUR] == 24 ? ldt.plusDays(1) : ldt;
+	}
+
+	/**
+	 * Calculates the number of seconds since the epoch of the parsed components, which must include the offset.
+	 *
+	 * @param f	the parsed components
+	 * @return	the number of seconds since the epoch
+	 */
+	private static long toEpochSecond(final int[] f) {
+		final long y = f[YEAR];
+		final int m = f[MONTH];
+		long days = 365 * y;
+		if (y >= 0)
+			days += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+		else
+			days -= y / -4 - y / -100 + y / -400;
+		days += (367 * m - 362) / 12 + f[DAY] - 1;
+		if (m > 2)
+			days -= isLeapYear(y) ? 1 : 2;
+		days -= DAYS_0000_TO_1970;
+
+		return days * 86400 + f[HOUR] * 3600 + f[MINUTE] * 60 + f[SECOND] - f[OFFSET];
+	}
+
+	private static boolean isLeapYear(final long year) {
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	/**
+	 * Parses the given character sequence into the components of the date time.
+	 *
+	 * @param s	the character sequence to parse
+	 * @return	array containing the parsed components
+	 * @throws ParseException when the given value is not a valid <code>xs:dateTime</code> or <code>xs:date</code>
+	 */
+	private static int[] parse(final CharSequence s) throws ParseException {
+		if (s == null)
+			throw new ParseException("No value to parse", 0);
+
+		int end = s.length();
+		while (end > 0 && isWhitespace(s.charAt(end - 1)))
+			end--;
+		int i = 0;
+		while (i < end && isWhitespace(s.charAt(i)))
+			i++;
+
+		final int[] f = new int[8];
+		// Year, at least four digits and no leading zeros when more digits are used
+		final boolean negative = i < end && s.charAt(i) == '-';
+		if (negative)
+			i++;
+		final int startYear = i;
+		int year = 0;
+		while (i < end && isDigit(s.charAt(i))) {
+			if (i - startYear == 9)
+				throw new ParseException("Year out of range", startYear);
+			year = year * 10 + s.charAt(i++) - '0';
+		}
+		if (i - startYear < 4 || (i - startYear > 4 && s.charAt(startYear) == '0'))
+			throw new ParseException("Invalid year", startYear);
+		f[YEAR] = negative ? -year : year;
+
+		expect(s, i++, end, '-');
+		f[MONTH] = readTwoDigits(s, i, end, 1, 12);
+		i += 2;
+		expect(s, i++, end, '-');
+		f[DAY] = readTwoDigits(s, i, end, 1, 31);
+		if (f[DAY] > 28 && f[DAY] > lengthOfMonth(f[YEAR], f[MONTH]))
+			throw new ParseException("Invalid day of month", i);
+		i += 2;
+
+		// Time part, which is absent when the value is a xs:date
+		if (i < end && s.charAt(i) == 'T') {
+			i++;
+			f[HOUR] = readTwoDigits(s, i, end, 0, 24);
+			i += 2;
+			expect(s, i++, end, ':');
+			f[MINUTE] = readTwoDigits(s, i, end, 0, 59);
+			i += 2;
+			expect(s, i++, end, ':');
+			f[SECOND] = readTwoDigits(s, i, end, 0, 59);
+			i += 2;
+			if (i < end && s.charAt(i) == '.') {
+				final int startFraction = ++i;
+				int nanos = 0;
+				while (i < end && isDigit(s.charAt(i))) {
+					if (i - startFraction < 9)
+						nanos = nanos * 10 + s.charAt(i) - '0';
+					i++;
+				}
+				if (i == startFraction)
+					throw new ParseException("Missing fractional seconds", i);
+				for (int d = i - startFraction; d < 9; d++)
+					nanos *= 10;
+				f[NANO] = nanos;
+			}
+			if (f[HOUR] == 24 && (f[MINUTE] != 0 || f[SECOND] != 0 || f[NANO] != 0))
+				throw new ParseException("Invalid end of day time", i);
+			// The end of the last supported day would roll over to a year that java.time cannot represent
+			if (f[HOUR] == 24 && f[YEAR] == Year.MAX_VALUE && f[MONTH] == 12 && f[DAY] == 31)
+				throw new ParseException("Date time out of range", i);
+		}
+
+		// Time zone
+		if (i == end)
+			f[OFFSET] = NO_OFFSET;
+		else {
+			final char c = s.charAt(i++);
+			if (c == 'Z')
+				f[OFFSET] = 0;
+			else if (c == '+' || c == '-') {
+				final int hours = readTwoDigits(s, i, end, 0, 14);
+				i += 2;
+				int minutes = 0;
+				if (i < end) {
+					if (s.charAt(i) == ':')
+						i++;
+					minutes = readTwoDigits(s, i, end, 0, 59);
+					i += 2;
+				}
+				if (hours == 14 && minutes != 0)
+					throw new ParseException("Time zone offset out of range", i);
+				f[OFFSET] = (c == '-' ? -1 : 1) * (hours * 3600 + minutes * 60);
+			} else
+				throw new ParseException("Invalid time zone", i - 1);
+		}
+		if (i != end)
+			throw new ParseException("Unexpected characters", i);
+
+		return f;
+	}
+
+	private static int lengthOfMonth(final int year, final int month) {
+		switch (month) {
+		case 2:
+			return isLeapYear(year) ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	private static void expect(final CharSequence s, final int i, final int end, final char c) throws ParseException {
+		if (i >= end || s.charAt(i) != c)
+			throw new ParseException("Expected '" + c + "'", i);
+	}
+
+	private static int readTwoDigits(final CharSequence s, final int i, final int end, final int min, final int max)
+																							throws ParseException {
+		if (i + 1 >= end || !isDigit(s.charAt(i)) || !isDigit(s.charAt(i + 1)))
+			throw new ParseException("Expected two digits", i);
+		final int v = (s.charAt(i) - '0') * 10 + s.charAt(i + 1) - '0';
+		if (v < min || v > max)
+			throw new ParseException("Value out of range", i);
+		return v;
+	}
+
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isWhitespace(final char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+}
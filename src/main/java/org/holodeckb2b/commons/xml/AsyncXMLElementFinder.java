@@ -0,0 +1,400 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Is the non-blocking variant of {@link XMLElementFinder} that finds the first occurrence of an element in XML that is
+ * pushed to the finder in chunks as they become available, for example by an event loop of a HTTP server. As soon as
+ * the requested element has been received completely the {@link #getResult() result} is completed with its DOM
+ * representation, so processing of the element can start before the rest of the document has been received.
+ * <p>The chunks are scanned by a light weight byte scanner that does not block and does not build a DOM. Only the
+ * bytes of the requested element are retained and parsed into a DOM once the element is complete. As the XML is
+ * scanned on the byte level only encodings compatible with US-ASCII, like UTF-8, are supported. The same restrictions
+ * as for {@link XMLElementFinder} apply, i.e. a document type declaration is rejected and the depth of the element
+ * tree and number of attributes per element are limited.
+ * <p>A finder can be used for one document only. It is not thread safe, but the chunks may be supplied by different
+ * threads as long as the calls are not concurrent.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 1.6.0
+ */
+public class AsyncXMLElementFinder {
+	/**
+	 * Size of the buffer used when reading from a channel
+	 */
+	private static final int READ_BUFFER_SIZE = 8192;
+
+	/**
+	 * The maximum length of the XML declaration that is retained to determine the encoding of the found element
+	 */
+	private static final int MAX_DECLARATION_LENGTH = 256;
+
+	/**
+	 * Error handler that only aborts parsing on fatal errors, without writing them to the console
+	 */
+	private static final DefaultHandler ERROR_HANDLER = new DefaultHandler();
+
+	// The element to find
+	private final XMLElementFinder.Target target;
+	// The maximum number of element to look at
+	private final int maxElements;
+	// The scanner to which the chunks are fed
+	private final XMLByteScanner scanner;
+	// The result of the search
+	private final CompletableFuture<Element> result = new CompletableFuture<>();
+
+	// The XML declaration of the document, null if the document does not start with one
+	private ByteArrayOutputStream declaration = new ByteArrayOutputStream();
+	// Indicates whether the complete XML declaration has been received
+	private boolean declarationComplete;
+
+	// The bytes of the start tag that started in a previous chunk and was not completed yet
+	private byte[] carry = new byte[256];
+	private int carryLength;
+	// Offset of the first byte in the carry buffer
+	private long carryOffset;
+
+	// Number of start elements seen
+	private int elementsSeen;
+	// Offsets of the start and end of the found element, -1 if not found (yet)
+	private long start = -1;
+	private long end = -1;
+	// The depth within the found element
+	private int depth;
+	// The name space declarations in scope of the found element
+	private Map<String, String> namespaces;
+	// The bytes of the found element
+	private ByteArrayOutputStream fragment;
+
+	// The buffer used to read from a channel, allocated on first use
+	private ByteBuffer readBuffer;
+
+	/**
+	 * Creates a new finder for the first occurrence of the specified element. As in {@link
+	 * XMLElementFinder#parse(java.io.InputStream, QName)} the search is only name space aware if the specified name
+	 * contains a name space URI.
+	 *
+	 * @param element	QName of searched element
+	 */
+	public AsyncXMLElementFinder(final QName element) {
+		this(element, -1);
+	}
+
+	/**
+	 * Creates a new finder for the first occurrence of the specified element that gives up when the element has not
+	 * been seen after <code>searchLimit</code> elements.
+	 *
+	 * @param element		QName of searched element
+	 * @param searchLimit	maximum number of elements to check, -1 for no limit
+	 */
+	public AsyncXMLElementFinder(final QName element, final int searchLimit) {
+		if (element == null)
+			throw new IllegalArgumentException("Element name must be specified");
+		this.target = new XMLElementFinder.Target(element);
+		this.maxElements = searchLimit;
+		this.scanner = new XMLByteScanner(new XMLByteScanner.IHandler() {
+			@Override
+			public boolean startElement(long offset, String namespaceURI, String localName, String qName) {
+				if (start >= 0) {
+					depth++;
+					return true;
+				}
+				elementsSeen++;
+				if (target.matches(namespaceURI, localName)) {
+					start = offset;
+					depth = 1;
+					namespaces = scanner.getNamespacesInScope();
+					return true;
+				}
+				if (maxElements > 0 && elementsSeen >= maxElements) {
+					result.complete(null);
+					return false;
+				}
+				return true;
+			}
+
+			@Override
+			public boolean endElement(long offset) {
+				if (start >= 0 && --depth == 0) {
+					end = offset;
+					return false;
+				}
+				return true;
+			}
+		}, XMLElementFinder.MAX_DEPTH, XMLElementFinder.MAX_ATTRIBUTES);
+	}
+
+	/**
+	 * Gets the result of the search. The future is completed with the DOM representation of the element as soon as it
+	 * has been received completely, or with <code>null</code> when the element is not found in the document or before
+	 * the search limit was reached. When the XML is not well formed or exceeds one of the limits the future completes
+	 * exceptionally with an {@link IllegalStateException}.
+	 *
+	 * @return	the future result of the search
+	 */
+	public CompletableFuture<Element> getResult() {
+		return result;
+	}
+
+	/**
+	 * Supplies the next chunk of the XML to the finder. The bytes between the position and limit of the buffer are
+	 * processed. When the search completes within the chunk, the position of the buffer is set to the byte following
+	 * the last processed byte, otherwise it is set to the limit of the buffer. The content of the buffer is copied
+	 * when needed, so the buffer can be reused by the caller after this method returns.
+	 *
+	 * @param chunk	the next chunk of the XML
+	 * @return	<code>true</code> if more input is needed, <code>false</code> if the search has completed
+	 */
+	public boolean feed(final ByteBuffer chunk) {
+		if (result.isDone())
+			return false;
+		try {
+			if (declaration != null && !declarationComplete)
+				captureDeclaration(chunk);
+
+			final long chunkOffset = scanner.getOffset();
+			final ByteBuffer scanned = chunk.duplicate();
+			scanner.feed(scanned);
+			if (start >= 0) {
+				if (fragment == null) {
+					fragment = new ByteArrayOutputStream(1024);
+					// The start tag of the element may have started in a previous chunk
+					if (start < chunkOffset)
+						fragment.write(carry, (int) (start - carryOffset), (int) (chunkOffset - start));
+				}
+				final int from = (int) Math.max(0, start - chunkOffset);
+				final int to = (int) (scanner.getOffset() - chunkOffset);
+				write(chunk, chunk.position() + from, to - from);
+			} else
+				retainStartTag(chunk, chunkOffset);
+			((Buffer) chunk).position(scanned.position());
+
+			if (end >= 0)
+				result.complete(createElement());
+		} catch (IllegalStateException invalidXML) {
+			result.completeExceptionally(invalidXML);
+		}
+		return !result.isDone();
+	}
+
+	/**
+	 * Reads the available bytes from the given channel and supplies them to the finder. When the channel is blocking
+	 * this method returns when the search has completed or the end of the stream has been reached. When the channel
+	 * is non-blocking it also returns as soon as no more bytes are available.
+	 *
+	 * @param channel	the channel to read the XML from
+	 * @return	<code>true</code> if more input is needed, <code>false</code> if the search has completed
+	 * @throws IOException	when an error occurs reading from the channel
+	 */
+	public boolean read(final ReadableByteChannel channel) throws IOException {
+		if (readBuffer == null)
+			readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+		while (!result.isDone()) {
+			// ByteBuffer only overrides clear() and flip() since Java 9, cast to link to the Java 8 methods
+			((Buffer) readBuffer).clear();
+			final int read = channel.read(readBuffer);
+			if (read < 0)
+				endOfInput();
+			else if (read == 0)
+				break;
+			else {
+				((Buffer) readBuffer).flip();
+				feed(readBuffer);
+			}
+		}
+		return !result.isDone();
+	}
+
+	/**
+	 * Signals that all bytes of the XML have been supplied. If the search has not completed yet, the result is
+	 * completed with <code>null</code> when the document was complete or exceptionally when it was not.
+	 */
+	public void endOfInput() {
+		if (result.isDone())
+			return;
+		try {
+			scanner.endOfInput();
+			result.complete(null);
+		} catch (IllegalStateException incomplete) {
+			result.completeExceptionally(incomplete);
+		}
+	}
+
+	/**
+	 * Retains the XML declaration at the start of the document, so the found element can be parsed using the same
+	 * encoding.
+	 *
+	 * @param chunk	the chunk being supplied
+	 */
+	private void captureDeclaration(final ByteBuffer chunk) {
+		for (int i = chunk.position(); i < chunk.limit() && !declarationComplete; i++) {
+			final byte b = chunk.get(i);
+			final int n = declaration.size();
+			if ((n < 5 && b != "<?xml".charAt(n)) || (n == 5 && b != ' ' && b != '\t' && b != '\r' && b != '\n')
+				|| n == MAX_DECLARATION_LENGTH) {
+				declaration = null;
+				return;
+			}
+			declaration.write(b);
+			declarationComplete = b == '>' && n > 5 && declaration.toByteArray()[n - 1] == '?';
+		}
+	}
+
+	/**
+	 * Retains the bytes of the start tag that is not completed within the current chunk, so they are available if the
+	 * element turns out to be the requested element.
+	 *
+	 * @param chunk			the chunk being supplied, with its position at the first scanned byte
+	 * @param chunkOffset	offset of the first byte of the chunk
+	 */
+	private void retainStartTag(final ByteBuffer chunk, final long chunkOffset) {
+		final long tagStart = scanner.getStartTagOffset();
+		if (tagStart < 0) {
+			carryLength = 0;
+			return;
+		}
+		if (tagStart < chunkOffset) {
+			carryLength = (int) (chunkOffset - tagStart);
+			System.arraycopy(carry, (int) (tagStart - carryOffset), carry, 0, carryLength);
+		} else
+			carryLength = 0;
+		carryOffset = tagStart;
+
+		final int from = (int) Math.max(0, tagStart - chunkOffset);
+		final int length = (int) (scanner.getOffset() - chunkOffset) - from;
+		if (carryLength + length > carry.length) {
+			final byte[] larger = new byte[Math.max(carry.length * 2, carryLength + length)];
+			System.arraycopy(carry, 0, larger, 0, carryLength);
+			carry = larger;
+		}
+		for (int i = 0; i < length; i++)
+			carry[carryLength++] = chunk.get(chunk.position() + from + i);
+	}
+
+	/**
+	 * Adds the given bytes of the chunk to the bytes of the found element.
+	 *
+	 * @param chunk		the chunk being supplied
+	 * @param index		index of the first byte to add
+	 * @param length	number of bytes to add
+	 */
+	private void write(final ByteBuffer chunk, final int index, final int length) {
+		if (chunk.hasArray())
+			fragment.write(chunk.array(), chunk.arrayOffset() + index, length);
+		else
+			for (int i = index; i < index + length; i++)
+				fragment.write(chunk.get(i));
+	}
+
+	/**
+	 * Parses the bytes of the found element into a DOM. As the element may use name spaces declared on its ancestors
+	 * it is wrapped in an element that declares the name spaces in scope. The wrapper is removed from the resulting
+	 * document.
+	 *
+	 * @return	the DOM representation of the found element
+	 */
+	private Element createElement() {
+		final Charset encoding = getEncoding();
+		final ByteArrayOutputStream xml = new ByteArrayOutputStream(fragment.size() + 512);
+		final StringBuilder wrapper = new StringBuilder("<wrapper");
+		for (Map.Entry<String, String> ns : namespaces.entrySet()) {
+			wrapper.append(ns.getKey().isEmpty() ? " xmlns" : " xmlns:" + ns.getKey()).append("=\"");
+			for (char c : ns.getValue().toCharArray())
+				switch (c) {
+				case '&' : wrapper.append("&amp;"); break;
+				case '<' : wrapper.append("&lt;"); break;
+				case '"' : wrapper.append("&quot;"); break;
+				default: wrapper.append(c);
+				}
+			wrapper.append('"');
+		}
+		wrapper.append('>');
+		try {
+			if (declaration != null && declarationComplete)
+				declaration.writeTo(xml);
+			xml.write(wrapper.toString().getBytes(encoding));
+			fragment.writeTo(xml);
+			xml.write("</wrapper>".getBytes(encoding));
+		} catch (IOException cannotHappen) {
+			throw new IllegalStateException(cannotHappen);
+		}
+
+		final XMLParserPool pool = XMLElementFinder.getParserPool();
+		DocumentBuilder builder = null;
+		try {
+			builder = pool.acquireDocumentBuilder();
+			builder.setErrorHandler(ERROR_HANDLER);
+			final Document document = builder.parse(new ByteArrayInputStream(xml.toByteArray()));
+			final Element wrapperElement = document.getDocumentElement();
+			Node element = wrapperElement.getFirstChild();
+			while (element.getNodeType() != Node.ELEMENT_NODE)
+				element = element.getNextSibling();
+			wrapperElement.removeChild(element);
+			document.replaceChild(element, wrapperElement);
+			return (Element) element;
+		} catch (ParserConfigurationException | SAXException | IOException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			pool.release(builder);
+		}
+	}
+
+	/**
+	 * Gets the encoding of the document as specified in its XML declaration.
+	 *
+	 * @return	the encoding of the document, UTF-8 if the document has no XML declaration or no or an unsupported
+	 * 			encoding is specified
+	 */
+	private Charset getEncoding() {
+		if (declaration == null || !declarationComplete)
+			return StandardCharsets.UTF_8;
+		final String decl = new String(declaration.toByteArray(), StandardCharsets.US_ASCII);
+		final int eq = decl.indexOf('=', Math.max(0, decl.indexOf("encoding")));
+		if (decl.indexOf("encoding") < 0 || eq < 0)
+			return StandardCharsets.UTF_8;
+		int s = eq + 1;
+		while (s < decl.length() && decl.charAt(s) != '"' && decl.charAt(s) != '\'')
+			s++;
+		final int e = s < decl.length() ? decl.indexOf(decl.charAt(s), s + 1) : -1;
+		try {
+			return e > s ? Charset.forName(decl.substring(s + 1, e)) : StandardCharsets.UTF_8;
+		} catch (IllegalArgumentException unsupported) {
+			return StandardCharsets.UTF_8;
+		}
+	}
+}
@@ -0,0 +1,513 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.xml;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Is a light weight scanner that finds the start and end tags of the elements in XML supplied as bytes and reports
+ * their positions. It does not check all well-formedness constraints of XML and does not report text or attributes,
+ * but it does resolve the name spaces of elements and checks that start and end tags match. The scanner is
+ * incremental, i.e. the XML can be supplied in multiple chunks and the scanner resumes where the previous chunk ended.
+ * <p>As the scanner works on the bytes directly it only supports encodings that are compatible with US-ASCII for the
+ * XML markup, like UTF-8 and ISO-8859-x. Element names and name space URIs are decoded as UTF-8. As the scanner does
+ * not process DTDs, documents containing a document type declaration are rejected.
+ * <p>A scanner instance is not thread safe and can only be used for one document.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 1.6.0
+ */
+class XMLByteScanner {
+
+	/**
+	 * Is the call back interface to receive the elements found by the scanner. The offsets reported are relative to
+	 * the first byte supplied to the scanner.
+	 */
+	interface IHandler {
+		/**
+		 * Is called when the start tag of an element has been scanned.
+		 *
+		 * @param offset		offset of the '&lt;' that starts the start tag
+		 * @param namespaceURI	name space URI of the element, empty string if the element has no name space
+		 * @param localName		local name of the element
+		 * @param qName			qualified name, i.e. including prefix, of the element
+		 * @return	<code>true</code> if scanning should continue, <code>false</code> if scanning should stop
+		 */
+		boolean startElement(long offset, String namespaceURI, String localName, String qName);
+
+		/**
+		 * Is called when the end tag of an element has been scanned, or directly after {@link #startElement} when the
+		 * element is empty.
+		 *
+		 * @param offset		offset of the byte following the '&gt;' that ends the element
+		 * @return	<code>true</code> if scanning should continue, <code>false</code> if scanning should stop
+		 */
+		boolean endElement(long offset);
+	}
+
+	private enum State {
+		CONTENT, TAG_OPEN, START_TAG_NAME, IN_START_TAG, ATTR_NAME, AFTER_ATTR_NAME, BEFORE_ATTR_VALUE,
+		ATTR_VALUE, EMPTY_TAG_END, END_TAG_NAME, AFTER_END_TAG_NAME, MARKUP_DECLARATION, COMMENT, CDATA, PI
+	}
+
+	/**
+	 * Represents an open element
+	 */
+	private static final class Frame {
+		final String				qName;
+		// The name space declarations made on the element, null if there are none
+		final Map<String, String>	namespaces;
+
+		Frame(final String qName, final Map<String, String> namespaces) {
+			this.qName = qName;
+			this.namespaces = namespaces;
+		}
+	}
+
+	private static final String XML_NS = "http://www.w3.org/XML/1998/namespace";
+
+	private final IHandler		handler;
+	// The maximum depth and number of attributes per element, 0 when not limited
+	private final int			maxDepth;
+	private final int			maxAttributes;
+
+	private State				state = State.CONTENT;
+	// Offset of the next byte to scan
+	private long				offset = 0;
+	// Offset of the '<' of the tag being scanned
+	private long				tagStart;
+	// Indicates whether the scanner was stopped by the handler
+	private boolean				stopped;
+	// Indicates whether the root element has been seen
+	private boolean				rootSeen;
+
+	// The open elements
+	private final List<Frame>	openElements = new ArrayList<>();
+	// The name space declarations of the start tag being scanned
+	private Map<String, String>	declarations;
+
+	// Buffer for the name or value being scanned
+	private byte[]				token = new byte[64];
+	private int					tokenLength;
+	// The element and attribute name of the start tag being scanned
+	private String				elementName;
+	private String				attributeName;
+	// Number of attributes, excluding name space declarations, of the start tag being scanned
+	private int					attributes;
+	// The quote character of the attribute value being scanned
+	private byte				quote;
+	// Number of characters matched of the terminator of a comment, CDATA section or processing instruction
+	private int					matched;
+
+	/**
+	 * Creates a new scanner that reports the found elements to the given handler.
+	 *
+	 * @param handler	the handler to report to
+	 */
+	XMLByteScanner(final IHandler handler) {
+		this(handler, 0, 0);
+	}
+
+	/**
+	 * Creates a new scanner that reports the found elements to the given handler and rejects documents in which the
+	 * elements are nested too deeply or have too many attributes.
+	 *
+	 * @param handler		the handler to report to
+	 * @param maxDepth		the maximum number of nested elements, 0 or less for no limit
+	 * @param maxAttributes	the maximum number of attributes, excluding name space declarations, per element, 0 or less
+	 * 						for no limit
+	 */
+	XMLByteScanner(final IHandler handler, final int maxDepth, final int maxAttributes) {
+		this.handler = handler;
+		this.maxDepth = Math.max(0, maxDepth);
+		this.maxAttributes = Math.max(0, maxAttributes);
+	}
+
+	/**
+	 * @return the offset of the next byte to be scanned, i.e. the number of bytes scanned so far
+	 */
+	long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Gets the offset of the start tag that is currently being scanned. When a chunk ends within a start tag, this is
+	 * the offset from which the bytes must be retained to have the complete start tag when it is reported.
+	 *
+	 * @return	the offset of the '&lt;' of the start tag being scanned, or -1 if the scanner is not within a start tag
+	 */
+	long getStartTagOffset() {
+		switch (state) {
+		case TAG_OPEN :
+		case START_TAG_NAME :
+		case IN_START_TAG :
+		case ATTR_NAME :
+		case AFTER_ATTR_NAME :
+		case BEFORE_ATTR_VALUE :
+		case ATTR_VALUE :
+		case EMPTY_TAG_END :
+			return tagStart;
+		default:
+			return -1;
+		}
+	}
+
+	/**
+	 * @return the number of elements that are currently open
+	 */
+	int getDepth() {
+		return openElements.size();
+	}
+
+	/**
+	 * Gets the name space declarations in scope of the current element, i.e. the element last reported by {@link
+	 * IHandler#startElement}.
+	 *
+	 * @return	map with the prefixes as key and name space URIs as value, the default name space has the empty
+	 * 			string as prefix
+	 */
+	Map<String, String> getNamespacesInScope() {
+		final Map<String, String> inScope = new HashMap<>();
+		for (Frame f : openElements)
+			if (f.namespaces != null)
+				inScope.putAll(f.namespaces);
+		return inScope;
+	}
+
+	/**
+	 * Scans the remaining bytes of the given buffer. When the handler stops the scanning, the position of the buffer
+	 * is set to the byte following the last scanned one.
+	 *
+	 * @param chunk	the next chunk of the XML
+	 * @return	<code>true</code> if scanning can continue, <code>false</code> if the handler stopped the scanning
+	 * @throws IllegalStateException	when the XML is not well formed or uses an unsupported encoding or construct
+	 */
+	boolean feed(final ByteBuffer chunk) {
+		if (stopped)
+			throw new IllegalStateException("Scanning has been stopped");
+		final int limit = chunk.limit();
+		int i = chunk.position();
+		if (offset == 0 && i < limit && (chunk.get(i) & 0xff) >= 0xfe)
+			throw new IllegalStateException("Only ASCII compatible encodings are supported");
+		try {
+			while (i < limit && !stopped) {
+				if (state == State.CONTENT) {
+					// Fast path to skip text
+					while (i < limit && chunk.get(i) != '<') {
+						if (chunk.get(i) == 0)
+							throw error("Only ASCII compatible encodings are supported");
+						i++; offset++;
+					}
+					if (i == limit)
+						break;
+				}
+				scan(chunk.get(i));
+				i++; offset++;
+			}
+		} finally {
+			// Cast, as ByteBuffer only overrides position(int) since Java 9
+			((Buffer) chunk).position(i);
+		}
+		return !stopped;
+	}
+
+	/**
+	 * Signals that all bytes of the XML have been supplied.
+	 *
+	 * @throws IllegalStateException	when the XML is incomplete
+	 */
+	void endOfInput() {
+		if (!stopped && (state != State.CONTENT || !openElements.isEmpty() || !rootSeen))
+			throw error("Unexpected end of input");
+	}
+
+	private void scan(final byte b) {
+		switch (state) {
+		case CONTENT :
+			// Only called for '<'
+			tagStart = offset;
+			state = State.TAG_OPEN;
+			break;
+		case TAG_OPEN :
+			if (b == '/') {
+				tokenLength = 0;
+				state = State.END_TAG_NAME;
+			} else if (b == '?') {
+				matched = 0;
+				state = State.PI;
+			} else if (b == '!') {
+				tokenLength = 0;
+				state = State.MARKUP_DECLARATION;
+			} else if (isNameChar(b)) {
+				tokenLength = 0;
+				append(b);
+				declarations = null;
+				attributes = 0;
+				state = State.START_TAG_NAME;
+			} else
+				throw error("Invalid character after '<'");
+			break;
+		case START_TAG_NAME :
+			if (isNameChar(b))
+				append(b);
+			else {
+				elementName = tokenAsString();
+				endOfTagName(b);
+			}
+			break;
+		case IN_START_TAG :
+			if (isNameChar(b)) {
+				tokenLength = 0;
+				append(b);
+				state = State.ATTR_NAME;
+			} else
+				endOfTagName(b);
+			break;
+		case ATTR_NAME :
+			if (isNameChar(b))
+				append(b);
+			else {
+				attributeName = tokenAsString();
+				state = State.AFTER_ATTR_NAME;
+				scan(b);
+			}
+			break;
+		case AFTER_ATTR_NAME :
+			if (b == '=')
+				state = State.BEFORE_ATTR_VALUE;
+			else if (!isWhitespace(b))
+				throw error("Expected '=' after attribute name");
+			break;
+		case BEFORE_ATTR_VALUE :
+			if (b == '"' || b == '\'') {
+				quote = b;
+				tokenLength = 0;
+				state = State.ATTR_VALUE;
+			} else if (!isWhitespace(b))
+				throw error("Expected quoted attribute value");
+			break;
+		case ATTR_VALUE :
+			if (b == quote) {
+				if (attributeName.equals("xmlns") || attributeName.startsWith("xmlns:")) {
+					if (declarations == null)
+						declarations = new HashMap<>(4);
+					declarations.put(attributeName.length() == 5 ? "" : attributeName.substring(6),
+									 decodeReferences(tokenAsString()));
+				} else if (++attributes > maxAttributes && maxAttributes > 0)
+					throw error("Maximum number of attributes (" + maxAttributes + ") exceeded");
+				state = State.IN_START_TAG;
+			} else if (b == '<')
+				throw error("'<' not allowed in attribute value");
+			else if (attributeName.startsWith("xmlns"))
+				append(b);
+			break;
+		case EMPTY_TAG_END :
+			if (b != '>')
+				throw error("Expected '>' after '/'");
+			endElement();
+			break;
+		case END_TAG_NAME :
+			if (isNameChar(b))
+				append(b);
+			else {
+				elementName = tokenAsString();
+				state = State.AFTER_END_TAG_NAME;
+				scan(b);
+			}
+			break;
+		case AFTER_END_TAG_NAME :
+			if (b == '>') {
+				if (openElements.isEmpty()
+					|| !openElements.get(openElements.size() - 1).qName.equals(elementName))
+					throw error("End tag </" + elementName + "> does not match start tag");
+				endElement();
+			} else if (!isWhitespace(b))
+				throw error("Invalid character in end tag");
+			break;
+		case MARKUP_DECLARATION :
+			append(b);
+			final String declaration = tokenAsString();
+			if ("--".equals(declaration)) {
+				matched = 0;
+				state = State.COMMENT;
+			} else if ("[CDATA[".equals(declaration)) {
+				matched = 0;
+				state = State.CDATA;
+			} else if ("DOCTYPE".equals(declaration))
+				throw error("Document type declarations are not supported");
+			else if (!"--".startsWith(declaration) && !"[CDATA[".startsWith(declaration)
+					&& !"DOCTYPE".startsWith(declaration))
+				throw error("Invalid markup declaration");
+			break;
+		case COMMENT :
+			if (b == '-')
+				matched = Math.min(matched + 1, 2);
+			else if (b == '>' && matched == 2)
+				state = State.CONTENT;
+			else
+				matched = 0;
+			break;
+		case CDATA :
+			if (b == ']')
+				matched = Math.min(matched + 1, 2);
+			else if (b == '>' && matched == 2)
+				state = State.CONTENT;
+			else
+				matched = 0;
+			break;
+		case PI :
+			if (b == '?')
+				matched = 1;
+			else if (b == '>' && matched == 1)
+				state = State.CONTENT;
+			else
+				matched = 0;
+			break;
+		}
+	}
+
+	/**
+	 * Handles the character following the element name or an attribute of a start tag.
+	 *
+	 * @param b	the character
+	 */
+	private void endOfTagName(final byte b) {
+		if (isWhitespace(b))
+			state = State.IN_START_TAG;
+		else if (b == '>') {
+			startElement();
+			state = State.CONTENT;
+		} else if (b == '/') {
+			startElement();
+			state = stopped ? State.CONTENT : State.EMPTY_TAG_END;
+		} else
+			throw error("Invalid character in start tag");
+	}
+
+	private void startElement() {
+		if (rootSeen && openElements.isEmpty())
+			throw error("Only one root element allowed");
+		rootSeen = true;
+		if (maxDepth > 0 && openElements.size() == maxDepth)
+			throw error("Maximum element depth (" + maxDepth + ") exceeded");
+		openElements.add(new Frame(elementName, declarations));
+		final int colon = elementName.indexOf(':');
+		final String prefix = colon > 0 ? elementName.substring(0, colon) : "";
+		final String namespaceURI = resolve(prefix);
+		if (namespaceURI == null)
+			throw error("Undeclared prefix " + prefix);
+		stopped = !handler.startElement(tagStart, namespaceURI, elementName.substring(colon + 1), elementName);
+	}
+
+	private void endElement() {
+		openElements.remove(openElements.size() - 1);
+		state = State.CONTENT;
+		stopped = !handler.endElement(offset + 1);
+	}
+
+	/**
+	 * Resolves the given prefix to the name space URI that is in scope.
+	 *
+	 * @param prefix	the prefix, empty string for the default name space
+	 * @return	the name space URI, empty string if the prefix is empty and there is no default name space, or
+	 * 			<code>null</code> if the prefix is not declared
+	 */
+	private String resolve(final String prefix) {
+		if ("xml".equals(prefix))
+			return XML_NS;
+		for (int i = openElements.size() - 1; i >= 0; i--) {
+			final Map<String, String> ns = openElements.get(i).namespaces;
+			if (ns != null && ns.containsKey(prefix))
+				return ns.get(prefix);
+		}
+		return prefix.isEmpty() ? "" : null;
+	}
+
+	private void append(final byte b) {
+		if (tokenLength == token.length) {
+			final byte[] larger = new byte[token.length * 2];
+			System.arraycopy(token, 0, larger, 0, tokenLength);
+			token = larger;
+		}
+		token[tokenLength++] = b;
+	}
+
+	private String tokenAsString() {
+		return new String(token, 0, tokenLength, StandardCharsets.UTF_8);
+	}
+
+	private IllegalStateException error(final String msg) {
+		return new IllegalStateException(msg + " at offset " + offset);
+	}
+
+	/**
+	 * Replaces the predefined entity and character references in the given attribute value.
+	 *
+	 * @param value	the attribute value
+	 * @return	the value with all references replaced
+	 */
+	private String decodeReferences(final String value) {
+		int amp = value.indexOf('&');
+		if (amp < 0)
+			return value;
+		final StringBuilder decoded = new StringBuilder(value.length());
+		int i = 0;
+		while (amp >= 0) {
+			final int semicolon = value.indexOf(';', amp);
+			if (semicolon < 0)
+				throw error("Invalid reference in attribute value");
+			decoded.append(value, i, amp);
+			final String ref = value.substring(amp + 1, semicolon);
+			switch (ref) {
+			case "amp" : decoded.append('&'); break;
+			case "lt" : decoded.append('<'); break;
+			case "gt" : decoded.append('>'); break;
+			case "quot" : decoded.append('"'); break;
+			case "apos" : decoded.append('\''); break;
+			default :
+				try {
+					decoded.appendCodePoint(ref.startsWith("#x") ? Integer.parseInt(ref.substring(2), 16)
+																 : Integer.parseInt(ref.substring(1)));
+				} catch (IllegalArgumentException | StringIndexOutOfBoundsException invalidRef) {
+					throw error("Invalid reference &" + ref + "; in attribute value");
+				}
+			}
+			i = semicolon + 1;
+			amp = value.indexOf('&', i);
+		}
+		return decoded.append(value, i, value.length()).toString();
+	}
+
+	/**
+	 * Checks whether the given byte can be part of a name. All non ASCII bytes are accepted as they are part of a
+	 * multi-byte character.
+	 */
+	private static boolean isNameChar(final byte b) {
+		return b < 0 || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+				|| b == ':' || b == '_' || b == '-' || b == '.';
+	}
+
+	private static boolean isWhitespace(final byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+	}
+}
@@ -18,13 +18,32 @@ package org.holodeckb2b.commons.xml;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParserFactory;
+import javax.xml.parsers.SAXParser;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
+import org.holodeckb2b.commons.Pair;
+import org.holodeckb2b.commons.util.MultipartReader;
 import org.holodeckb2b.commons.util.Utils;
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
@@ -36,28 +55,133 @@ import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.NamespaceSupport;
 
 /**
- * Is a utility to parse the XML from an input stream and find the first occurrence of a specific element. If the 
- * element is found its DOM representation will be returned. The search can be limited to a number of elements that 
- * should be checked before giving up.   
+ * Is a utility to parse the XML from an input stream and find the first occurrence of a specific element or of each
+ * element of a set of elements. If an element is found its DOM representation will be returned. The search can be
+ * limited to a number of elements that should be checked before giving up.
+ * <p>When searching for multiple elements the input is parsed only once. Parsing stops as soon as all requested
+ * elements have been found. If one requested element is contained in another, both are extracted.
+ * <p>The XML can be parsed using either a SAX parser or a StAX stream reader, see {@link Engine}. Both engines give
+ * the same result. By default the SAX parser is used.
+ * <p>Instead of a DOM representation the XML of the found elements can be returned as string, see {@link
+ * #parseToString(InputStream, QName)}. Text that is reported by the parser in multiple parts is combined, so each
+ * text in the input results in just one text node.
+ * <p>When the exact bytes of an element are needed, {@link #findElementRange(ByteBuffer, QName)} can be used to find
+ * the location of the element in a buffer without parsing the XML.
+ * <p>The search can also be restricted to a specific part of the document by specifying the path to the element
+ * using a {@link XMLElementPath}, and parsing can be stopped at an element after which the requested elements cannot
+ * occur anymore, for example the SOAP Body when searching for a header, see {@link #parse(InputStream, XMLElementPath,
+ * QName, Engine)}. This makes the time needed to find an element independent of the size of the rest of the document.
+ * <p>When the XML is received in chunks and blocking on an input stream is not acceptable, the {@link
+ * AsyncXMLElementFinder} can be used.
+ * <p>To protect against hostile input all engines reject documents that contain a document type declaration, so no
+ * (external) entities or DTDs are processed. Furthermore the depth of the element tree and the number of attributes
+ * per element are limited, see {@link #MAX_DEPTH_PROPERTY} and {@link #MAX_ATTRIBUTES_PROPERTY}. When a limit is
+ * exceeded parsing is aborted immediately with an {@link IllegalStateException}.
  * 
  * @author Sander Fieten (sander at holodeck-b2b.org)
  */
 public class XMLElementFinder extends DefaultHandler {
-	// The DOM structure being build
-    private final Document document;
-    private Node currentNode;
+	/**
+	 * Enumerates the parsing engines that can be used by the finder.
+	 *
+	 * @since 1.6.0
+	 */
+	public enum Engine {
+		/**
+		 * Use a SAX parser, which reports every element, text and processing instruction to the finder.
+		 */
+		SAX,
+		/**
+		 * Use a StAX stream reader that is pulled by the finder, which only retrieves the names of elements and
+		 * only retrieves text and processing instructions while an element is being extracted.
+		 */
+		STAX
+	}
 
-    // Name of XML element to extract into W3C DOM Document
-    private QName elementToRead;
-    // Indicates whether "elementToRead" has been seen yet.
-    private boolean parsingActive;
+	/**
+	 * Name of the system property to set the maximum number of idle parsers kept in the pool
+	 * @since 1.6.0
+	 */
+	public static final String POOL_SIZE_PROPERTY = "org.holodeckb2b.commons.xml.parserPoolSize";
+
+	/**
+	 * Name of the system property to set the maximum depth of the element tree, i.e. the number of nested elements.
+	 * A value of 0 or less disables the limit. The default is {@value #DEFAULT_MAX_DEPTH}.
+	 * @since 1.6.0
+	 */
+	public static final String MAX_DEPTH_PROPERTY = "org.holodeckb2b.commons.xml.maxDepth";
+
+	/**
+	 * Name of the system property to set the maximum number of attributes, not including name space declarations, of
+	 * an element. A value of 0 or less disables the limit. The default is {@value #DEFAULT_MAX_ATTRIBUTES}.
+	 * @since 1.6.0
+	 */
+	public static final String MAX_ATTRIBUTES_PROPERTY = "org.holodeckb2b.commons.xml.maxAttributes";
+
+	/**
+	 * The default maximum depth of the element tree
+	 * @since 1.6.0
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 256;
+
+	/**
+	 * The default maximum number of attributes of an element
+	 * @since 1.6.0
+	 */
+	public static final int DEFAULT_MAX_ATTRIBUTES = 256;
+
+	// The limits that apply to the parsed documents, also used by the AsyncXMLElementFinder
+	static final int MAX_DEPTH = Integer.getInteger(MAX_DEPTH_PROPERTY, DEFAULT_MAX_DEPTH);
+	static final int MAX_ATTRIBUTES = Integer.getInteger(MAX_ATTRIBUTES_PROPERTY, DEFAULT_MAX_ATTRIBUTES);
+
+	// The pool of parsers and document builders shared by all finders
+	private static final XMLParserPool PARSER_POOL = new XMLParserPool(Integer.getInteger(POOL_SIZE_PROPERTY,
+														Math.max(8, 2 * Runtime.getRuntime().availableProcessors())));
+
+	// The factory for the StAX readers, which is thread safe once configured. DTDs are not supported and a document
+	// type declaration is rejected when encountered
+	private static final XMLInputFactory STAX_FACTORY;
+	static {
+		STAX_FACTORY = XMLInputFactory.newInstance();
+		STAX_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+		STAX_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+		STAX_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		STAX_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		STAX_FACTORY.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, Boolean.FALSE);
+	}
+
+	// The elements to find
+	private final Target[] targets;
+	// Indicates whether one of the elements is searched by path
+	private final boolean pathSearch;
+	// The element at which parsing is stopped, null if parsing continues until the end of the document
+	private final Target stopAt;
+	// Number of requested elements that have not been found yet
+	private int remaining;
+	// The elements found so far, with the requested name as key
+	private final Map<QName, Object> found;
+	// Indicates whether the found elements should be serialised to a string instead of converted to DOM
+	private final boolean toXMLString;
+	// The elements currently being extracted
+	private final List<Extraction> activeExtractions = new ArrayList<>();
+	// The text reported since the last element boundary, which will be added as one text node
+	private final StringBuilder textBuffer = new StringBuilder();
+	// The name space declarations in scope, only tracked when serialising to string
+	private final NamespaceSupport namespaces;
+	// Indicates whether a name space context was already created for the next element
+	private boolean namespaceContextPushed;
+	// The builder used to create the DOM Documents for the extracted elements, acquired on first use
+	private DocumentBuilder documentBuilder;
 
     // The maximum number of element to look at
     private int	maxElements;
     // Number of start elements seen
     int elementsSeen = 0;     
+    // Number of currently open elements
+    private int depth = 0;
     
     /**
      * Parses the given input stream until the specified element has been seen, after which the entire element
@@ -86,106 +210,542 @@ public class XMLElementFinder extends DefaultHandler {
      * 		   is not found before the given limit
      */
     public static Element parse(InputStream is, QName element, final int searchLimit) {
-    	final XMLElementFinder processor = new XMLElementFinder(element, searchLimit);
+    	return parse(is, element, searchLimit, Engine.SAX);
+    }  
+
+    /**
+     * Parses the given input stream using the specified engine until the specified element has been seen, after
+     * which the entire element is converted into a W3C DOM Element object. If the requested element has not been seen
+     * after reading <code>searchLimit</code> elements parsing is aborted.
+     *
+     * @param is			input stream to parse
+     * @param element		QName of searched element
+	 * @param searchLimit	maximum number of elements to check, -1 for no limit
+	 * @param engine		the parsing engine to use
+     * @return DOM Element instance of the searched element parsed from input stream, or <code>null</code> if element
+     * 		   is not found before the given limit
+     * @since 1.6.0
+     */
+    public static Element parse(InputStream is, QName element, final int searchLimit, final Engine engine) {
+    	return parse(is, Collections.singleton(element), searchLimit, engine).get(element);
+    }
+
+    /**
+     * Parses the given input stream until all specified elements have been seen and converts the first occurrence of
+     * each of them into a W3C DOM Element object. As in {@link #parse(InputStream, QName)} the search for an element
+     * is only name space aware if its name contains a name space URI.
+     *
+     * @param is 		input stream to parse
+     * @param elements 	QNames of the searched elements
+     * @return map containing the DOM Element instances of the found elements with the requested QName as key. When
+     * 		   an element is not found, the map will not contain an entry for it.
+     * @since 1.6.0
+     */
+    public static Map<QName, Element> parse(InputStream is, Collection<QName> elements) {
+    	return parse(is, elements, -1);
+    }
+
+    /**
+     * Parses the given input stream until all specified elements have been seen and converts the first occurrence of
+     * each of them into a W3C DOM Element object. Parsing is aborted if after reading <code>searchLimit</code>
+     * elements not all requested elements have been seen. Elements that are being extracted at that moment are
+     * completed.
+     *
+     * @param is			input stream to parse
+     * @param elements 		QNames of the searched elements
+	 * @param searchLimit	maximum number of elements to check
+     * @return map containing the DOM Element instances of the found elements with the requested QName as key. When
+     * 		   an element is not found before the given limit, the map will not contain an entry for it.
+     * @since 1.6.0
+     */
+    public static Map<QName, Element> parse(InputStream is, Collection<QName> elements, final int searchLimit) {
+    	return parse(is, elements, searchLimit, Engine.SAX);
+    }
+
+    /**
+     * Parses the given input stream using the specified engine until all specified elements have been seen and
+     * converts the first occurrence of each of them into a W3C DOM Element object.
+     *
+     * @param is			input stream to parse
+     * @param elements 		QNames of the searched elements
+	 * @param searchLimit	maximum number of elements to check, -1 for no limit
+	 * @param engine		the parsing engine to use
+     * @return map containing the DOM Element instances of the found elements with the requested QName as key. When
+     * 		   an element is not found before the given limit, the map will not contain an entry for it.
+     * @see #parse(InputStream, Collection, int)
+     * @since 1.6.0
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+	public static Map<QName, Element> parse(InputStream is, Collection<QName> elements, final int searchLimit,
+    										final Engine engine) {
+    	return (Map) find(is, elements, searchLimit, engine, false);
+    }
+
+    /**
+     * Parses the given input stream until the specified element has been seen or the specified stop element is
+     * encountered. When the stop element is encountered before the requested element, parsing is aborted. As in
+     * {@link #parse(InputStream, QName)} the search for both elements is only name space aware if their names contain
+     * a name space URI.
+     *
+     * @param is 		input stream to parse
+     * @param element 	QName of searched element
+     * @param stopAt	QName of the element at which parsing should stop
+     * @return DOM Element instance of the searched element parsed from input stream, or <code>null</code> if element
+     * 		   is not found before the stop element
+     * @since 1.6.0
+     */
+    public static Element parse(InputStream is, QName element, QName stopAt) {
+    	if (element == null)
+    		throw new IllegalArgumentException("Element to search for must be specified");
+    	return (Element) find(is, new Target[] { new Target(element) }, stopAt, -1, Engine.SAX, false)
+    																						.get(element);
+    }
+
+    /**
+     * Parses the given input stream until the element at the specified path has been seen, after which the entire
+     * element is converted into a W3C DOM Element object.
+     *
+     * @param is 		input stream to parse
+     * @param path	 	path to the searched element
+     * @return DOM Element instance of the searched element parsed from input stream, or <code>null</code> if element
+     * 		   is not found
+     * @see #parse(InputStream, XMLElementPath, QName, Engine)
+     * @since 1.6.0
+     */
+    public static Element parse(InputStream is, XMLElementPath path) {
+    	return parse(is, path, null, Engine.SAX);
+    }
+
+    /**
+     * Parses the given input stream using the specified engine until the first element at the specified path has been
+     * seen, after which the entire element is converted into a W3C DOM Element object.
+     * <p>Each step of the path that is not a wildcard is matched against the first element with that name only, i.e.
+     * parsing is aborted as soon as the first such element has ended without the requested element being found in
+     * it. For example when searching for <code>/Envelope/Header/*&#47;Messaging</code> parsing stops at the end of the
+     * SOAP Header. Additionally parsing can be stopped at a specific element, which is only checked for outside the
+     * element being extracted. When the StAX engine is used, the sub trees that cannot contain the requested element
+     * are skipped without further processing.
+     *
+     * @param is 		input stream to parse
+     * @param path	 	path to the searched element
+     * @param stopAt	QName of the element at which parsing should stop, <code>null</code> if there is no such element
+     * @param engine	the parsing engine to use
+     * @return DOM Element instance of the searched element parsed from input stream, or <code>null</code> if element
+     * 		   is not found
+     * @since 1.6.0
+     */
+    public static Element parse(InputStream is, XMLElementPath path, QName stopAt, final Engine engine) {
+    	if (path == null)
+    		throw new IllegalArgumentException("Path to the element to search for must be specified");
+    	return (Element) find(is, new Target[] { new Target(path) }, stopAt, -1, engine, false).get(path.getTarget());
+    }
+
+    /**
+     * Parses the root part of the given MIME multipart stream, like a SOAP with Attachments or MTOM message, until the
+     * specified element has been seen. The root part is located by scanning for the part boundaries and fed directly
+     * to the parser, so the multipart content does not need to be split first. The parts following the root part are
+     * not read and can be retrieved on demand from the returned {@link MultipartReader}.
+     *
+     * @param is 			input stream containing the multipart content
+     * @param contentType	the value of the Content-Type header of the multipart content, which must contain the
+     * 						boundary parameter
+     * @param element 		QName of searched element
+     * @return a pair consisting of the DOM Element instance of the searched element, or <code>null</code> if it is
+     * 		   not found in the root part, and the reader to read the remaining parts
+     * @throws IOException	when the multipart content cannot be read or does not contain the root part
+     * @throws IllegalArgumentException when the content type is not a multipart type or has no boundary
+     * @since 1.6.0
+     */
+    public static Pair<Element, MultipartReader> parseMultipart(InputStream is, String contentType, QName element)
+    																								throws IOException {
+    	final MultipartReader multipart = MultipartReader.fromContentType(is, contentType);
+    	final MultipartReader.Part root = multipart.getRootPart();
+    	if (root == null)
+    		throw new IOException("Multipart content does not contain the root part");
+    	return new Pair<>(parse(root.getContent(), element), multipart);
+    }
+
+    /**
+     * Parses the given input stream until the specified element has been seen and returns the XML of the element as
+     * a string. This avoids the construction of a DOM structure when only the XML of the element is needed, for
+     * example to forward it. Note that the returned XML is not an exact copy of the input as it is re-serialised from
+     * the parsed content. The name space declarations in scope of the element are declared on the root element of
+     * the returned XML, so it can be parsed on its own.
+     *
+     * @param is 		input stream to parse
+     * @param element 	QName of searched element
+     * @return the XML of the searched element, or <code>null</code> if element is not found
+     * @since 1.6.0
+     */
+    public static String parseToString(InputStream is, QName element) {
+    	return parseToString(is, Collections.singleton(element), -1, Engine.SAX).get(element);
+    }
+
+    /**
+     * Parses the given input stream using the specified engine until all specified elements have been seen and
+     * returns the XML of the first occurrence of each of them as a string.
+     *
+     * @param is			input stream to parse
+     * @param elements 		QNames of the searched elements
+	 * @param searchLimit	maximum number of elements to check, -1 for no limit
+	 * @param engine		the parsing engine to use
+     * @return map containing the XML of the found elements with the requested QName as key. When an element is not
+     * 		   found before the given limit, the map will not contain an entry for it.
+     * @see #parseToString(InputStream, QName)
+     * @since 1.6.0
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+	public static Map<QName, String> parseToString(InputStream is, Collection<QName> elements, final int searchLimit,
+    											   final Engine engine) {
+    	return (Map) find(is, elements, searchLimit, engine, true);
+    }
+
+    /**
+     * Parses the given input stream using the specified engine until all specified elements have been seen and
+     * extracts the first occurrence of each of them.
+     *
+     * @param is			input stream to parse
+     * @param elements 		QNames of the searched elements
+	 * @param searchLimit	maximum number of elements to check, -1 for no limit
+	 * @param engine		the parsing engine to use
+	 * @param toXMLString	indicates whether the elements should be extracted as string instead of DOM Element
+     * @return map containing the extracted elements with the requested QName as key
+     */
+    private static Map<QName, Object> find(InputStream is, Collection<QName> elements, final int searchLimit,
+    									   final Engine engine, final boolean toXMLString) {
+    	if (elements == null || elements.isEmpty())
+    		throw new IllegalArgumentException("At least one element to search for must be specified");
+    	final LinkedHashSet<QName> uniqueElements = new LinkedHashSet<>(elements);
+    	final Target[] targets = new Target[uniqueElements.size()];
+    	int i = 0;
+    	for (QName e : uniqueElements)
+    		targets[i++] = new Target(e);
+    	return find(is, targets, null, searchLimit, engine, toXMLString);
+    }
+
+    /**
+     * Parses the given input stream using the specified engine until all given targets have been seen or cannot occur
+     * anymore and extracts the first occurrence of each of them.
+     *
+     * @param is			input stream to parse
+     * @param targets 		the elements to search for
+     * @param stopAt		QName of the element at which parsing should stop, <code>null</code> if there is no such
+     * 						element
+	 * @param searchLimit	maximum number of elements to check, -1 for no limit
+	 * @param engine		the parsing engine to use
+	 * @param toXMLString	indicates whether the elements should be extracted as string instead of DOM Element
+     * @return map containing the extracted elements with the requested QName as key
+     */
+    private static Map<QName, Object> find(InputStream is, Target[] targets, final QName stopAt, final int searchLimit,
+    									   final Engine engine, final boolean toXMLString) {
+    	final XMLElementFinder processor = new XMLElementFinder(targets, stopAt, searchLimit, toXMLString);
     	try {
-            SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
-            saxParserFactory.setNamespaceAware(true);
-            XMLReader xmlReader = saxParserFactory.newSAXParser().getXMLReader();           
-            xmlReader.setContentHandler(processor);
-            xmlReader.parse(new InputSource(is));
+    		if (engine == Engine.STAX)
+    			processor.parseWithStAX(is);
+    		else
+    			processor.parseWithSAX(is);
+    	} finally {
+    		PARSER_POOL.release(processor.documentBuilder);
+    	}
+    	return processor.found;
+    }
 
-            return processor.document.getDocumentElement();
-        } catch(StopSaxParserException e){
-        	return processor.document != null ? processor.document.getDocumentElement() : null;
-        } catch (ParserConfigurationException | SAXException | IOException e) {
-            throw new IllegalStateException(e);
-        }
-    }  
+    /**
+     * Finds the specified element in the given buffer containing XML and returns the range of bytes that contain the
+     * element, from the '&lt;' of its start tag up to and including the '&gt;' of its end tag. The XML is not parsed
+     * but scanned for the start and end tags, so no DOM is constructed and the original bytes of the element are
+     * retained, which makes this method suitable for forwarding the element or verifying a signature over it. As in
+     * {@link #parse(InputStream, QName)} the search is only name space aware if the name contains a name space URI.
+     * <p>As the XML is scanned on the byte level only encodings compatible with US-ASCII, like UTF-8, are supported.
+     * Documents with a document type declaration are rejected and the same limits on depth and number of attributes
+     * apply as when parsing.
+     *
+     * @param xml		buffer containing the XML, starting at its current position
+     * @param element	QName of searched element
+     * @return	a new buffer sharing the content of the given buffer with its position and limit set to the start and
+     * 			end of the element, or <code>null</code> if the element is not found. The position of the given buffer
+     * 			is not changed.
+     * @throws IllegalStateException	when the XML is not well formed or uses an unsupported encoding
+     * @since 1.6.0
+     */
+    public static ByteBuffer findElementRange(final ByteBuffer xml, final QName element) {
+    	final Target target = new Target(element);
+    	final long[] range = { -1, -1 };
+    	final XMLByteScanner scanner = new XMLByteScanner(new XMLByteScanner.IHandler() {
+    		int depth = 0;
+
+			@Override
+			public boolean startElement(long offset, String namespaceURI, String localName, String qName) {
+				if (depth > 0)
+					depth++;
+				else if (target.matches(namespaceURI, localName)) {
+					range[0] = offset;
+					depth = 1;
+				}
+				return true;
+			}
+
+			@Override
+			public boolean endElement(long offset) {
+				if (depth > 0 && --depth == 0) {
+					range[1] = offset;
+					return false;
+				}
+				return true;
+			}
+		}, MAX_DEPTH, MAX_ATTRIBUTES);
+    	if (scanner.feed(xml.duplicate()))
+    		scanner.endOfInput();
+    	if (range[1] < 0)
+    		return null;
+
+    	final ByteBuffer elementRange = xml.duplicate();
+    	// Use the Buffer methods so the code links on Java 8 when built with a newer JDK
+    	((Buffer) elementRange).limit(xml.position() + (int) range[1]);
+    	((Buffer) elementRange).position(xml.position() + (int) range[0]);
+    	return elementRange;
+    }
 
     /**
-     * Creates a new instance of the parser to search for the given element with the given limit of elements to check.
+     * Finds the specified element in the XML document contained in the given file and returns the range of bytes that
+     * contain the element. The file is mapped into memory, so the content of the element is not copied.
+     *
+     * @param file		path of the file containing the XML document
+     * @param element	QName of searched element
+     * @return	a buffer mapped to the file with its position and limit set to the start and end of the element, or
+     * 			<code>null</code> if the element is not found
+     * @throws IOException	when the file cannot be read
+     * @throws IllegalStateException	when the XML is not well formed or uses an unsupported encoding
+     * @see #findElementRange(ByteBuffer, QName)
+     * @since 1.6.0
+     */
+    public static ByteBuffer findElementRange(final Path file, final QName element) throws IOException {
+    	try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+    		return findElementRange(fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size()), element);
+    	}
+    }
+
+    /**
+     * Creates a new instance of the parser to search for the given elements with the given limit of elements to check.
      * 
-     * @param element		QName of the element to read
+     * @param targets		the elements to read
+     * @param stopAt		QName of the element at which parsing should stop, <code>null</code> if there is no such
+     * 						element
      * @param searchLimit	maximum number of elements to check, -1 indicates no limit 
+     * @param toXMLString	indicates whether the elements should be extracted as string instead of DOM Element
      */
-    private XMLElementFinder(final QName element, final int searchLimit) {
-    	this.elementToRead = element;
+    private XMLElementFinder(final Target[] targets, final QName stopAt, final int searchLimit,
+    						 final boolean toXMLString) {
+    	this.targets = targets;
+    	boolean byPath = false;
+    	for (Target t : targets)
+    		byPath |= t.path != null;
+    	this.pathSearch = byPath;
+    	this.stopAt = stopAt != null ? new Target(stopAt) : null;
+    	this.remaining = targets.length;
+    	this.found = new HashMap<>(targets.length * 2);
     	this.maxElements = searchLimit;
-    	
-        try {
-            DocumentBuilder documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-            document = documentBuilder.newDocument();
-            currentNode = document;
-            parsingActive = false;
-        } catch (ParserConfigurationException e) {
+    	this.toXMLString = toXMLString;
+    	this.namespaces = toXMLString ? new NamespaceSupport() : null;
+    }    
+
+    /**
+     * Parses the input stream with a SAX parser from the pool, using this finder as content handler.
+     *
+     * @param is	input stream to parse
+     */
+    private void parseWithSAX(final InputStream is) {
+    	SAXParser saxParser = null;
+    	try {
+    		saxParser = PARSER_POOL.acquireSAXParser();
+            XMLReader xmlReader = saxParser.getXMLReader();           
+            xmlReader.setContentHandler(this);
+            xmlReader.setErrorHandler(this);
+            xmlReader.parse(new InputSource(is));
+        } catch(StopParsingException e){
+        	// Parsing was stopped because all elements were found or the limit was reached
+        } catch (ParserConfigurationException | SAXException | IOException e) {
             throw new IllegalStateException(e);
+        } finally {
+        	PARSER_POOL.release(saxParser);
         }
-    }    
-    
+    }
+
+    /**
+     * Parses the input stream with a StAX stream reader. Text and processing instructions are only retrieved from the
+     * reader when an element is being extracted.
+     *
+     * @param is	input stream to parse
+     */
+    private void parseWithStAX(final InputStream is) {
+    	XMLStreamReader reader = null;
+    	try {
+    		reader = STAX_FACTORY.createXMLStreamReader(is);
+    		while (reader.hasNext()) {
+    			switch (reader.next()) {
+    			case XMLStreamConstants.START_ELEMENT :
+    				if (namespaces != null) {
+    					namespaces.pushContext();
+    					for (int i = 0; i < reader.getNamespaceCount(); i++) {
+    						final String prefix = reader.getNamespacePrefix(i);
+    						final String nsURI = reader.getNamespaceURI(i);
+    						namespaces.declarePrefix(prefix == null ? "" : prefix, nsURI == null ? "" : nsURI);
+    					}
+    				}
+    				final String uri = reader.getNamespaceURI();
+    				if (checkStartElement(uri == null ? "" : uri, reader.getLocalName(), reader.getAttributeCount())) {
+    					startExtractedElement(uri, toQName(reader.getPrefix(), reader.getLocalName()));
+    					for (int i = 0; i < reader.getAttributeCount(); i++)
+    						addAttribute(reader.getAttributeNamespace(i),
+    									 toQName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+    									 reader.getAttributeValue(i));
+    				} else if (pathSearch && canSkip()) {
+    					skipSubtree(reader);
+    					if (namespaces != null)
+    						namespaces.popContext();
+    					leaveElement();
+    				}
+    				break;
+    			case XMLStreamConstants.END_ELEMENT :
+    				if (!activeExtractions.isEmpty())
+    					checkEndElement(toQName(reader.getPrefix(), reader.getLocalName()));
+    				if (namespaces != null)
+    					namespaces.popContext();
+    				leaveElement();
+    				break;
+    			case XMLStreamConstants.CHARACTERS :
+    			case XMLStreamConstants.CDATA :
+    			case XMLStreamConstants.SPACE :
+    				if (!activeExtractions.isEmpty())
+    					textBuffer.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+    				break;
+    			case XMLStreamConstants.PROCESSING_INSTRUCTION :
+    				if (!activeExtractions.isEmpty())
+    					appendProcessingInstruction(reader.getPITarget(), reader.getPIData());
+    				break;
+    			case XMLStreamConstants.DTD :
+    			case XMLStreamConstants.ENTITY_REFERENCE :
+    				throw new IllegalStateException("Document type declarations are not allowed");
+    			default:
+    			}
+    		}
+    	} catch (StopParsingException e) {
+    		// Parsing was stopped because all elements were found or the limit was reached
+    	} catch (XMLStreamException e) {
+    		throw new IllegalStateException(e);
+    	} finally {
+    		if (reader != null)
+    			try {
+    				reader.close();
+    			} catch (XMLStreamException closeFailure) {
+    				// Ignore, the reader is not used anymore
+    			}
+    	}
+    }
+
+    /**
+     * Checks whether the sub tree of the current element can be skipped because it cannot contain any of the elements
+     * that still need to be found.
+     *
+     * @return	<code>true</code> if the sub tree can be skipped, <code>false</code> if it must be processed
+     */
+    private boolean canSkip() {
+    	for (Target t : targets)
+    		if (t.canOccurBelow(depth))
+    			return false;
+    	return true;
+    }
+
+    /**
+     * Skips the sub tree of the current element. Only the elements are counted, checked against the depth and
+     * attribute limits and against the element at which parsing should stop. When the method returns the reader is
+     * positioned on the end of the current element.
+     *
+     * @param reader	the reader positioned on the start of the element whose sub tree is skipped
+     * @throws XMLStreamException	when an error occurs reading the XML
+     * @throws StopParsingException when the search limit or the element at which parsing should stop is reached
+     */
+    private void skipSubtree(final XMLStreamReader reader) throws XMLStreamException, StopParsingException {
+    	int level = 0;
+    	while (true) {
+    		switch (reader.next()) {
+    		case XMLStreamConstants.START_ELEMENT :
+    			if (++level + depth > MAX_DEPTH && MAX_DEPTH > 0)
+    				throw new IllegalStateException("Maximum element depth (" + MAX_DEPTH + ") exceeded at element "
+    												+ reader.getLocalName());
+    			if (reader.getAttributeCount() > MAX_ATTRIBUTES && MAX_ATTRIBUTES > 0)
+    				throw new IllegalStateException("Maximum number of attributes (" + MAX_ATTRIBUTES
+    												+ ") exceeded at element " + reader.getLocalName());
+    			if (stopAt != null && activeExtractions.isEmpty()) {
+    				final String uri = reader.getNamespaceURI();
+    				if (stopAt.matches(uri == null ? "" : uri, reader.getLocalName()))
+    					throw new StopParsingException();
+    			}
+    			if (maxElements > 0 && ++elementsSeen >= maxElements)
+    				throw new StopParsingException();
+    			break;
+    		case XMLStreamConstants.END_ELEMENT :
+    			if (level-- == 0)
+    				return;
+    			break;
+    		case XMLStreamConstants.DTD :
+    		case XMLStreamConstants.ENTITY_REFERENCE :
+    			throw new IllegalStateException("Document type declarations are not allowed");
+    		default:
+    		}
+    	}
+    }
+
     @Override
-    public void startElement(String uri, String name, String qName, Attributes attrs) throws StopSaxParserException {
-        elementsSeen++;
+    public void startPrefixMapping(String prefix, String uri) {
+    	if (namespaces == null)
+    		return;
+    	if (!namespaceContextPushed) {
+    		namespaces.pushContext();
+    		namespaceContextPushed = true;
+    	}
+    	namespaces.declarePrefix(prefix, uri);
+    }
 
-        // If this is the element we want to parse, activate parsing
-        parsingActive |= Utils.isNullOrEmpty(elementToRead.getNamespaceURI()) ? 
-											        					elementToRead.getLocalPart().equals(name) :
-											        					elementToRead.equals(new QName(uri, name));
-        	
-        // If parsing has not started after START_ELEMENTS_THRESHOLD, we abort parsing.
-        if (!parsingActive && maxElements > 0 && elementsSeen >= maxElements)
-        	throw new StopSaxParserException();
-
-        if (!parsingActive)
-            return;
-        
-        // Creates the element.
-        Element elem = document.createElementNS(uri, qName);
-
-        // Adds each attribute.
-        for (int i = 0; i < attrs.getLength(); ++i) {
-            final Attr attr = document.createAttributeNS(attrs.getURI(i), attrs.getQName(i));
-            attr.setValue(attrs.getValue(i));
-            elem.setAttributeNodeNS(attr);
-        }
+    @Override
+    public void startElement(String uri, String name, String qName, Attributes attrs) throws StopParsingException {
+    	if (namespaces != null) {
+    		if (!namespaceContextPushed)
+    			namespaces.pushContext();
+    		namespaceContextPushed = false;
+    	}
+    	if (!checkStartElement(uri, name, attrs.getLength()))
+    		return;
 
-        // Appends the element into the DOM tree
-        currentNode.appendChild(elem);
-        currentNode = elem;
+    	startExtractedElement(uri, qName);
+        for (int i = 0; i < attrs.getLength(); ++i)
+        	addAttribute(attrs.getURI(i), attrs.getQName(i), attrs.getValue(i));
     }
 
     @Override
-    public void endElement(String uri, String name, String qName) throws StopSaxParserException {
-        if (!parsingActive)
-            return;
-        
-        currentNode = currentNode.getParentNode();
-        if ((Utils.isNullOrEmpty(elementToRead.getNamespaceURI()) && elementToRead.getLocalPart().equals(name))
-        	|| elementToRead.equals(new QName(uri, name)))
-        	throw new StopSaxParserException();        
+    public void endElement(String uri, String name, String qName) throws StopParsingException {
+    	if (!activeExtractions.isEmpty())
+    		checkEndElement(qName);
+    	if (namespaces != null)
+    		namespaces.popContext();
+    	leaveElement();
     }
 
     @Override
     public void characters(char[] ch, int start, int length) {
-        if (!parsingActive)
-            return;
-        
-        currentNode.appendChild(document.createTextNode(new String(ch, start, length)));
+    	if (!activeExtractions.isEmpty())
+    		textBuffer.append(ch, start, length);
     }
 
     @Override
     public void ignorableWhitespace(char[] ch, int start, int length) {
-        if (!parsingActive)
-            return;
-        
-        currentNode.appendChild(document.createTextNode(new String(ch, start, length)));
+    	if (!activeExtractions.isEmpty())
+    		textBuffer.append(ch, start, length);
     }
 
     @Override
     public void processingInstruction(String target, String data) {
-        if (!parsingActive)
-            return;
-        
-        currentNode.appendChild(document.createProcessingInstruction(target, data));
+    	appendProcessingInstruction(target, data);
     }
 
     @Override
@@ -205,10 +765,485 @@ public class XMLElementFinder extends DefaultHandler {
     }
 
     /**
-     * Custom Exception used to abort the SAX call back parser.
+     * Gets the pool of parsers and document builders used by the finder, for example to inspect its metrics.
+     *
+     * @return	the parser pool
+     * @since 1.6.0
+     */
+    public static XMLParserPool getParserPool() {
+    	return PARSER_POOL;
+    }
+
+    /**
+     * Processes the start of an element. Checks whether the element is the first occurrence of one of the requested
+     * elements and if so starts its extraction. When the search limit has been reached and no element is being
+     * extracted parsing is stopped.
+     *
+     * @param uri			name space URI of the element, empty string if the element has no name space
+     * @param localName		local name of the element
+     * @param attributes	number of attributes of the element
+     * @return	<code>true</code> if the element must be added to the active extractions, <code>false</code> if not
+     * @throws StopParsingException	when the search limit has been reached
+     * @throws IllegalStateException when the maximum depth or number of attributes is exceeded
+     */
+    private boolean checkStartElement(final String uri, final String localName, final int attributes)
+    																					throws StopParsingException {
+        if (++depth > MAX_DEPTH && MAX_DEPTH > 0)
+        	throw new IllegalStateException("Maximum element depth (" + MAX_DEPTH + ") exceeded at element "
+        									+ localName);
+        if (attributes > MAX_ATTRIBUTES && MAX_ATTRIBUTES > 0)
+        	throw new IllegalStateException("Maximum number of attributes (" + MAX_ATTRIBUTES + ") exceeded at element "
+        									+ localName);
+        elementsSeen++;
+        flushText();
+
+        if (stopAt != null && activeExtractions.isEmpty() && stopAt.matches(uri, localName))
+        	throw new StopParsingException();
+
+        // Check if this is the first occurrence of one of the elements we want to parse
+        List<Target> matched = null;
+        for (Target t : targets) {
+        	if (!t.matched && !t.exhausted && t.matchesAt(depth, uri, localName)) {
+        		t.matched = true;
+        		if (matched == null)
+        			matched = new ArrayList<>(1);
+        		matched.add(t);
+        	}
+        }
+        if (matched != null)
+        	activeExtractions.add(toXMLString ? new XMLStringExtraction(matched, namespaces)
+        									  : new DOMExtraction(matched, newDocument()));
+
+        // If no element is being extracted after reaching the search limit, we abort parsing.
+        if (activeExtractions.isEmpty() && maxElements > 0 && elementsSeen >= maxElements)
+        	throw new StopParsingException();
+
+        return !activeExtractions.isEmpty();
+    }
+
+    /**
+     * Adds a new element to all active extractions.
+     *
+     * @param uri		name space URI of the element
+     * @param qName		qualified name, i.e. including prefix, of the element
+     */
+    private void startExtractedElement(final String uri, final String qName) {
+    	for (Extraction e : activeExtractions)
+    		e.startElement(uri, qName);
+    }
+
+    /**
+     * Adds an attribute to the element last added to the active extractions.
+     *
+     * @param uri		name space URI of the attribute
+     * @param qName		qualified name, i.e. including prefix, of the attribute
+     * @param value		value of the attribute
+     */
+    private void addAttribute(final String uri, final String qName, final String value) {
+    	for (Extraction e : activeExtractions)
+    		e.addAttribute(uri, qName, value);
+    }
+
+    /**
+     * Processes the end of an element. Completes the extractions of which the element has ended and stops parsing
+     * when all elements have been found or when the search limit has been reached and no element is being extracted
+     * anymore.
+     *
+     * @param qName		qualified name, i.e. including prefix, of the element
+     * @throws StopParsingException	when parsing can be stopped
+     */
+    private void checkEndElement(final String qName) throws StopParsingException {
+    	flushText();
+        for (Iterator<Extraction> it = activeExtractions.iterator(); it.hasNext();) {
+        	final Extraction e = it.next();
+        	if (e.endElement(qName)) {
+        		it.remove();
+        		final Object result = e.getResult();
+        		for (Target t : e.targets)
+        			found.put(t.name, result);
+        		remaining -= e.targets.size();
+        	}
+        }
+        if (remaining == 0
+        	|| (activeExtractions.isEmpty() && maxElements > 0 && elementsSeen >= maxElements))
+        	throw new StopParsingException();        
+    }
+
+    /**
+     * Processes the end of an element with regard to the search by path. When the end of the element means that none
+     * of the remaining elements can occur anymore, parsing is stopped.
+     *
+     * @throws StopParsingException	when parsing can be stopped
+     */
+    private void leaveElement() throws StopParsingException {
+    	if (pathSearch)
+    		for (Target t : targets)
+    			if (t.endElement(depth) && --remaining == 0 && activeExtractions.isEmpty())
+    				throw new StopParsingException();
+    	depth--;
+    }
+
+    /**
+     * Adds the text collected since the last element boundary to all active extractions. The text reported by the
+     * parser in multiple chunks is therefore added as a single text node.
+     */
+    private void flushText() {
+    	if (textBuffer.length() == 0)
+    		return;
+    	final String text = textBuffer.toString();
+    	textBuffer.setLength(0);
+    	for (Extraction e : activeExtractions)
+    		e.appendText(text);
+    }
+
+    /**
+     * Adds a processing instruction to all active extractions.
+     *
+     * @param target	target of the processing instruction
+     * @param data		data of the processing instruction
+     */
+    private void appendProcessingInstruction(final String target, final String data) {
+    	flushText();
+        for (Extraction e : activeExtractions)
+        	e.appendProcessingInstruction(target, data);
+    }
+
+    /**
+     * Creates a new DOM Document to extract a found element into.
+     *
+     * @return	a new empty Document
+     */
+    private Document newDocument() {
+    	if (documentBuilder == null)
+    		try {
+    			documentBuilder = PARSER_POOL.acquireDocumentBuilder();
+    		} catch (ParserConfigurationException e) {
+    			throw new IllegalStateException(e);
+    		}
+    	return documentBuilder.newDocument();
+    }
+
+    /**
+     * Gets the qualified name, i.e. including the prefix, of an element or attribute.
+     *
+     * @param prefix	the prefix, may be <code>null</code> or empty
+     * @param localName	the local name
+     * @return	the qualified name
+     */
+    private static String toQName(final String prefix, final String localName) {
+    	return prefix == null || prefix.isEmpty() ? localName : prefix + ':' + localName;
+    }
+
+    /**
+     * Represents a requested element. To make the check whether an element matches as cheap as possible, the name
+     * space URI and local name are interned so they can be compared by reference with the names reported by parsers
+     * that intern names, and it is determined up front whether the name space must be checked.
+     */
+    static final class Target {
+    	// The requested name
+    	final QName		name;
+    	// Interned local name
+    	final String	localName;
+    	// Interned name space URI, null if any name space matches
+    	final String	namespace;
+    	// The path to the element, null if the element can occur anywhere
+    	final XMLElementPath path;
+    	// Indicates whether the element has been found, i.e. it is being or has been extracted
+    	boolean			matched;
+    	// Indicates whether the element cannot occur anymore in the remainder of the document
+    	boolean			exhausted;
+    	// Number of steps of the path matched by the currently open elements
+    	int				pathDepth;
+
+    	Target(final QName name) {
+    		this(name, null);
+    	}
+
+    	Target(final XMLElementPath path) {
+    		this(path.getTarget(), path);
+    	}
+
+    	private Target(final QName name, final XMLElementPath path) {
+    		this.name = name;
+    		this.path = path;
+    		this.localName = name.getLocalPart().intern();
+    		this.namespace = Utils.isNullOrEmpty(name.getNamespaceURI()) ? null : name.getNamespaceURI().intern();
+    	}
+
+    	/**
+    	 * Checks whether the element with the given name at the given depth matches this target. When the target is
+    	 * searched by path, the element also needs to be on the path.
+    	 *
+    	 * @param depth	depth of the element, 1 for the root element
+    	 * @param uri	name space URI of the element
+    	 * @param local	local name of the element
+    	 * @return	<code>true</code> if the element matches, <code>false</code> otherwise
+    	 */
+    	boolean matchesAt(final int depth, final String uri, final String local) {
+    		if (path == null)
+    			return matches(uri, local);
+    		if (pathDepth != depth - 1 || depth > path.length() || !path.matches(depth - 1, uri, local))
+    			return false;
+    		pathDepth = depth;
+    		return depth == path.length();
+    	}
+
+    	/**
+    	 * Processes the end of an element when the target is searched by path. When the element was the first element
+    	 * matching a step of the path that is not a wildcard, the target cannot occur anymore.
+    	 *
+    	 * @param depth	depth of the element, 1 for the root element
+    	 * @return	<code>true</code> if the target became exhausted by the end of the element, <code>false</code> if not
+    	 */
+    	boolean endElement(final int depth) {
+    		if (path == null || pathDepth != depth)
+    			return false;
+    		pathDepth--;
+    		if (matched || exhausted || path.isWildcard(depth - 1))
+    			return false;
+    		exhausted = true;
+    		return true;
+    	}
+
+    	/**
+    	 * Indicates whether the sub tree of the element at the given depth can contain this target.
+    	 *
+    	 * @param depth	depth of the element, 1 for the root element
+    	 * @return	<code>true</code> if the target may be found in the sub tree, <code>false</code> if not
+    	 */
+    	boolean canOccurBelow(final int depth) {
+    		return !matched && !exhausted && (path == null || pathDepth == depth);
+    	}
+
+    	/**
+    	 * Checks whether the element with the given name matches this target.
+    	 *
+    	 * @param uri	name space URI of the element
+    	 * @param local	local name of the element
+    	 * @return	<code>true</code> if the element matches, <code>false</code> otherwise
+    	 */
+    	boolean matches(final String uri, final String local) {
+    		return (localName == local || localName.equals(local))
+    				&& (namespace == null || namespace == uri || namespace.equals(uri));
+    	}
+    }
+
+    /**
+     * Represents the extraction of a found element.
+     */
+    private abstract static class Extraction {
+    	// The requested elements that are satisfied by this extraction
+    	final List<Target>	targets;
+    	// The current depth within the extracted element
+    	int					depth = 0;
+
+    	Extraction(final List<Target> targets) {
+    		this.targets = targets;
+    	}
+
+    	/**
+    	 * Adds a new element to the extraction.
+    	 *
+    	 * @param uri		name space URI of the element
+    	 * @param qName		qualified name, i.e. including prefix, of the element
+    	 */
+    	abstract void startElement(String uri, String qName);
+
+    	/**
+    	 * Adds an attribute to the element last added to the extraction.
+    	 *
+    	 * @param uri		name space URI of the attribute
+    	 * @param qName		qualified name, i.e. including prefix, of the attribute
+    	 * @param value		value of the attribute
+    	 */
+    	abstract void addAttribute(String uri, String qName, String value);
+
+    	abstract void appendText(String text);
+
+    	abstract void appendProcessingInstruction(String target, String data);
+
+    	/**
+    	 * Ends the current element of the extraction.
+    	 *
+    	 * @param qName		qualified name, i.e. including prefix, of the element
+    	 * @return <code>true</code> if the extracted element is complete, <code>false</code> otherwise
+    	 */
+    	abstract boolean endElement(String qName);
+
+    	/**
+    	 * @return the extracted element
+    	 */
+    	abstract Object getResult();
+    }
+
+    /**
+     * Extracts the found element into its own DOM Document.
+     */
+    private static class DOMExtraction extends Extraction {
+    	// The DOM structure being build
+    	final Document		document;
+    	Node				currentNode;
+
+    	DOMExtraction(final List<Target> targets, final Document document) {
+    		super(targets);
+    		this.document = document;
+    		this.currentNode = document;
+    	}
+
+    	@Override
+    	void startElement(String uri, String qName) {
+            // Creates the element and appends it into the DOM tree
+            Element elem = document.createElementNS(uri, qName);
+            currentNode.appendChild(elem);
+            currentNode = elem;
+            depth++;
+    	}
+
+    	@Override
+    	void addAttribute(String uri, String qName, String value) {
+    		final Attr attr = document.createAttributeNS(uri, qName);
+    		attr.setValue(value);
+    		((Element) currentNode).setAttributeNodeNS(attr);
+    	}
+
+    	@Override
+    	void appendText(String text) {
+    		currentNode.appendChild(document.createTextNode(text));
+    	}
+
+    	@Override
+    	void appendProcessingInstruction(String target, String data) {
+    		currentNode.appendChild(document.createProcessingInstruction(target, data));
+    	}
+
+    	@Override
+    	boolean endElement(String qName) {
+    		currentNode = currentNode.getParentNode();
+    		return --depth == 0;
+    	}
+
+    	@Override
+    	Object getResult() {
+    		return document.getDocumentElement();
+    	}
+    }
+
+    /**
+     * Extracts the found element by serialising it to a string.
+     */
+    private static class XMLStringExtraction extends Extraction {
+    	// The XML of the element
+    	final StringBuilder		xml = new StringBuilder(256);
+    	// The name space declarations in scope
+    	final NamespaceSupport	namespaces;
+    	// Indicates whether the start tag of the current element is not closed yet
+    	boolean					startTagOpen;
+
+    	XMLStringExtraction(final List<Target> targets, final NamespaceSupport namespaces) {
+    		super(targets);
+    		this.namespaces = namespaces;
+    	}
+
+    	@Override
+    	void startElement(String uri, String qName) {
+    		closeStartTag();
+    		xml.append('<').append(qName);
+    		// The root element must declare all name spaces in scope, child elements only their own declarations
+    		final Enumeration<?> prefixes = depth == 0 ? namespaces.getPrefixes() : namespaces.getDeclaredPrefixes();
+    		while (prefixes.hasMoreElements()) {
+    			final String prefix = (String) prefixes.nextElement();
+    			if (!"xml".equals(prefix) && !prefix.isEmpty())
+    				appendAttribute("xmlns:" + prefix, namespaces.getURI(prefix));
+    		}
+    		final String defaultNS = namespaces.getURI("");
+    		if (depth == 0 ? !Utils.isNullOrEmpty(defaultNS) : isDeclaredHere(""))
+    			appendAttribute("xmlns", defaultNS == null ? "" : defaultNS);
+    		startTagOpen = true;
+    		depth++;
+    	}
+
+    	@Override
+    	void addAttribute(String uri, String qName, String value) {
+    		appendAttribute(qName, value);
+    	}
+
+    	@Override
+    	void appendText(String text) {
+    		closeStartTag();
+    		for (int i = 0; i < text.length(); i++) {
+    			final char c = text.charAt(i);
+    			switch (c) {
+    			case '&' : xml.append("&amp;"); break;
+    			case '<' : xml.append("&lt;"); break;
+    			case '>' : xml.append("&gt;"); break;
+    			case '\r' : xml.append("&#xD;"); break;
+    			default : xml.append(c);
+    			}
+    		}
+    	}
+
+    	@Override
+    	void appendProcessingInstruction(String target, String data) {
+    		closeStartTag();
+    		xml.append("<?").append(target);
+    		if (!Utils.isNullOrEmpty(data))
+    			xml.append(' ').append(data);
+    		xml.append("?>");
+    	}
+
+    	@Override
+    	boolean endElement(String qName) {
+    		if (startTagOpen) {
+    			xml.append("/>");
+    			startTagOpen = false;
+    		} else
+    			xml.append("</").append(qName).append('>');
+    		return --depth == 0;
+    	}
+
+    	@Override
+    	Object getResult() {
+    		return xml.toString();
+    	}
+
+    	private boolean isDeclaredHere(final String prefix) {
+    		final Enumeration<?> declared = namespaces.getDeclaredPrefixes();
+    		while (declared.hasMoreElements())
+    			if (prefix.equals(declared.nextElement()))
+    				return true;
+    		return false;
+    	}
+
+    	private void closeStartTag() {
+    		if (startTagOpen) {
+    			xml.append('>');
+    			startTagOpen = false;
+    		}
+    	}
+
+    	private void appendAttribute(final String qName, final String value) {
+    		xml.append(' ').append(qName).append("=\"");
+    		for (int i = 0; i < value.length(); i++) {
+    			final char c = value.charAt(i);
+    			switch (c) {
+    			case '&' : xml.append("&amp;"); break;
+    			case '<' : xml.append("&lt;"); break;
+    			case '"' : xml.append("&quot;"); break;
+    			case '\t' : xml.append("&#x9;"); break;
+    			case '\n' : xml.append("&#xA;"); break;
+    			case '\r' : xml.append("&#xD;"); break;
+    			default : xml.append(c);
+    			}
+    		}
+    		xml.append('"');
+    	}
+    }
+
+    /**
+     * Custom Exception used to abort parsing.
      */
     @SuppressWarnings("serial")
-    private class StopSaxParserException extends SAXException {
+    private static class StopParsingException extends SAXException {
     }
 	
 }
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.xml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.holodeckb2b.commons.util.Utils;
+
+/**
+ * Represents an absolute path to an element in an XML document that can be used to limit the search of the {@link
+ * XMLElementFinder} to a specific part of the document. The path consists of steps that each match one level of the
+ * element tree, starting with the root element. A step matches an element when its local name and, if specified,
+ * name space URI are equal. The local name <code>*</code> matches any element (in the given name space).
+ * <p>A path can be created from its string representation using {@link #compile(String)}, in which the steps are
+ * separated by a <code>/</code> and the name space URI of a step can be specified in Clark notation, e.g.
+ * <code>/{http://www.w3.org/2003/05/soap-envelope}Envelope/*&#47;Header/*&#47;Messaging</code>. Steps without name
+ * space URI match elements in any name space.
+ * <p>Instances of this class are immutable and can be shared between threads.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 1.6.0
+ */
+public final class XMLElementPath {
+	/**
+	 * The local name that matches any element
+	 */
+	public static final String WILDCARD = "*";
+
+	// The steps of the path
+	private final QName[]	steps;
+	// Interned local names of the steps, null for a wildcard
+	private final String[]	localNames;
+	// Interned name space URIs of the steps, null if any name space matches
+	private final String[]	namespaces;
+
+	private XMLElementPath(final QName[] steps) {
+		if (steps == null || steps.length == 0)
+			throw new IllegalArgumentException("Path must contain at least one step");
+		this.steps = steps.clone();
+		this.localNames = new String[steps.length];
+		this.namespaces = new String[steps.length];
+		for (int i = 0; i < steps.length; i++) {
+			if (steps[i] == null || Utils.isNullOrEmpty(steps[i].getLocalPart()))
+				throw new IllegalArgumentException("Step " + i + " has no local name");
+			localNames[i] = WILDCARD.equals(steps[i].getLocalPart()) ? null : steps[i].getLocalPart().intern();
+			namespaces[i] = Utils.isNullOrEmpty(steps[i].getNamespaceURI()) ? null
+																			 : steps[i].getNamespaceURI().intern();
+		}
+	}
+
+	/**
+	 * Creates a path with the given steps.
+	 *
+	 * @param steps	the names of the elements on the path, starting with the root element
+	 * @return	the path
+	 * @throws IllegalArgumentException	when no steps are given or a step has no local name
+	 */
+	public static XMLElementPath of(final QName... steps) {
+		return new XMLElementPath(steps);
+	}
+
+	/**
+	 * Creates a path from its string representation, in which each step is preceded by a <code>/</code> and consists
+	 * of a local name optionally preceded by the name space URI between braces.
+	 *
+	 * @param path	the string representation of the path, e.g. <code>/Envelope/Header/*&#47;Messaging</code>
+	 * @return	the path
+	 * @throws IllegalArgumentException	when the given string is not a valid path
+	 */
+	public static XMLElementPath compile(final String path) {
+		if (Utils.isNullOrEmpty(path) || path.charAt(0) != '/')
+			throw new IllegalArgumentException("Path must start with /");
+		final List<QName> steps = new ArrayList<>();
+		int i = 0;
+		while (i < path.length()) {
+			if (path.charAt(i++) != '/')
+				throw new IllegalArgumentException("Expected / at position " + (i - 1));
+			String namespace = "";
+			if (i < path.length() && path.charAt(i) == '{') {
+				final int close = path.indexOf('}', i);
+				if (close < 0)
+					throw new IllegalArgumentException("Unterminated name space URI at position " + i);
+				namespace = path.substring(i + 1, close);
+				i = close + 1;
+			}
+			int end = path.indexOf('/', i);
+			if (end < 0)
+				end = path.length();
+			if (end == i)
+				throw new IllegalArgumentException("Missing local name at position " + i);
+			steps.add(new QName(namespace, path.substring(i, end)));
+			i = end;
+		}
+		return new XMLElementPath(steps.toArray(new QName[steps.size()]));
+	}
+
+	/**
+	 * @return	the number of steps in the path
+	 */
+	public int length() {
+		return steps.length;
+	}
+
+	/**
+	 * Gets the given step of the path.
+	 *
+	 * @param i	index of the step, 0 for the root element
+	 * @return	the name of the element at the step
+	 */
+	public QName getStep(final int i) {
+		return steps[i];
+	}
+
+	/**
+	 * @return	the name of the element the path leads to, i.e. its last step
+	 */
+	public QName getTarget() {
+		return steps[steps.length - 1];
+	}
+
+	/**
+	 * Indicates whether the given step matches any element.
+	 *
+	 * @param i	index of the step
+	 * @return	<code>true</code> if the step matches any element in any name space, <code>false</code> otherwise
+	 */
+	boolean isWildcard(final int i) {
+		return localNames[i] == null && namespaces[i] == null;
+	}
+
+	/**
+	 * Checks whether the element with the given name matches the given step of the path.
+	 *
+	 * @param i		index of the step
+	 * @param uri	name space URI of the element
+	 * @param local	local name of the element
+	 * @return	<code>true</code> if the element matches the step, <code>false</code> otherwise
+	 */
+	boolean matches(final int i, final String uri, final String local) {
+		final String l = localNames[i];
+		final String ns = namespaces[i];
+		return (l == null || l == local || l.equals(local)) && (ns == null || ns == uri || ns.equals(uri));
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		return o instanceof XMLElementPath && Arrays.equals(steps, ((XMLElementPath) o).steps);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(steps);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		for (QName s : steps)
+			sb.append('/').append(s);
+		return sb.toString();
+	}
+}
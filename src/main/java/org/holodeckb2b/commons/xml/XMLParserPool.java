@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.xml;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Is a thread safe pool of name space aware {@link SAXParser} and {@link DocumentBuilder} instances. Creating these
+ * instances is relatively expensive as it involves looking up the implementation and loading its classes, so reusing
+ * them improves performance when many documents are parsed.
+ * <p>A parser or builder acquired from the pool must be released to the pool when it is not used anymore. On release
+ * it is reset to its initial configuration, so it can be used safely by the next user. When no instance is available
+ * on acquisition a new one is created, which is counted as a <i>miss</i>. When the pool is full on release the
+ * instance is discarded, so the number of idle instances is bounded by the maximum size of the pool.
+ * <p>The parsers and builders are configured securely: document type declarations are not allowed, external entities
+ * and DTDs are not loaded, XInclude is not processed and the JAXP secure processing feature, which limits among others
+ * the expansion of entities, is enabled. If the implementation does not support disallowing document type
+ * declarations, the pool falls back to only disabling the loading of external entities and DTDs.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 1.6.0
+ */
+public class XMLParserPool {
+
+	private static final String DISALLOW_DOCTYPE = "http://apache.org/xml/features/disallow-doctype-decl";
+	private static final String EXTERNAL_GENERAL_ENTITIES = "http://xml.org/sax/features/external-general-entities";
+	private static final String EXTERNAL_PARAMETER_ENTITIES =
+																"http://xml.org/sax/features/external-parameter-entities";
+	private static final String LOAD_EXTERNAL_DTD = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
+
+	private final SAXParserFactory					saxParserFactory;
+	private final DocumentBuilderFactory			documentBuilderFactory;
+
+	private final BlockingQueue<SAXParser>			saxParsers;
+	private final BlockingQueue<DocumentBuilder>	documentBuilders;
+
+	private final LongAdder		hits = new LongAdder();
+	private final LongAdder		misses = new LongAdder();
+
+	/**
+	 * Creates a new pool that holds at most the given number of idle parsers and builders.
+	 *
+	 * @param maxSize	maximum number of idle parsers and of idle builders kept in the pool
+	 */
+	public XMLParserPool(final int maxSize) {
+		if (maxSize < 1)
+			throw new IllegalArgumentException("Pool size must be positive");
+
+		try {
+			saxParserFactory = SAXParserFactory.newInstance();
+			saxParserFactory.setNamespaceAware(true);
+			saxParserFactory.setXIncludeAware(false);
+			saxParserFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+			try {
+				saxParserFactory.setFeature(DISALLOW_DOCTYPE, true);
+			} catch (ParserConfigurationException | SAXException notSupported) {
+				saxParserFactory.setFeature(EXTERNAL_GENERAL_ENTITIES, false);
+				saxParserFactory.setFeature(EXTERNAL_PARAMETER_ENTITIES, false);
+			}
+			trySetFeature(saxParserFactory, LOAD_EXTERNAL_DTD, false);
+
+			documentBuilderFactory = DocumentBuilderFactory.newInstance();
+			documentBuilderFactory.setNamespaceAware(true);
+			documentBuilderFactory.setXIncludeAware(false);
+			documentBuilderFactory.setExpandEntityReferences(false);
+			documentBuilderFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+			try {
+				documentBuilderFactory.setFeature(DISALLOW_DOCTYPE, true);
+			} catch (ParserConfigurationException notSupported) {
+				documentBuilderFactory.setFeature(EXTERNAL_GENERAL_ENTITIES, false);
+				documentBuilderFactory.setFeature(EXTERNAL_PARAMETER_ENTITIES, false);
+			}
+		} catch (ParserConfigurationException | SAXException secureConfigNotSupported) {
+			throw new IllegalStateException("XML parser does not support secure configuration",
+											secureConfigNotSupported);
+		}
+
+		saxParsers = new ArrayBlockingQueue<>(maxSize);
+		documentBuilders = new ArrayBlockingQueue<>(maxSize);
+	}
+
+	/**
+	 * Sets an optional feature of the SAX parser factory, ignoring it when the feature is not supported.
+	 */
+	private static void trySetFeature(final SAXParserFactory factory, final String feature, final boolean value) {
+		try {
+			factory.setFeature(feature, value);
+		} catch (ParserConfigurationException | SAXException notSupported) {
+			// Optional feature
+		}
+	}
+
+	/**
+	 * Gets a SAX parser from the pool, or creates a new one if none is available.
+	 *
+	 * @return	a name space aware SAX parser
+	 * @throws ParserConfigurationException	when a new parser cannot be created
+	 * @throws SAXException	when a new parser cannot be created
+	 */
+	public SAXParser acquireSAXParser() throws ParserConfigurationException, SAXException {
+		final SAXParser parser = saxParsers.poll();
+		if (parser != null) {
+			hits.increment();
+			return parser;
+		}
+		misses.increment();
+		synchronized (saxParserFactory) {
+			return saxParserFactory.newSAXParser();
+		}
+	}
+
+	/**
+	 * Returns the given SAX parser to the pool. If the parser cannot be reset or the pool is full, it is discarded.
+	 *
+	 * @param parser	the parser to return to the pool
+	 */
+	public void release(final SAXParser parser) {
+		if (parser == null)
+			return;
+		try {
+			parser.reset();
+			saxParsers.offer(parser);
+		} catch (UnsupportedOperationException resetNotSupported) {
+			// Parser cannot be reused
+		}
+	}
+
+	/**
+	 * Gets a document builder from the pool, or creates a new one if none is available.
+	 *
+	 * @return	a name space aware document builder
+	 * @throws ParserConfigurationException	when a new builder cannot be created
+	 */
+	public DocumentBuilder acquireDocumentBuilder() throws ParserConfigurationException {
+		final DocumentBuilder builder = documentBuilders.poll();
+		if (builder != null) {
+			hits.increment();
+			return builder;
+		}
+		misses.increment();
+		synchronized (documentBuilderFactory) {
+			return documentBuilderFactory.newDocumentBuilder();
+		}
+	}
+
+	/**
+	 * Returns the given document builder to the pool. If the builder cannot be reset or the pool is full, it is
+	 * discarded.
+	 *
+	 * @param builder	the builder to return to the pool
+	 */
+	public void release(final DocumentBuilder builder) {
+		if (builder == null)
+			return;
+		try {
+			builder.reset();
+			documentBuilders.offer(builder);
+		} catch (UnsupportedOperationException resetNotSupported) {
+			// Builder cannot be reused
+		}
+	}
+
+	/**
+	 * @return the number of times a parser or builder could be taken from the pool
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the number of times a new parser or builder had to be created because none was available in the pool
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return the number of idle SAX parsers currently in the pool
+	 */
+	public int getIdleSAXParsers() {
+		return saxParsers.size();
+	}
+
+	/**
+	 * @return the number of idle document builders currently in the pool
+	 */
+	public int getIdleDocumentBuilders() {
+		return documentBuilders.size();
+	}
+}
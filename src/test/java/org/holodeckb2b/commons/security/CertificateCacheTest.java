@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.holodeckb2b.commons.testing.TestUtils;
+import org.junit.jupiter.api.Test;
+
+class CertificateCacheTest {
+
+	private static byte[] readCert() throws Exception {
+		return Files.readAllBytes(TestUtils.getTestResource("certificateutilstest/partya.der"));
+	}
+
+	private static CertificateCache.IDecoder decoder(final byte[] der, final AtomicInteger count) {
+		return () -> {
+			count.incrementAndGet();
+			return (X509Certificate) CertificateFactory.getInstance("X.509")
+														.generateCertificate(new ByteArrayInputStream(der));
+		};
+	}
+
+	@Test
+	void testHitAndMiss() throws Exception {
+		final byte[] der = readCert();
+		final AtomicInteger decoded = new AtomicInteger();
+		final CertificateCache cache = CertificateCache.builder().build();
+
+		X509Certificate first = cache.get(der, decoder(der, decoded));
+		X509Certificate second = cache.get(der.clone(), decoder(der, decoded));
+		assertSame(first, second);
+		assertEquals(1, decoded.get());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.size());
+
+		assertSame(first, cache.get("b64", () -> first));
+		assertSame(first, cache.get("b64", decoder(der, decoded)));
+		assertEquals(1, decoded.get());
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		cache.get(der, decoder(der, decoded));
+		assertEquals(2, decoded.get());
+	}
+
+	@Test
+	void testKeyIsCopied() throws Exception {
+		final byte[] der = readCert();
+		final byte[] modified = der.clone();
+		final AtomicInteger decoded = new AtomicInteger();
+		final CertificateCache cache = CertificateCache.builder().build();
+
+		cache.get(modified, decoder(der, decoded));
+		modified[0] = (byte) ~modified[0];
+		cache.get(der, decoder(der, decoded));
+		assertEquals(1, decoded.get());
+	}
+
+	@Test
+	void testMaxSize() throws Exception {
+		final byte[] der = readCert();
+		final AtomicInteger decoded = new AtomicInteger();
+		final CertificateCache cache = CertificateCache.builder().maxSize(2).build();
+
+		cache.get("a", decoder(der, decoded));
+		cache.get("b", decoder(der, decoded));
+		cache.get("c", decoder(der, decoded));
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+
+		cache.get("c", decoder(der, decoded));
+		assertEquals(3, decoded.get());
+		cache.get("a", decoder(der, decoded));
+		assertEquals(4, decoded.get());
+		assertEquals(2, cache.getEvictions());
+	}
+
+	@Test
+	void testTimeToLive() throws Exception {
+		final byte[] der = readCert();
+		final AtomicInteger decoded = new AtomicInteger();
+		final CertificateCache cache = CertificateCache.builder().timeToLive(Duration.ofMillis(20)).build();
+
+		cache.get(der, decoder(der, decoded));
+		cache.get(der, decoder(der, decoded));
+		assertEquals(1, decoded.get());
+		Thread.sleep(50);
+		cache.get(der, decoder(der, decoded));
+		assertEquals(2, decoded.get());
+		assertEquals(1, cache.getEvictions());
+		assertEquals(1, cache.size());
+
+		// Expired certificates that are not requested anymore are evicted when a new certificate is added
+		cache.get("a", decoder(der, decoded));
+		cache.get("b", decoder(der, decoded));
+		assertEquals(3, cache.size());
+		Thread.sleep(50);
+		cache.get("c", decoder(der, decoded));
+		assertEquals(1, cache.size());
+		assertEquals(4, cache.getEvictions());
+		cache.get("c", decoder(der, decoded));
+		assertEquals(5, decoded.get());
+	}
+
+	@Test
+	void testDecodingFailure() {
+		final CertificateCache cache = CertificateCache.builder().build();
+		assertThrows(CertificateException.class, () -> cache.get("invalid", () -> {
+																throw new CertificateException();
+															}));
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	void testInvalidConfig() {
+		assertThrows(IllegalArgumentException.class, () -> CertificateCache.builder().maxSize(0));
+		assertThrows(IllegalArgumentException.class, () -> CertificateCache.builder().timeToLive(Duration.ZERO));
+	}
+}
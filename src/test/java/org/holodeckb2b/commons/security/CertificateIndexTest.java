@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.holodeckb2b.commons.testing.TestUtils;
+import org.junit.jupiter.api.Test;
+
+class CertificateIndexTest {
+
+	private static X509Certificate loadCert(String name) throws Exception {
+		return CertificateUtils.getCertificate(TestUtils.getTestResource("certificateutilstest/" + name));
+	}
+
+	@Test
+	void testLookups() throws Exception {
+		X509Certificate partyA = loadCert("partya.cert");
+		X509Certificate device = loadCert("device.cert");
+		CertificateIndex index = new CertificateIndex(Arrays.asList(partyA, device));
+		assertEquals(2, index.size());
+
+		assertSame(partyA, index.findBySKI(CertificateUtils.getSKI(partyA)));
+		assertSame(device, index.findBySKI(CertificateUtils.getSKI(device)));
+		assertNull(index.findBySKI(new byte[20]));
+		assertEquals(1, index.findAllBySKI(CertificateUtils.getSKI(device)).size());
+		assertTrue(index.findAllBySKI(new byte[20]).isEmpty());
+
+		assertSame(partyA, index.findByIssuerSerial(partyA.getIssuerX500Principal(), partyA.getSerialNumber()));
+		assertSame(partyA, index.findByIssuerSerial(new X500Principal("CN=ca.examples.holodeck-b2b.org, "
+												+ "OU=Holodeck B2B Support, O=Chasquis, C=NL"), BigInteger.valueOf(0x1005)));
+		assertSame(device, index.findByIssuerSerial(device.getIssuerX500Principal(), device.getSerialNumber()));
+		assertNull(index.findByIssuerSerial(partyA.getIssuerX500Principal(), BigInteger.ONE));
+		assertNull(index.findByIssuerSerial(new X500Principal("CN=Tester, OU=Testing, O=HolodeckB2B, C=NL"),
+											partyA.getSerialNumber()));
+
+		assertSame(partyA, index.findByThumbprint(MessageDigest.getInstance("SHA-1").digest(partyA.getEncoded())));
+		assertSame(device, index.findByThumbprint(MessageDigest.getInstance("SHA-256").digest(device.getEncoded())));
+		assertNull(index.findByThumbprint(MessageDigest.getInstance("SHA-512").digest(device.getEncoded())));
+		assertNull(index.findByThumbprint(new byte[32]));
+	}
+
+	@Test
+	void testAddRemove() throws Exception {
+		X509Certificate partyA = loadCert("partya.cert");
+		CertificateIndex index = new CertificateIndex();
+
+		assertTrue(index.add(partyA));
+		assertFalse(index.add(loadCert("partya.der")));
+		assertEquals(1, index.size());
+		assertTrue(index.contains(partyA));
+
+		assertTrue(index.remove(loadCert("partya.der")));
+		assertFalse(index.remove(partyA));
+		assertFalse(index.contains(partyA));
+		assertEquals(0, index.size());
+		assertNull(index.findBySKI(CertificateUtils.getSKI(partyA)));
+		assertNull(index.findByIssuerSerial(partyA.getIssuerX500Principal(), partyA.getSerialNumber()));
+		assertNull(index.findByThumbprint(MessageDigest.getInstance("SHA-1").digest(partyA.getEncoded())));
+
+		index.add(partyA);
+		index.add(loadCert("device.cert"));
+		index.clear();
+		assertEquals(0, index.size());
+		assertTrue(index.getAll().isEmpty());
+	}
+
+	@Test
+	void testAddKeystore() throws Exception {
+		KeyStore trustStore = KeystoreUtils.load(TestUtils.getTestResource("keystoreutilstest/trustedcerts.jks"),
+												 "trusted");
+		CertificateIndex index = new CertificateIndex();
+		index.addAll(trustStore);
+
+		assertEquals(trustStore.size(), index.size());
+		for (X509Certificate c : index.getAll())
+			assertSame(c, index.findByIssuerSerial(c.getIssuerX500Principal(), c.getSerialNumber()));
+	}
+
+	@Test
+	void testConcurrentLookups() throws Exception {
+		X509Certificate partyA = loadCert("partya.cert");
+		X509Certificate device = loadCert("device.cert");
+		CertificateIndex index = new CertificateIndex(Arrays.asList(partyA));
+		byte[] ski = CertificateUtils.getSKI(partyA);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<?> writer = executor.submit(() -> {
+				for (int i = 0; i < 1000; i++) {
+					index.add(device);
+					index.remove(device);
+				}
+			});
+			List<Future<?>> readers = new ArrayList<>();
+			for (int t = 0; t < 3; t++)
+				readers.add(executor.submit(() -> {
+					while (!writer.isDone())
+						assertSame(partyA, index.findBySKI(ski));
+					return null;
+				}));
+			writer.get();
+			for (Future<?> r : readers)
+				r.get();
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, index.size());
+	}
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.security;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.holodeckb2b.commons.testing.TestUtils;
+import org.junit.jupiter.api.Test;
+
+class CertificateInfoTest {
+
+	private static X509Certificate loadCert(String name) throws Exception {
+		return CertificateUtils.getCertificate(TestUtils.getTestResource("certificateutilstest/" + name));
+	}
+
+	@Test
+	void testDNFields() throws Exception {
+		CertificateInfo info = CertificateInfo.of(loadCert("partya.cert"));
+
+		assertEquals("CN=partya.examples.holodeck-b2b.com,OU=Holodeck B2B Support,O=Chasquis,C=NL",
+					 info.getSubjectName());
+		assertEquals("partya.examples.holodeck-b2b.com", info.getSubjectCN());
+		assertNull(info.getSubjectSN());
+		assertEquals("Chasquis", info.getSubjectDNField(BCStyle.O));
+		assertNull(info.getSubjectDNField(BCStyle.L));
+		assertEquals("CN=ca.examples.holodeck-b2b.org,OU=Holodeck B2B Support,O=Chasquis,C=NL",
+					 info.getIssuerName());
+		assertEquals("ca.examples.holodeck-b2b.org", info.getIssuerCN());
+
+		assertEquals("000102637-T", CertificateInfo.of(loadCert("device.cert")).getSubjectSN());
+	}
+
+	@Test
+	void testSameAsCertificateUtils() throws Exception {
+		for (String name : new String[] { "partya.cert", "device.cert" }) {
+			X509Certificate cert = loadCert(name);
+			CertificateInfo info = CertificateInfo.of(cert);
+			assertEquals(CertificateUtils.getSubjectName(cert), info.getSubjectName());
+			assertEquals(CertificateUtils.getSubjectCN(cert), info.getSubjectCN());
+			assertEquals(CertificateUtils.getSubjectSN(cert), info.getSubjectSN());
+			assertEquals(CertificateUtils.getIssuerName(cert), info.getIssuerName());
+			assertEquals(CertificateUtils.getIssuerCN(cert), info.getIssuerCN());
+			assertArrayEquals(CertificateUtils.getSKI(cert), info.getSKI());
+		}
+	}
+
+	@Test
+	void testIdentifiers() throws Exception {
+		X509Certificate cert = loadCert("partya.cert");
+		CertificateInfo info = CertificateInfo.of(cert);
+
+		assertEquals(BigInteger.valueOf(0x1005), info.getSerialNumber());
+		byte[] skiExtValue = cert.getExtensionValue("2.5.29.14");
+		byte[] ski = Arrays.copyOfRange(skiExtValue, 4, skiExtValue.length);
+		assertArrayEquals(ski, info.getSKI());
+		assertTrue(info.hasSKI(ski));
+		assertFalse(info.hasSKI(new byte[ski.length]));
+		// The returned SKI is a copy
+		info.getSKI()[0] = 0;
+		assertTrue(info.hasSKI(ski));
+
+		assertArrayEquals(MessageDigest.getInstance("SHA-1").digest(cert.getEncoded()), info.getSHA1Thumbprint());
+		assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(cert.getEncoded()), info.getSHA256Thumbprint());
+
+		assertTrue(info.hasIssuerSerial(cert.getIssuerX500Principal(), cert.getSerialNumber()));
+		assertTrue(info.hasIssuerSerial(new X500Principal("CN=ca.examples.holodeck-b2b.org, OU=Holodeck B2B Support, "
+														  + "O=Chasquis, C=NL"), BigInteger.valueOf(0x1005)));
+		assertFalse(info.hasIssuerSerial(cert.getIssuerX500Principal(), BigInteger.ONE));
+		assertFalse(info.hasIssuerSerial(new X500Principal("CN=Tester, OU=Testing, O=HolodeckB2B, C=NL"),
+										 cert.getSerialNumber()));
+	}
+
+	@Test
+	void testValidity() throws Exception {
+		CertificateInfo info = CertificateInfo.of(loadCert("partya.cert"));
+
+		assertEquals(Instant.parse("2020-07-29T11:50:15Z"), info.getNotBefore());
+		assertEquals(Instant.parse("2021-08-08T11:50:15Z"), info.getNotAfter());
+		assertTrue(info.isValidAt(Instant.parse("2021-01-01T00:00:00Z")));
+		assertTrue(info.isValidAt(info.getNotAfter()));
+		assertFalse(info.isValidAt(Instant.parse("2020-07-29T11:50:14Z")));
+		assertFalse(info.isValidAt(Instant.now()));
+	}
+
+	@Test
+	void testCached() throws Exception {
+		X509Certificate cert = loadCert("partya.cert");
+		CertificateInfo info = CertificateInfo.of(cert);
+		assertSame(info, CertificateInfo.of(cert));
+		assertSame(info, CertificateInfo.of(loadCert("partya.der")));
+		assertNotSame(info, CertificateInfo.of(loadCert("device.cert")));
+
+		assertThrows(IllegalArgumentException.class, () -> CertificateInfo.of(null));
+	}
+
+	@Test
+	void testThumbprintByAlgorithm() throws Exception {
+		X509Certificate cert = loadCert("device.cert");
+		CertificateInfo info = CertificateInfo.of(cert);
+
+		assertArrayEquals(MessageDigest.getInstance("SHA-512").digest(cert.getEncoded()), info.getThumbprint("SHA-512"));
+		assertArrayEquals(info.getSHA1Thumbprint(), info.getThumbprint("sha1"));
+		assertArrayEquals(info.getSHA256Thumbprint(), info.getThumbprint("SHA256"));
+		// The returned thumbprint is a copy
+		info.getThumbprint("SHA-512")[0] ^= 1;
+		assertArrayEquals(MessageDigest.getInstance("SHA-512").digest(cert.getEncoded()), info.getThumbprint("SHA-512"));
+
+		assertThrows(NoSuchAlgorithmException.class, () -> info.getThumbprint("NO-SUCH-DIGEST"));
+	}
+
+	@Test
+	void testConcurrentCreation() throws Exception {
+		X509Certificate cert = loadCert("partya.cert");
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<CertificateInfo>> views = new ArrayList<>();
+			for (int i = 0; i < 100; i++)
+				views.add(executor.submit(() -> CertificateInfo.of(cert)));
+			CertificateInfo info = CertificateInfo.of(cert);
+			for (Future<CertificateInfo> v : views)
+				assertSame(info, v.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
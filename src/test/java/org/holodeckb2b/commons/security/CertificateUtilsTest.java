@@ -1,11 +1,14 @@
 package org.holodeckb2b.commons.security;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -14,17 +17,25 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.file.Path;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.security.auth.x500.X500Principal;
 
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.holodeckb2b.commons.testing.TestUtils;
 import org.holodeckb2b.commons.util.Utils;
 import org.junit.jupiter.api.Test;
@@ -145,6 +156,86 @@ class CertificateUtilsTest {
 		assertPartyACert(assertDoesNotThrow(() -> CertificateUtils.getCertificate(pemWithEpilogString)));
 	}
 
+	@Test
+	void testGetCertWithCache() throws Exception {
+		CertificateCache cache = CertificateCache.builder().maxSize(10).build();
+		CertificateUtils.setCertificateCache(cache);
+		try {
+			X509Certificate fromString = CertificateUtils.getCertificate(PARTYA_MIME64_STRING);
+			assertPartyACert(fromString);
+			assertSame(fromString, CertificateUtils.getCertificate(PARTYA_MIME64_STRING));
+
+			byte[] der = fromString.getEncoded();
+			X509Certificate fromBytes = CertificateUtils.getCertificate(der);
+			assertPartyACert(fromBytes);
+			assertSame(fromBytes, CertificateUtils.getCertificate(der.clone()));
+
+			assertEquals(2, cache.getHits());
+			assertEquals(2, cache.getMisses());
+			assertThrows(CertificateException.class, () -> CertificateUtils.getCertificate("invalid"));
+			assertEquals(2, cache.size());
+		} finally {
+			CertificateUtils.setCertificateCache(null);
+		}
+		assertNull(CertificateUtils.getCertificateCache());
+	}
+
+	@Test
+	void testCertificateFactoryProvider() throws Exception {
+		assertNull(CertificateUtils.getCertificateFactoryProvider());
+		X509Certificate jcaCert = CertificateUtils.getCertificate(PARTYA_MIME64_STRING);
+
+		BouncyCastleProvider bc = new BouncyCastleProvider();
+		CertificateUtils.setCertificateFactoryProvider(bc);
+		try {
+			assertSame(bc, CertificateUtils.getCertificateFactoryProvider());
+			X509Certificate bcCert = CertificateUtils.getCertificate(PARTYA_MIME64_STRING);
+			assertPartyACert(bcCert);
+			assertNotEquals(jcaCert.getClass(), bcCert.getClass());
+			assertEquals(jcaCert, bcCert);
+		} finally {
+			CertificateUtils.setCertificateFactoryProvider(null);
+		}
+		assertNull(CertificateUtils.getCertificateFactoryProvider());
+	}
+
+	@Test
+	void testUnavailableConfiguredProvider() throws Exception {
+		System.setProperty(CertificateUtils.CERTIFICATE_PROVIDER_PROPERTY, "Nope");
+		try {
+			// Load the class again to run its initialisation with the invalid configuration
+			URL[] classpath = { CertificateUtils.class.getProtectionDomain().getCodeSource().getLocation(),
+								Utils.class.getProtectionDomain().getCodeSource().getLocation(),
+								BouncyCastleProvider.class.getProtectionDomain().getCodeSource().getLocation() };
+			try (URLClassLoader loader = new URLClassLoader(classpath, null)) {
+				Class<?> utils = loader.loadClass(CertificateUtils.class.getName());
+				assertNull(utils.getMethod("getCertificateFactoryProvider").invoke(null));
+				assertPartyACert((X509Certificate) utils.getMethod("getCertificate", String.class)
+														.invoke(null, PARTYA_MIME64_STRING));
+			}
+
+			assertThrows(IllegalStateException.class, () -> CertificateUtils.setCertificateFactoryProvider(null));
+		} finally {
+			System.clearProperty(CertificateUtils.CERTIFICATE_PROVIDER_PROPERTY);
+			CertificateUtils.setCertificateFactoryProvider(null);
+		}
+	}
+
+	@Test
+	void testConcurrentDecoding() throws Exception {
+		final byte[] der = CertificateUtils.getCertificate(PARTYA_MIME64_STRING).getEncoded();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<X509Certificate>> results = new ArrayList<>();
+			for (int i = 0; i < 200; i++)
+				results.add(executor.submit(() -> CertificateUtils.getCertificate(der)));
+			for (Future<X509Certificate> r : results)
+				assertPartyACert(r.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 	@Test
 	void testGetCertificates() {
 		ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -244,6 +335,31 @@ class CertificateUtilsTest {
 		assertFalse(CertificateUtils.hasThumbprint(cert, sha2Hash, sha1));
 	}
 
+	@Test
+	void testThumbprintByAlgorithm() throws Exception {
+		X509Certificate cert = CertificateUtils.getCertificate(TestUtils.getTestResource("partya.cert"));
+
+		byte[] sha1Hash = MessageDigest.getInstance("SHA-1").digest(cert.getEncoded());
+		byte[] sha2Hash = MessageDigest.getInstance("SHA-256").digest(cert.getEncoded());
+		byte[] sha512Hash = MessageDigest.getInstance("SHA-512").digest(cert.getEncoded());
+
+		assertArrayEquals(sha1Hash, CertificateUtils.getThumbprint(cert, "SHA1"));
+		assertArrayEquals(sha2Hash, CertificateUtils.getThumbprint(cert, "sha-256"));
+		assertArrayEquals(sha512Hash, CertificateUtils.getThumbprint(cert, "SHA-512"));
+		// The returned thumbprint is a copy
+		CertificateUtils.getThumbprint(cert, "SHA-512")[0] ^= 1;
+		assertArrayEquals(sha512Hash, CertificateUtils.getThumbprint(cert, "SHA-512"));
+
+		assertTrue(CertificateUtils.hasThumbprint(cert, sha1Hash, "SHA-1"));
+		assertTrue(CertificateUtils.hasThumbprint(cert, sha512Hash, "SHA-512"));
+		assertFalse(CertificateUtils.hasThumbprint(cert, sha2Hash, "SHA-512"));
+		assertFalse(CertificateUtils.hasThumbprint(cert, null, "SHA-256"));
+		assertFalse(CertificateUtils.hasThumbprint(cert, Arrays.copyOf(sha2Hash, 20), "SHA-256"));
+
+		assertThrows(NoSuchAlgorithmException.class, () -> CertificateUtils.getThumbprint(cert, "NO-SUCH-DIGEST"));
+		assertThrows(NoSuchAlgorithmException.class, () -> CertificateUtils.hasThumbprint(cert, sha2Hash, "MD-0"));
+	}
+
 	/**
 	 * Helper method to assert that the given certificate is the test certificate issued to <i>partya</i>.
 	 *
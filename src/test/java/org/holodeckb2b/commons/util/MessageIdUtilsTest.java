@@ -20,9 +20,26 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 /**
  * Created at 14:36 14.01.17
@@ -101,6 +118,247 @@ public class MessageIdUtilsTest {
     	assertEquals("hello.world@earth@org", MessageIdUtils.sanitizeId("hello.world@earth@org"));
     	assertEquals("hello.world@earth__org", MessageIdUtils.sanitizeId("hello.world@earth::org"));
     }
-    
-    
+
+    @ParameterizedTest
+    @EnumSource(MessageIdGenerators.class)
+    public void testGenerators(MessageIdGenerators generator) {
+    	IMessageIdGenerator current = MessageIdUtils.getGenerator();
+    	try {
+    		MessageIdUtils.setGenerator(generator);
+    		assertSame(generator, MessageIdUtils.getGenerator());
+    		String id = MessageIdUtils.createMessageId();
+    		assertTrue(MessageIdUtils.isCorrectFormat(id));
+    		assertTrue(MessageIdUtils.isCorrectFormat(MessageIdUtils.createContentId(id)));
+    		assertTrue(MessageIdUtils.isCorrectFormat(MessageIdUtils.createMessageId("holodeck-b2b.org")));
+    		assertFalse(id.equals(MessageIdUtils.createMessageId()));
+    	} finally {
+    		MessageIdUtils.setGenerator(current);
+    	}
+    }
+
+    @ParameterizedTest
+    @EnumSource(MessageIdGenerators.class)
+    public void testConcurrentUniqueness(MessageIdGenerators generator) throws InterruptedException {
+    	final int threads = 8;
+    	final int perThread = 5000;
+    	Set<String> ids = ConcurrentHashMap.newKeySet();
+    	ExecutorService executor = Executors.newFixedThreadPool(threads);
+    	for (int t = 0; t < threads; t++)
+    		executor.execute(() -> {
+    			for (int i = 0; i < perThread; i++)
+    				ids.add(generator.createLeftPart());
+    		});
+    	executor.shutdown();
+    	assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    	assertEquals(threads * perThread, ids.size());
+    }
+
+    @Test
+    public void testResetGenerator() {
+    	IMessageIdGenerator current = MessageIdUtils.getGenerator();
+    	try {
+    		MessageIdUtils.setGenerator(() -> "fixed");
+    		assertTrue(MessageIdUtils.createMessageId().startsWith("fixed@"));
+    		MessageIdUtils.setGenerator(null);
+    		assertSame(MessageIdGenerators.RANDOM_UUID, MessageIdUtils.getGenerator());
+    	} finally {
+    		MessageIdUtils.setGenerator(current);
+    	}
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "org.example.NoSuchGenerator",
+    						 "org.holodeckb2b.commons.util.MessageIdUtilsTest$FailingGenerator" })
+    public void testInvalidConfiguredGenerator(String generatorClass) throws Exception {
+    	System.setProperty(MessageIdUtils.GENERATOR_PROPERTY, generatorClass);
+    	try {
+    		// Load the class again to run its initialisation with the invalid configuration
+    		try (URLClassLoader loader = new URLClassLoader(new URL[] {
+    							MessageIdUtils.class.getProtectionDomain().getCodeSource().getLocation(),
+    							MessageIdUtilsTest.class.getProtectionDomain().getCodeSource().getLocation() }, null)) {
+    			Class<?> utils = loader.loadClass(MessageIdUtils.class.getName());
+    			assertEquals(MessageIdGenerators.RANDOM_UUID.name(),
+    						 utils.getMethod("getGenerator").invoke(null).toString());
+    			assertTrue((Boolean) utils.getMethod("isCorrectFormat", String.class)
+    									  .invoke(null, utils.getMethod("createMessageId").invoke(null)));
+    		}
+
+    		assertThrows(IllegalStateException.class, () -> MessageIdUtils.setGenerator(null));
+    	} finally {
+    		System.clearProperty(MessageIdUtils.GENERATOR_PROPERTY);
+    	}
+    }
+
+    /**
+     * Generator that cannot be loaded because its static initialisation fails
+     */
+    public static class FailingGenerator implements IMessageIdGenerator {
+    	static final String PREFIX = fail();
+
+    	private static String fail() {
+    		throw new IllegalStateException("Initialisation failure");
+    	}
+
+    	@Override
+    	public String createLeftPart() {
+    		return PREFIX;
+    	}
+    }
+
+    @Test
+    public void testThreadLocalUUIDFormat() {
+    	String uuid = MessageIdGenerators.THREAD_LOCAL_UUID.createLeftPart();
+    	UUID parsed = UUID.fromString(uuid);
+    	assertEquals(4, parsed.version());
+    	assertEquals(2, parsed.variant());
+    	assertEquals(parsed.toString(), uuid);
+    }
+
+    @Test
+    public void testSortableMessageId() {
+    	long before = System.currentTimeMillis();
+    	String id = MessageIdUtils.createSortableMessageId();
+    	long after = System.currentTimeMillis();
+    	assertTrue(MessageIdUtils.isCorrectFormat(id));
+    	assertEquals(26, id.indexOf('@'));
+    	long ts = MessageIdUtils.getTimestamp(id).toEpochMilli();
+    	assertTrue(ts >= before && ts <= after + 1);
+    	assertEquals(ts, MessageIdUtils.getTimestamp("<" + id + ">").toEpochMilli());
+
+    	id = MessageIdUtils.createSortableMessageId("not.(0_nice. .)right.part");
+    	assertEquals("not._0_nice._._right.part", id.substring(id.indexOf('@') + 1));
+    	assertNotNull(MessageIdUtils.getTimestamp(id));
+    }
+
+    @Test
+    public void testSortableOrder() {
+    	String previous = MessageIdUtils.createSortableMessageId();
+    	for (int i = 0; i < 100000; i++) {
+    		String id = MessageIdUtils.createSortableMessageId();
+    		assertTrue(previous.compareTo(id) < 0, previous + " >= " + id);
+    		assertFalse(MessageIdUtils.getTimestamp(id).isBefore(MessageIdUtils.getTimestamp(previous)));
+    		previous = id;
+    	}
+    }
+
+    @Test
+    public void testConcurrentSortableOrder() throws InterruptedException {
+    	final int threads = 8;
+    	Set<String> ids = ConcurrentHashMap.newKeySet();
+    	Set<String> unordered = ConcurrentHashMap.newKeySet();
+    	ExecutorService executor = Executors.newFixedThreadPool(threads);
+    	for (int t = 0; t < threads; t++)
+    		executor.execute(() -> {
+    			String previous = "";
+    			for (int i = 0; i < 5000; i++) {
+    				String id = MessageIdGenerators.TIME_ORDERED.createLeftPart();
+    				if (previous.compareTo(id) >= 0)
+    					unordered.add(id);
+    				ids.add(id);
+    				previous = id;
+    			}
+    		});
+    	executor.shutdown();
+    	assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    	assertEquals(threads * 5000, ids.size());
+    	assertTrue(unordered.isEmpty());
+    }
+
+    @Test
+    public void testTimestampOfOtherIds() {
+    	assertNull(MessageIdUtils.getTimestamp(null));
+    	assertNull(MessageIdUtils.getTimestamp(""));
+    	assertNull(MessageIdUtils.getTimestamp(MessageIdUtils.createMessageId()));
+    	assertNull(MessageIdUtils.getTimestamp("just.a.test@holodeck-b2b.org"));
+    	// Right length, but contains characters not used in Crockford's base32
+    	assertNull(MessageIdUtils.getTimestamp("01ARZ3NDEKTSV4RRFFQ69G5FAU@holodeck-b2b.org"));
+    	// Value would exceed 128 bits
+    	assertNull(MessageIdUtils.getTimestamp("81ARZ3NDEKTSV4RRFFQ69G5FAV@holodeck-b2b.org"));
+    	assertEquals(1469918176385L,
+    				 MessageIdUtils.getTimestamp("01ARYZ6S41TSV4RRFFQ69G5FAV@holodeck-b2b.org").toEpochMilli());
+    }
+
+    @Test
+    public void testSanitizeUnchanged() {
+    	String id = MessageIdUtils.createMessageId();
+    	assertSame(id, MessageIdUtils.sanitizeId(id));
+    	assertEquals("h_llo", MessageIdUtils.sanitizeId("h\u00e9llo"));
+    	assertEquals("smile_@earth", MessageIdUtils.sanitizeId("smile\ud83d\ude00@earth"));
+    	assertEquals("lone_@earth", MessageIdUtils.sanitizeId("lone\ud83d@earth"));
+    }
+
+    @Test
+    public void testCheckMessageIdDotAtoms() {
+    	assertFalse(MessageIdUtils.isCorrectFormat(".just@holodeck-b2b.org"));
+    	assertFalse(MessageIdUtils.isCorrectFormat("just.@holodeck-b2b.org"));
+    	assertFalse(MessageIdUtils.isCorrectFormat("just..test@holodeck-b2b.org"));
+    	assertFalse(MessageIdUtils.isCorrectFormat("@holodeck-b2b.org"));
+    	assertFalse(MessageIdUtils.isCorrectFormat("just@"));
+    	assertFalse(MessageIdUtils.isCorrectFormat("just@holodeck-b2b.org."));
+    	assertFalse(MessageIdUtils.isCorrectFormat("just@holodeck@b2b.org"));
+    	assertFalse(MessageIdUtils.isCorrectFormat("just@holodeck-b2b..org"));
+    	assertFalse(MessageIdUtils.isCorrectFormat("j\u00fcst@holodeck-b2b.org"));
+    	assertTrue(MessageIdUtils.isCorrectFormat("a@b"));
+    }
+
+    @Test
+    public void testSameAsRegex() {
+    	// The regular expressions used by previous versions to check and sanitize message ids
+    	final String achars = "\\p{Alpha}\\d\\Q!#$%&'*+-/=?^_`{|}~\\E";
+    	final String dotAtom = "[" + achars + "]+(\\.[" + achars + "]+)*";
+    	final String validChars = achars + "\\.@";
+    	final char[] alphabet = "aZ9!~._@@ \u00e9[\ud83d\ude00".toCharArray();
+    	final Random rnd = new Random(2822);
+    	for (int n = 0; n < 20000; n++) {
+    		char[] id = new char[1 + rnd.nextInt(12)];
+    		for (int i = 0; i < id.length; i++)
+    			id[i] = alphabet[rnd.nextInt(alphabet.length)];
+    		String s = new String(id);
+    		assertEquals(s.matches(dotAtom + "@" + dotAtom), MessageIdUtils.isCorrectFormat(s), s);
+    		assertEquals(s.matches("[" + validChars + "]*"), MessageIdUtils.isAllowed(s), s);
+    		assertEquals(s.replaceAll("[^" + validChars + "]", "_"), MessageIdUtils.sanitizeId(s), s);
+    	}
+    }
+
+    @Test
+    public void testCreateContentIds() {
+    	String id = MessageIdUtils.createMessageId();
+    	String[] cids = MessageIdUtils.createContentIds(id, 500);
+    	assertEquals(500, cids.length);
+    	assertEquals(500, new HashSet<>(Arrays.asList(cids)).size());
+    	String leftPart = id.substring(0, id.indexOf('@'));
+    	for (String cid : cids) {
+    		assertTrue(MessageIdUtils.isCorrectFormat(cid));
+    		String cidLeftPart = cid.substring(0, cid.indexOf('@'));
+    		assertEquals(leftPart, cidLeftPart.substring(0, cidLeftPart.lastIndexOf("-")));
+    		assertTrue(Long.parseLong(cidLeftPart.substring(cidLeftPart.lastIndexOf("-") + 1)) >= 0);
+    		assertEquals(id.substring(id.indexOf('@')), cid.substring(cid.indexOf('@')));
+    	}
+
+    	String[] filled = new String[3];
+    	assertSame(filled, MessageIdUtils.createContentIds("not nice@right:part", filled));
+    	for (String cid : filled)
+    		assertTrue(cid.startsWith("not_nice-") && cid.endsWith("@right_part"));
+
+    	assertEquals(0, MessageIdUtils.createContentIds(id, 0).length);
+    	for (String cid : MessageIdUtils.createContentIds(null, 5))
+    		assertTrue(MessageIdUtils.isCorrectFormat(cid));
+    	assertTrue(MessageIdUtils.createContentIds("noRightPart", 1)[0].startsWith("noRightPart-"));
+    }
+
+    @Test
+    public void testCreateMessageIds() {
+    	String[] ids = MessageIdUtils.createMessageIds(100);
+    	assertEquals(100, new HashSet<>(Arrays.asList(ids)).size());
+    	String rightPart = MessageIdUtils.createMessageId().split("@")[1];
+    	for (String id : ids) {
+    		assertTrue(MessageIdUtils.isCorrectFormat(id));
+    		assertEquals(rightPart, id.split("@")[1]);
+    	}
+
+    	String[] filled = new String[10];
+    	assertSame(filled, MessageIdUtils.createMessageIds("not.(0_nice. .)right.part", filled));
+    	for (String id : filled)
+    		assertEquals("not._0_nice._._right.part", id.split("@")[1]);
+    }
 }
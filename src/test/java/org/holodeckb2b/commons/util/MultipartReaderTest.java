@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class MultipartReaderTest {
+
+	private static final String BOUNDARY = "MIMEBoundary_4f1c9a";
+	private static final String CONTENT_TYPE = "multipart/related; type=\"application/soap+xml\"; boundary=\""
+												+ BOUNDARY + "\"";
+	private static final String ENVELOPE = "<env:Envelope xmlns:env=\"urn:env\"><env:Body/></env:Envelope>";
+
+	private static byte[] createMessage(byte[] attachment) throws IOException {
+		ByteArrayOutputStream msg = new ByteArrayOutputStream();
+		msg.write(("This is the preamble\r\n--" + BOUNDARY + "  \r\n"
+				 + "Content-Type: application/soap+xml;\r\n\tcharset=UTF-8\r\n"
+				 + "Content-ID: <root@holodeck-b2b.org>\r\n\r\n" + ENVELOPE
+				 + "\r\n--" + BOUNDARY + "\r\n"
+				 + "Content-Type: application/octet-stream\r\nContent-ID: <att1@holodeck-b2b.org>\r\n\r\n")
+				 .getBytes(StandardCharsets.US_ASCII));
+		msg.write(attachment);
+		msg.write(("\r\n--" + BOUNDARY + "\r\nContent-ID: <att2@holodeck-b2b.org>\r\n\r\n\r\n--" + BOUNDARY
+				 + "--\r\nThis is the epilogue").getBytes(StandardCharsets.US_ASCII));
+		return msg.toByteArray();
+	}
+
+	private static byte[] createAttachment(int size) {
+		byte[] attachment = new byte[size];
+		new Random().nextBytes(attachment);
+		// Include a partial delimiter to check it is not mistaken for a boundary
+		byte[] partial = ("\r\n--" + BOUNDARY.substring(0, 10)).getBytes(StandardCharsets.US_ASCII);
+		System.arraycopy(partial, 0, attachment, size / 2, partial.length);
+		return attachment;
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 7, 100, 65536 })
+	void testReadParts(int chunkSize) throws IOException {
+		byte[] attachment = createAttachment(50000);
+		MultipartReader reader = MultipartReader.fromContentType(new ChunkedInputStream(createMessage(attachment),
+																						chunkSize), CONTENT_TYPE);
+
+		MultipartReader.Part root = reader.getRootPart();
+		assertNotNull(root);
+		assertEquals("application/soap+xml;\tcharset=UTF-8", root.getContentType());
+		assertEquals("<root@holodeck-b2b.org>", root.getHeader("content-id"));
+		assertEquals(ENVELOPE, new String(readAll(root.getContent()), StandardCharsets.UTF_8));
+
+		MultipartReader.Part att1 = reader.nextPart();
+		assertEquals("<att1@holodeck-b2b.org>", att1.getContentId());
+		assertArrayEquals(attachment, readAll(att1.getContent()));
+
+		MultipartReader.Part att2 = reader.nextPart();
+		assertEquals("<att2@holodeck-b2b.org>", att2.getContentId());
+		assertEquals(-1, att2.getContent().read());
+
+		assertNull(reader.nextPart());
+		assertNull(reader.nextPart());
+	}
+
+	@Test
+	void testSkipUnreadParts() throws IOException {
+		MultipartReader reader = MultipartReader.fromContentType(new ByteArrayInputStream(
+																	createMessage(createAttachment(20000))),
+																 CONTENT_TYPE);
+		MultipartReader.Part root = reader.getRootPart();
+		assertEquals('<', root.getContent().read());
+		assertEquals("<att1@holodeck-b2b.org>", reader.nextPart().getContentId());
+		// The stream of a previous part is no longer valid
+		assertEquals(-1, root.getContent().read());
+		assertEquals("<att2@holodeck-b2b.org>", reader.nextPart().getContentId());
+		assertNull(reader.nextPart());
+	}
+
+	@Test
+	void testStartParameter() throws IOException {
+		MultipartReader reader = MultipartReader.fromContentType(new ByteArrayInputStream(
+																	createMessage(createAttachment(100))),
+																 CONTENT_TYPE + "; start=\"<att2@holodeck-b2b.org>\"");
+		assertEquals("<att2@holodeck-b2b.org>", reader.getRootPart().getContentId());
+		assertNull(reader.nextPart());
+
+		reader = new MultipartReader(new ByteArrayInputStream(createMessage(createAttachment(100))), BOUNDARY,
+									 "unknown@holodeck-b2b.org");
+		assertNull(reader.getRootPart());
+	}
+
+	@Test
+	void testNoPreamble() throws IOException {
+		byte[] msg = ("--" + BOUNDARY + "\r\n\r\npart\r\n--" + BOUNDARY + "--").getBytes(StandardCharsets.US_ASCII);
+		MultipartReader reader = new MultipartReader(new ByteArrayInputStream(msg), BOUNDARY);
+		MultipartReader.Part part = reader.getRootPart();
+		assertEquals(0, part.getHeaders().size());
+		assertEquals("part", new String(readAll(part.getContent()), StandardCharsets.US_ASCII));
+		assertNull(reader.nextPart());
+	}
+
+	@Test
+	void testIncomplete() throws IOException {
+		byte[] msg = createMessage(createAttachment(1000));
+		byte[] truncated = new byte[msg.length - 200];
+		System.arraycopy(msg, 0, truncated, 0, truncated.length);
+		MultipartReader reader = MultipartReader.fromContentType(new ByteArrayInputStream(truncated), CONTENT_TYPE);
+		reader.getRootPart();
+		MultipartReader.Part att1 = reader.nextPart();
+		assertThrows(IOException.class, () -> readAll(att1.getContent()));
+	}
+
+	@Test
+	void testContentTypeParameters() {
+		assertEquals(BOUNDARY, MultipartReader.getParameter(CONTENT_TYPE, "boundary"));
+		assertEquals("application/soap+xml", MultipartReader.getParameter(CONTENT_TYPE, "TYPE"));
+		assertEquals("a;b\"c", MultipartReader.getParameter("multipart/mixed; boundary = \"a;b\\\"c\"", "boundary"));
+		assertEquals("simple", MultipartReader.getParameter("multipart/mixed;boundary=simple;x=y", "boundary"));
+		assertNull(MultipartReader.getParameter(CONTENT_TYPE, "start"));
+
+		assertThrows(IllegalArgumentException.class,
+					 () -> MultipartReader.fromContentType(new ByteArrayInputStream(new byte[0]), "text/xml"));
+		assertThrows(IllegalArgumentException.class,
+					 () -> MultipartReader.fromContentType(new ByteArrayInputStream(new byte[0]), "multipart/related"));
+	}
+
+	private static byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[333];
+		int r;
+		while ((r = is.read(buffer)) > 0)
+			bos.write(buffer, 0, r);
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Returns at most the given number of bytes on each read, to check boundaries spanning reads.
+	 */
+	private static class ChunkedInputStream extends FilterInputStream {
+		private final int chunkSize;
+
+		ChunkedInputStream(byte[] content, int chunkSize) {
+			super(new ByteArrayInputStream(content));
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return super.read(b, off, Math.min(len, chunkSize));
+		}
+	}
+}
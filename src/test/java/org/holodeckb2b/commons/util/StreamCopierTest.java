@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+class StreamCopierTest {
+
+	private static byte[] createSource(int size) {
+		byte[] source = new byte[size];
+		new Random().nextBytes(source);
+		return source;
+	}
+
+	@Test
+	void testWithinLimit() throws IOException {
+		byte[] source = createSource(1000);
+		StreamCopier copier = StreamCopier.builder().maxBytes(1000).bufferSize(64).build();
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		assertEquals(1000, copier.copy(new ByteArrayInputStream(source), bos));
+		assertArrayEquals(source, bos.toByteArray());
+
+		bos.reset();
+		assertEquals(1000, copier.copy(Channels.newChannel(new ByteArrayInputStream(source)),
+									   Channels.newChannel(bos)));
+		assertArrayEquals(source, bos.toByteArray());
+	}
+
+	@Test
+	void testLimitExceeded() {
+		byte[] source = createSource(1001);
+		StreamCopier copier = StreamCopier.builder().maxBytes(1000).bufferSize(64).build();
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		assertThrows(StreamCopier.MaxBytesExceededException.class,
+					 () -> copier.copy(new ByteArrayInputStream(source), bos));
+		assertTrue(bos.size() <= 1000);
+
+		assertThrows(StreamCopier.MaxBytesExceededException.class,
+					 () -> copier.copy(Channels.newChannel(new ByteArrayInputStream(source)),
+							 		   Channels.newChannel(new ByteArrayOutputStream())));
+	}
+
+	@Test
+	void testFileLimitExceeded() throws IOException {
+		Path srcFile = Files.createTempFile("copysrc", null);
+		Path dstFile = Files.createTempFile("copydst", null);
+		try {
+			Files.write(srcFile, createSource(1001));
+			StreamCopier copier = StreamCopier.builder().maxBytes(1000).build();
+			try (FileInputStream fis = new FileInputStream(srcFile.toFile());
+				 FileOutputStream fos = new FileOutputStream(dstFile.toFile())) {
+				assertThrows(StreamCopier.MaxBytesExceededException.class, () -> copier.copy(fis, fos));
+			}
+			assertEquals(0, Files.size(dstFile));
+		} finally {
+			Files.deleteIfExists(srcFile);
+			Files.deleteIfExists(dstFile);
+		}
+	}
+
+	@Test
+	void testProgressListener() throws IOException {
+		byte[] source = createSource(1000);
+		List<Long> reported = new ArrayList<>();
+		StreamCopier copier = StreamCopier.builder().bufferSize(100).progressListener(c -> reported.add(c), 250)
+													.build();
+
+		copier.copy(new ByteArrayInputStream(source), new ByteArrayOutputStream());
+		assertEquals(Arrays.asList(300L, 500L, 800L, 1000L), reported);
+	}
+
+	@Test
+	void testFileProgressListener() throws IOException {
+		byte[] source = createSource(1000);
+		Path srcFile = Files.createTempFile("copysrc", null);
+		Path dstFile = Files.createTempFile("copydst", null);
+		try {
+			Files.write(srcFile, source);
+			List<Long> reported = new ArrayList<>();
+			StreamCopier copier = StreamCopier.builder().progressListener(c -> reported.add(c), 250).build();
+			try (FileInputStream fis = new FileInputStream(srcFile.toFile());
+				 FileOutputStream fos = new FileOutputStream(dstFile.toFile())) {
+				assertEquals(1000, copier.copy(fis, fos));
+			}
+			assertEquals(Arrays.asList(250L, 500L, 750L, 1000L), reported);
+			assertArrayEquals(source, Files.readAllBytes(dstFile));
+		} finally {
+			Files.deleteIfExists(srcFile);
+			Files.deleteIfExists(dstFile);
+		}
+	}
+
+	@Test
+	@EnabledOnOs({ OS.LINUX, OS.MAC })
+	void testCopyFromAndToPipe() throws Exception {
+		byte[] source = createSource(100000);
+		Path fifo = Files.createTempDirectory("streamcopiertest").resolve("fifo");
+		Path dstFile = Files.createTempFile("streamcopiertest", ".dst");
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			assertEquals(0, new ProcessBuilder("mkfifo", fifo.toString()).start().waitFor());
+
+			// Copy from a file stream over a pipe to a file stream
+			Future<?> writer = executor.submit(() -> {
+				try (FileOutputStream fos = new FileOutputStream(fifo.toFile())) {
+					fos.write(source);
+				}
+				return null;
+			});
+			try (FileInputStream fis = new FileInputStream(fifo.toFile());
+				 FileOutputStream fos = new FileOutputStream(dstFile.toFile())) {
+				assertEquals(source.length, StreamCopier.builder().build().copy(fis, fos));
+			}
+			writer.get();
+			assertArrayEquals(source, Files.readAllBytes(dstFile));
+
+			// Copy from a channel to a file channel over a pipe
+			Future<byte[]> reader = executor.submit(() -> Files.readAllBytes(fifo));
+			try (FileOutputStream fos = new FileOutputStream(fifo.toFile())) {
+				assertEquals(source.length, StreamCopier.builder().build().copy(
+											Channels.newChannel(new ByteArrayInputStream(source)), fos.getChannel()));
+			}
+			assertArrayEquals(source, reader.get());
+		} finally {
+			executor.shutdownNow();
+			Files.deleteIfExists(fifo);
+			Files.deleteIfExists(fifo.getParent());
+			Files.deleteIfExists(dstFile);
+		}
+	}
+
+	@Test
+	void testMetrics() throws IOException {
+		StreamCopyStatistics stats = new StreamCopyStatistics();
+		StreamCopier copier = StreamCopier.builder().metricsSink(stats).build();
+
+		copier.copy(new ByteArrayInputStream(createSource(1000)), new ByteArrayOutputStream());
+		copier.copy(new ByteArrayInputStream(createSource(500)), new ByteArrayOutputStream());
+
+		assertEquals(2, stats.getCopyCount());
+		assertEquals(1500, stats.getTotalBytes());
+		assertTrue(stats.getTotalTimeNanos() > 0);
+		assertTrue(stats.getThroughput() > 0);
+		assertEquals(2, Arrays.stream(stats.getLatencyHistogram()).sum());
+
+		stats.reset();
+		assertEquals(0, stats.getCopyCount());
+		assertEquals(0, stats.getTotalBytes());
+		assertEquals(0, Arrays.stream(stats.getLatencyHistogram()).sum());
+	}
+
+	@Test
+	void testInvalidConfig() {
+		assertThrows(IllegalArgumentException.class, () -> StreamCopier.builder().maxBytes(-2));
+		assertThrows(IllegalArgumentException.class, () -> StreamCopier.builder().bufferSize(0));
+		assertThrows(IllegalArgumentException.class, () -> StreamCopier.builder().progressListener(c -> {}, 0));
+	}
+}
@@ -18,7 +18,14 @@ package org.holodeckb2b.commons.util;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -36,6 +43,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Random;
 import java.util.TimeZone;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -215,6 +223,13 @@ public class UtilsTest {
 		assertEquals(0, ts.get(ChronoField.MILLI_OF_SECOND));
 	}
 
+	@ParameterizedTest
+	@ValueSource(strings = { "2020-05-4", "2020-13-04T19:13:51", "2020-05-04T19:13", "not a date" })
+	void testParseInvalidDateTime(String xmlTimestamp) {
+		assertThrows(ParseException.class, () -> Utils.parseDateTimeFromXML(xmlTimestamp));
+		assertThrows(ParseException.class, () -> Utils.fromXMLDateTime(xmlTimestamp));
+	}
+
 	/**
 	 * Test possible results of
 	 * {@link org.holodeckb2b.common.util.Utils#compareStrings(String, String)
@@ -306,6 +321,53 @@ public class UtilsTest {
 		assertDoesNotThrow(() -> bos.close());
 	}
 
+	@Test
+	void testCopyFileStream() throws IOException {
+		byte[] source = new byte[200 * 1024];
+		new Random().nextBytes(source);
+		Path srcFile = Files.createTempFile("copysrc", null);
+		Path dstFile = Files.createTempFile("copydst", null);
+		try {
+			Files.write(srcFile, source);
+			long copyCount = 0;
+			try (FileInputStream fis = new FileInputStream(srcFile.toFile());
+				 FileOutputStream fos = new FileOutputStream(dstFile.toFile())) {
+				// Skip first part of the file to check only remaining content is copied
+				assertEquals(10, fis.skip(10));
+				fos.write(source, 0, 10);
+				copyCount = Utils.copyStream(fis, fos);
+				assertEquals(-1, fis.read());
+			}
+			assertEquals(source.length - 10, copyCount);
+			assertArrayEquals(source, Files.readAllBytes(dstFile));
+		} finally {
+			Files.deleteIfExists(srcFile);
+			Files.deleteIfExists(dstFile);
+		}
+	}
+
+	@Test
+	void testCopyChannel() throws IOException {
+		byte[] source = new byte[200 * 1024];
+		new Random().nextBytes(source);
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		long copyCount = Utils.copyStream(Channels.newChannel(new ByteArrayInputStream(source)),
+										  Channels.newChannel(bos));
+		assertEquals(source.length, copyCount);
+		assertArrayEquals(source, bos.toByteArray());
+
+		Path dstFile = Files.createTempFile("copydst", null);
+		try (FileChannel fc = FileChannel.open(dstFile, StandardOpenOption.WRITE)) {
+			copyCount = Utils.copyStream(Channels.newChannel(new ByteArrayInputStream(source)), fc);
+			assertEquals(source.length, fc.position());
+		} finally {
+			assertArrayEquals(source, Files.readAllBytes(dstFile));
+			Files.deleteIfExists(dstFile);
+		}
+		assertEquals(source.length, copyCount);
+	}
+
 	@Test
 	void testGetFirstAvailableProvider() {
 
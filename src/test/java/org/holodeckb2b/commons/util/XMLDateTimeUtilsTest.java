@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class XMLDateTimeUtilsTest {
+
+	@ParameterizedTest
+	@ValueSource(strings = { "2020-05-04T17:13:51.123456789Z", "2020-05-04T19:13:51.123456789+02:00",
+			"2020-05-04T15:13:51.123456789-02:00", "2020-05-04T19:13:51.123456789+0200",
+			"2020-05-04T19:13:51.123456789+02", "2020-05-04T17:13:51.1234567891234Z",
+			" 2020-05-04T17:13:51.123456789Z\n" })
+	void testParseWithOffset(String xmlDateTime) throws ParseException {
+		Instant expected = Instant.parse("2020-05-04T17:13:51.123456789Z");
+
+		assertEquals(expected, XMLDateTimeUtils.parseInstant(xmlDateTime));
+		assertEquals(expected.toEpochMilli(), XMLDateTimeUtils.parseEpochMillis(xmlDateTime));
+		assertEquals(expected, XMLDateTimeUtils.parseZonedDateTime(xmlDateTime).toInstant());
+	}
+
+	@Test
+	void testParsedOffset() throws ParseException {
+		assertEquals(ZoneOffset.UTC, XMLDateTimeUtils.parseZonedDateTime("2020-05-04T17:13:51Z").getZone());
+		assertEquals(ZoneOffset.ofHours(2),
+					 XMLDateTimeUtils.parseZonedDateTime("2020-05-04T19:13:51+02:00").getZone());
+		assertEquals(ZoneOffset.ofHoursMinutes(-5, -30),
+					 XMLDateTimeUtils.parseZonedDateTime("2020-05-04T11:43:51-0530").getZone());
+	}
+
+	@Test
+	void testParseWithoutOffset() throws ParseException {
+		LocalDateTime expected = LocalDateTime.of(2020, 5, 4, 19, 13, 51, 500_000_000);
+
+		ZonedDateTime zdt = XMLDateTimeUtils.parseZonedDateTime("2020-05-04T19:13:51.5");
+		assertEquals(ZoneId.systemDefault(), zdt.getZone());
+		assertEquals(expected, zdt.toLocalDateTime());
+		assertEquals(expected.atZone(ZoneId.systemDefault()).toInstant(),
+					 XMLDateTimeUtils.parseInstant("2020-05-04T19:13:51.5"));
+		assertEquals(expected.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+					 XMLDateTimeUtils.parseEpochMillis("2020-05-04T19:13:51.5"));
+	}
+
+	@Test
+	void testParseDate() throws ParseException {
+		assertEquals(Instant.parse("2020-05-04T00:00:00Z"), XMLDateTimeUtils.parseInstant("2020-05-04Z"));
+		assertEquals(Instant.parse("2020-05-03T22:00:00Z"), XMLDateTimeUtils.parseInstant("2020-05-04+02:00"));
+		assertEquals(LocalDateTime.of(2020, 5, 4, 0, 0),
+					 XMLDateTimeUtils.parseZonedDateTime("2020-05-04").toLocalDateTime());
+	}
+
+	@Test
+	void testParseSpecialValues() throws ParseException {
+		assertEquals(Instant.parse("2020-05-05T00:00:00Z"), XMLDateTimeUtils.parseInstant("2020-05-04T24:00:00Z"));
+		assertEquals(Instant.parse("2020-02-29T12:00:00Z"), XMLDateTimeUtils.parseInstant("2020-02-29T12:00:00Z"));
+		assertEquals(OffsetDateTime.of(12020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant(),
+					 XMLDateTimeUtils.parseInstant("12020-01-01T00:00:00Z"));
+		assertEquals(OffsetDateTime.of(-44, 3, 15, 12, 0, 0, 0, ZoneOffset.UTC).toInstant(),
+					 XMLDateTimeUtils.parseInstant("-0044-03-15T12:00:00Z"));
+		assertEquals(OffsetDateTime.of(-44, 3, 15, 12, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli(),
+					 XMLDateTimeUtils.parseEpochMillis("-0044-03-15T12:00:00Z"));
+		assertEquals(Instant.parse("1970-01-01T00:00:00Z"), XMLDateTimeUtils.parseInstant("1970-01-01T14:00:00+14:00"));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "", "2020", "20-05-04T19:13:51Z", "02020-05-04T19:13:51Z", "2020-5-04T19:13:51Z",
+			"2020-05-04T19:13Z", "2020-05-04T19:13:51.Z", "2020-05-04T25:00:00Z", "2020-05-04T24:00:01Z",
+			"2020-05-04T19:60:00Z", "2020-05-04T19:13:60Z", "2020-02-30T19:13:51Z", "2021-02-29T19:13:51Z",
+			"2020-04-31T19:13:51Z", "2020-05-04T19:13:51+15:00", "2020-05-04T19:13:51+14:01",
+			"2020-05-04T19:13:51X", "2020-05-04T19:13:51Z ab", "2020-05-04 19:13:51Z", "999999999-12-31T24:00:00Z",
+			"999999999-12-31T24:00:00" })
+	void testParseInvalid(String xmlDateTime) {
+		assertThrows(ParseException.class, () -> XMLDateTimeUtils.parseZonedDateTime(xmlDateTime));
+		assertThrows(ParseException.class, () -> XMLDateTimeUtils.parseInstant(xmlDateTime));
+		assertThrows(ParseException.class, () -> XMLDateTimeUtils.parseEpochMillis(xmlDateTime));
+	}
+
+	@Test
+	void testParseEndOfLastDay() throws ParseException {
+		assertEquals(LocalDateTime.of(999999999, 12, 31, 23, 59, 59),
+					 XMLDateTimeUtils.parseZonedDateTime("999999999-12-31T23:59:59Z").toLocalDateTime());
+		assertThrows(ParseException.class, () -> Utils.parseDateTimeFromXML("999999999-12-31T24:00:00Z"));
+		assertThrows(ParseException.class, () -> Utils.fromXMLDateTime("999999999-12-31T24:00:00Z"));
+	}
+
+	@Test
+	void testFormat() {
+		Instant ts = Instant.parse("2020-05-04T17:13:51.123456Z");
+		assertEquals("2020-05-04T17:13:51.123Z", XMLDateTimeUtils.format(ts));
+		assertEquals("2020-05-04T17:13:51.123Z", XMLDateTimeUtils.format(ts.toEpochMilli()));
+		assertEquals("2020-05-04T17:13:51.123Z", XMLDateTimeUtils.format(ts.atZone(ZoneOffset.ofHours(2))));
+		// Same second, different milliseconds
+		assertEquals("2020-05-04T17:13:51.007Z", XMLDateTimeUtils.format(ts.toEpochMilli() - 116));
+		assertEquals("2020-05-04T17:13:52.000Z", XMLDateTimeUtils.format(ts.toEpochMilli() + 877));
+		assertEquals("1969-12-31T23:59:59.999Z", XMLDateTimeUtils.format(-1L));
+		assertEquals("0900-01-01T00:00:00.000Z",
+					 XMLDateTimeUtils.format(OffsetDateTime.of(900, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant()));
+		assertEquals("-0044-03-15T12:00:00.000Z",
+					 XMLDateTimeUtils.format(OffsetDateTime.of(-44, 3, 15, 12, 0, 0, 0, ZoneOffset.UTC).toInstant()));
+		assertEquals("12020-01-01T00:00:00.000Z",
+				 	 XMLDateTimeUtils.format(OffsetDateTime.of(12020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant()));
+	}
+
+	@Test
+	void testFormatTo() {
+		Instant ts = Instant.parse("2020-05-04T17:13:51.123Z");
+
+		StringBuilder sb = new StringBuilder("<Timestamp>");
+		XMLDateTimeUtils.formatTo(ts, sb).append("</Timestamp>");
+		assertEquals("<Timestamp>2020-05-04T17:13:51.123Z</Timestamp>", sb.toString());
+
+		CharBuffer cb = CharBuffer.allocate(30);
+		XMLDateTimeUtils.formatTo(ts.toEpochMilli(), cb);
+		cb.flip();
+		assertEquals("2020-05-04T17:13:51.123Z", cb.toString());
+
+		ByteBuffer bb = ByteBuffer.allocate(30);
+		XMLDateTimeUtils.formatTo(ts.atZone(ZoneOffset.UTC), bb);
+		bb.flip();
+		assertEquals("2020-05-04T17:13:51.123Z", StandardCharsets.US_ASCII.decode(bb).toString());
+
+		ByteBuffer small = ByteBuffer.allocate(20);
+		assertThrows(BufferOverflowException.class, () -> XMLDateTimeUtils.formatTo(ts, small));
+		assertEquals(0, small.position());
+	}
+
+	@Test
+	void testFormatParseRoundTrip() throws ParseException {
+		long now = System.currentTimeMillis();
+		assertEquals(now, XMLDateTimeUtils.parseEpochMillis(XMLDateTimeUtils.format(now)));
+	}
+
+	@Test
+	void testParseNull() {
+		assertThrows(ParseException.class, () -> XMLDateTimeUtils.parseInstant(null));
+	}
+}
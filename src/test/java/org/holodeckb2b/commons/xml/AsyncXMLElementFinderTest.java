@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+
+import javax.xml.namespace.QName;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.w3c.dom.Element;
+
+class AsyncXMLElementFinderTest {
+
+	private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+							+ "<env:Envelope xmlns:env=\"urn:env\" xmlns:eb=\"urn:ebms\">"
+							+ "<env:Header><eb:Messaging env:mustUnderstand=\"true\"><eb:UserMessage>"
+							+ "<eb:MessageId>id@hölodeck</eb:MessageId><eb:Messaging/></eb:UserMessage></eb:Messaging>"
+							+ "</env:Header><env:Body><payload>data</payload></env:Body></env:Envelope>";
+
+	private static final QName MESSAGING = new QName("urn:ebms", "Messaging");
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 3, 7, 64, 4096 })
+	void testFeedChunks(int chunkSize) throws Exception {
+		byte[] xml = XML.getBytes(StandardCharsets.UTF_8);
+		AsyncXMLElementFinder finder = new AsyncXMLElementFinder(MESSAGING);
+		ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+		int i = 0;
+		boolean needMore = true;
+		while (needMore && i < xml.length) {
+			chunk.clear();
+			chunk.put(xml, i, Math.min(chunkSize, xml.length - i));
+			chunk.flip();
+			needMore = finder.feed(chunk);
+			i += chunk.position();
+		}
+		assertFalse(needMore);
+		assertTrue(finder.getResult().isDone());
+		// The result is available before the body has been supplied
+		assertTrue(i < XML.indexOf("<env:Body>"));
+		assertEquals(XML.indexOf("</eb:Messaging>") + "</eb:Messaging>".length(),
+					 new String(xml, 0, i, StandardCharsets.UTF_8).length());
+
+		Element found = finder.getResult().get();
+		Element expected = XMLElementFinder.parse(new ByteArrayInputStream(xml), MESSAGING);
+		assertEquals("urn:ebms", found.getNamespaceURI());
+		assertEquals("Messaging", found.getLocalName());
+		assertEquals("true", found.getAttributeNS("urn:env", "mustUnderstand"));
+		assertEquals(expected.getTextContent(), found.getTextContent());
+		assertEquals(found, found.getOwnerDocument().getDocumentElement());
+	}
+
+	@Test
+	void testEncoding() throws Exception {
+		String xml = "<?xml version='1.0' encoding='ISO-8859-1'?><r xmlns='urn:r'><v>été</v></r>";
+		AsyncXMLElementFinder finder = new AsyncXMLElementFinder(new QName("urn:r", "v"));
+		finder.feed(ByteBuffer.wrap(xml.getBytes(StandardCharsets.ISO_8859_1)));
+		Element found = finder.getResult().get();
+		assertEquals("urn:r", found.getNamespaceURI());
+		assertEquals("été", found.getTextContent());
+	}
+
+	@Test
+	void testReadChannel() throws Exception {
+		AsyncXMLElementFinder finder = new AsyncXMLElementFinder(new QName("payload"));
+		assertFalse(finder.read(Channels.newChannel(new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8)))));
+		assertEquals("data", finder.getResult().get().getTextContent());
+	}
+
+	@Test
+	void testNotFound() throws Exception {
+		AsyncXMLElementFinder finder = new AsyncXMLElementFinder(new QName("NotInDocument"));
+		assertTrue(finder.feed(ByteBuffer.wrap(XML.getBytes(StandardCharsets.UTF_8))));
+		assertFalse(finder.getResult().isDone());
+		finder.endOfInput();
+		assertNull(finder.getResult().get());
+	}
+
+	@Test
+	void testLimit() throws Exception {
+		AsyncXMLElementFinder finder = new AsyncXMLElementFinder(new QName("payload"), 3);
+		assertFalse(finder.feed(ByteBuffer.wrap(XML.getBytes(StandardCharsets.UTF_8))));
+		assertNull(finder.getResult().get());
+
+		finder = new AsyncXMLElementFinder(MESSAGING, 3);
+		assertFalse(finder.feed(ByteBuffer.wrap(XML.getBytes(StandardCharsets.UTF_8))));
+		assertNotNull(finder.getResult().get());
+	}
+
+	@Test
+	void testInvalid() throws IOException {
+		AsyncXMLElementFinder finder = new AsyncXMLElementFinder(new QName("b"));
+		assertFalse(finder.feed(ByteBuffer.wrap("<a><b></a>".getBytes(StandardCharsets.UTF_8))));
+		assertTrue(finder.getResult().isCompletedExceptionally());
+		ExecutionException failure = assertThrows(ExecutionException.class, () -> finder.getResult().get());
+		assertTrue(failure.getCause() instanceof IllegalStateException);
+
+		AsyncXMLElementFinder incomplete = new AsyncXMLElementFinder(new QName("c"));
+		assertTrue(incomplete.feed(ByteBuffer.wrap("<a><b>".getBytes(StandardCharsets.UTF_8))));
+		incomplete.endOfInput();
+		assertTrue(incomplete.getResult().isCompletedExceptionally());
+
+		AsyncXMLElementFinder doctype = new AsyncXMLElementFinder(new QName("a"));
+		doctype.feed(ByteBuffer.wrap("<!DOCTYPE a [<!ENTITY e 'x'>]><a>&e;</a>".getBytes(StandardCharsets.UTF_8)));
+		assertTrue(doctype.getResult().isCompletedExceptionally());
+	}
+}
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class XMLByteScannerTest {
+
+	private static final String XML = "<?xml version=\"1.0\"?>\n<!-- <NotAnElement/> -->"
+									+ "<r:Root xmlns:r=\"urn:root\" xmlns=\"urn:default\" a='x>y'>"
+									+ "<Child>text<![CDATA[<NoElement>]]></Child><?pi <no/> ?>"
+									+ "<r:Empty/><Other xmlns=\"\" xmlns:e=\"urn:a&amp;b\"><e:Item /></Other>"
+									+ "<ü:Ünicode xmlns:ü=\"urn:ü\"></ü:Ünicode ></r:Root>";
+
+	/**
+	 * Handler that records the reported events
+	 */
+	static class Recorder implements XMLByteScanner.IHandler {
+		final List<String> events = new ArrayList<>();
+		int stopAfter = Integer.MAX_VALUE;
+
+		@Override
+		public boolean startElement(long offset, String namespaceURI, String localName, String qName) {
+			events.add("start " + offset + " {" + namespaceURI + "}" + localName + " " + qName);
+			return events.size() < stopAfter;
+		}
+
+		@Override
+		public boolean endElement(long offset) {
+			events.add("end " + offset);
+			return events.size() < stopAfter;
+		}
+	}
+
+	private static final List<String> EXPECTED = Arrays.asList(
+			"start " + offset("<r:Root") + " {urn:root}Root r:Root",
+			"start " + offset("<Child") + " {urn:default}Child Child",
+			"end " + offset("<?pi"),
+			"start " + offset("<r:Empty") + " {urn:root}Empty r:Empty",
+			"end " + offset("<Other"),
+			"start " + offset("<Other") + " {}Other Other",
+			"start " + offset("<e:Item") + " {urn:a&b}Item e:Item",
+			"end " + offset("</Other>"),
+			"end " + offset("<ü:Ünicode"),
+			"start " + offset("<ü:Ünicode") + " {urn:ü}Ünicode ü:Ünicode",
+			"end " + offset("</r:Root>"),
+			"end " + XML.getBytes(StandardCharsets.UTF_8).length);
+
+	/**
+	 * Gets the offset in the UTF-8 encoded test document of the first occurrence of the given string
+	 */
+	private static int offset(String s) {
+		return XML.substring(0, XML.indexOf(s)).getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	@Test
+	void testScan() {
+		Recorder recorder = new Recorder();
+		XMLByteScanner scanner = new XMLByteScanner(recorder);
+		byte[] xml = XML.getBytes(StandardCharsets.UTF_8);
+		scanner.feed(ByteBuffer.wrap(xml));
+		scanner.endOfInput();
+		assertEquals(xml.length, scanner.getOffset());
+		assertEquals(sorted(EXPECTED), sorted(recorder.events));
+	}
+
+	@Test
+	void testScanByteByByte() {
+		Recorder recorder = new Recorder();
+		XMLByteScanner scanner = new XMLByteScanner(recorder);
+		for (byte b : XML.getBytes(StandardCharsets.UTF_8))
+			scanner.feed(ByteBuffer.wrap(new byte[] { b }));
+		scanner.endOfInput();
+		assertEquals(sorted(EXPECTED), sorted(recorder.events));
+	}
+
+	@Test
+	void testStop() {
+		Recorder recorder = new Recorder();
+		recorder.stopAfter = 2;
+		XMLByteScanner scanner = new XMLByteScanner(recorder);
+		ByteBuffer buffer = ByteBuffer.wrap(XML.getBytes(StandardCharsets.UTF_8));
+		assertFalse(scanner.feed(buffer));
+		assertEquals(2, recorder.events.size());
+		assertEquals(scanner.getOffset(), buffer.position());
+		assertEquals('>', buffer.get(buffer.position() - 1));
+		assertThrows(IllegalStateException.class, () -> scanner.feed(buffer));
+	}
+
+	@Test
+	void testNamespacesInScope() {
+		XMLByteScanner[] scanner = new XMLByteScanner[1];
+		List<Map<String, String>> inScope = new ArrayList<>();
+		scanner[0] = new XMLByteScanner(new Recorder() {
+			@Override
+			public boolean startElement(long offset, String namespaceURI, String localName, String qName) {
+				if (localName.equals("Item"))
+					inScope.add(scanner[0].getNamespacesInScope());
+				return true;
+			}
+		});
+		scanner[0].feed(ByteBuffer.wrap(XML.getBytes(StandardCharsets.UTF_8)));
+		assertEquals(1, inScope.size());
+		Map<String, String> expected = new HashMap<>();
+		expected.put("", "");
+		expected.put("r", "urn:root");
+		expected.put("e", "urn:a&b");
+		assertEquals(expected, inScope.get(0));
+	}
+
+	@Test
+	void testInvalid() {
+		assertInvalid("<a></b>");
+		assertInvalid("<a><b></a>");
+		assertInvalid("<a>");
+		assertInvalid("<a/><b/>");
+		assertInvalid("<p:a/>");
+		assertInvalid("<a b></a>");
+		assertInvalid("<a b=c></a>");
+		assertInvalid("<a b='<'></a>");
+		assertInvalid("<!DOCTYPE a [<!ENTITY e 'x'>]><a/>");
+		assertInvalid("<!X><a/>");
+		assertInvalid("< a/>");
+		assertInvalid("");
+		assertThrows(IllegalStateException.class, () -> new XMLByteScanner(new Recorder())
+										.feed(ByteBuffer.wrap("<a/>".getBytes(StandardCharsets.UTF_16))));
+	}
+
+	@Test
+	void testLimits() {
+		assertScanned("<a><b><c/></b></a>", 3, 0);
+		assertThrows(IllegalStateException.class, () -> assertScanned("<a><b><c><d/></c></b></a>", 3, 0));
+
+		assertScanned("<a xmlns='urn:a' xmlns:p='urn:p' x='1' p:y='2'/>", 0, 2);
+		assertThrows(IllegalStateException.class, () -> assertScanned("<a x='1' y='2' z='3'/>", 0, 2));
+	}
+
+	private static void assertScanned(String xml, int maxDepth, int maxAttributes) {
+		XMLByteScanner scanner = new XMLByteScanner(new Recorder(), maxDepth, maxAttributes);
+		scanner.feed(ByteBuffer.wrap(xml.getBytes(StandardCharsets.UTF_8)));
+		scanner.endOfInput();
+	}
+
+	private static void assertInvalid(String xml) {
+		assertThrows(IllegalStateException.class, () -> {
+			XMLByteScanner scanner = new XMLByteScanner(new Recorder());
+			scanner.feed(ByteBuffer.wrap(xml.getBytes(StandardCharsets.UTF_8)));
+			scanner.endOfInput();
+		}, xml);
+	}
+
+	private static List<String> sorted(List<String> events) {
+		List<String> s = new ArrayList<>(events);
+		s.sort(null);
+		return s;
+	}
+}
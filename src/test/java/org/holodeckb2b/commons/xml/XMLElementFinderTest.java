@@ -3,22 +3,43 @@ package org.holodeckb2b.commons.xml;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 
 import javax.xml.namespace.QName;
 
+import org.holodeckb2b.commons.Pair;
 import org.holodeckb2b.commons.testing.TestUtils;
+import org.holodeckb2b.commons.util.MultipartReader;
+import org.holodeckb2b.commons.util.Utils;
+import org.holodeckb2b.commons.xml.XMLElementFinder.Engine;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 class XMLElementFinderTest {
 
 	private static File TEST_FILE = TestUtils.getTestResource("test.xml").toFile();
+
+	private static final String NS_A = "http://holodeck-b2b.org/schemas/2020/12/xmlelementfindertest/a";
+	private static final String NS_B = "http://holodeck-b2b.org/schemas/2020/12/xmlelementfindertest/b";
 	
 	@Test
 	void testFindLocalName() {
@@ -79,7 +100,347 @@ class XMLElementFinderTest {
 		
 		assertNull(found);			
 	}
-	
-	
 
+	@Test
+	void testFindMultiple() {
+		final QName levelThree = new QName("ChildLevelThree");
+		final QName aLevelTwo = new QName(NS_A, "ChildLevelTwo");
+		final QName bLevelTwo = new QName(NS_B, "ChildLevelTwo");
+		final QName notThere = new QName("NotInDocument");
+		Map<QName, Element> found = null;
+
+		try (FileInputStream fis = new FileInputStream(TEST_FILE)) {
+			found = XMLElementFinder.parse(fis, Arrays.asList(levelThree, aLevelTwo, bLevelTwo, notThere));
+		} catch (IOException e) {
+			fail(e);
+		}
+
+		assertEquals(3, found.size());
+		assertNull(found.get(notThere));
+		assertEquals(NS_A, found.get(levelThree).getNamespaceURI());
+		assertEquals("Hello World!", found.get(levelThree).getTextContent());
+		// The nested element should also be contained in the enclosing one
+		assertEquals(NS_A, found.get(aLevelTwo).getNamespaceURI());
+		assertEquals(1, found.get(aLevelTwo).getElementsByTagName("a:ChildLevelThree").getLength());
+		assertEquals(NS_B, found.get(bLevelTwo).getNamespaceURI());
+		assertEquals("Hello World!", found.get(bLevelTwo).getTextContent());
+	}
+
+	@Test
+	void testStopWhenAllFound() {
+		// The document is broken after the requested elements, so parsing must stop before reaching that point
+		final String xml = "<root><a>1</a><b><c>2</c></b><broken></root>";
+		Map<QName, Element> found = XMLElementFinder.parse(toStream(xml),
+															Arrays.asList(new QName("a"), new QName("c")));
+		assertEquals(2, found.size());
+		assertEquals("1", found.get(new QName("a")).getTextContent());
+		assertEquals("2", found.get(new QName("c")).getTextContent());
+
+		assertThrows(IllegalStateException.class,
+					 () -> XMLElementFinder.parse(toStream(xml), Arrays.asList(new QName("a"), new QName("d"))));
+	}
+
+	@Test
+	void testNestedSameName() {
+		Element found = XMLElementFinder.parse(toStream("<root><x><x>inner</x>outer</x></root>"), new QName("x"));
+		assertNotNull(found);
+		assertEquals("innerouter", found.getTextContent());
+	}
+
+	@Test
+	void testMultipleLimitExceeded() {
+		Map<QName, Element> found = null;
+
+		try (FileInputStream fis = new FileInputStream(TEST_FILE)) {
+			found = XMLElementFinder.parse(fis, Arrays.asList(new QName("ChildLevelThree"),
+															  new QName(NS_B, "ChildLevelTwo")), 4);
+		} catch (IOException e) {
+			fail(e);
+		}
+
+		assertEquals(1, found.size());
+		assertNotNull(found.get(new QName("ChildLevelThree")));
+	}
+
+	@ParameterizedTest
+	@EnumSource(Engine.class)
+	void testEngines(Engine engine) {
+		final String xml = "<?xml version=\"1.0\"?><env:Envelope xmlns:env=\"urn:env\" xmlns:h=\"urn:header\">"
+						 + "<env:Header><h:Info h:id=\"i1\" plain=\"yes\"><!-- comment -->text<?pi data?>"
+						 + "<![CDATA[<cdata>]]>&amp;<h:Nested>n</h:Nested></h:Info></env:Header>"
+						 + "<env:Body><Payload xmlns=\"urn:body\">body</Payload></env:Body></env:Envelope>";
+		final QName info = new QName("urn:header", "Info");
+		final QName nested = new QName("Nested");
+		final QName payload = new QName("urn:body", "Payload");
+
+		Map<QName, Element> found = XMLElementFinder.parse(toStream(xml), Arrays.asList(info, nested, payload), -1,
+														   engine);
+		assertEquals(3, found.size());
+		Element infoElem = found.get(info);
+		assertEquals("h:Info", infoElem.getTagName());
+		assertEquals("i1", infoElem.getAttributeNS("urn:header", "id"));
+		assertEquals("yes", infoElem.getAttribute("plain"));
+		assertEquals("text<cdata>&n", infoElem.getTextContent());
+		assertEquals(Node.PROCESSING_INSTRUCTION_NODE, infoElem.getChildNodes().item(1).getNodeType());
+		assertEquals("urn:header", found.get(nested).getNamespaceURI());
+		assertEquals("body", found.get(payload).getTextContent());
+		assertEquals("urn:body", found.get(payload).getNamespaceURI());
+
+		// Both engines must give the same result
+		Map<QName, Element> sax = XMLElementFinder.parse(toStream(xml), Arrays.asList(info, nested, payload), -1,
+														 Engine.SAX);
+		for (QName q : found.keySet()) {
+			found.get(q).normalize();
+			sax.get(q).normalize();
+			assertTrue(sax.get(q).isEqualNode(found.get(q)), q.toString());
+		}
+	}
+
+	@ParameterizedTest
+	@EnumSource(Engine.class)
+	void testEngineLimit(Engine engine) {
+		try (FileInputStream fis = new FileInputStream(TEST_FILE)) {
+			assertNotNull(XMLElementFinder.parse(fis, new QName("ChildLevelThree"), 4, engine));
+		} catch (IOException e) {
+			fail(e);
+		}
+		try (FileInputStream fis = new FileInputStream(TEST_FILE)) {
+			assertNull(XMLElementFinder.parse(fis, new QName("ChildLevelThree"), 3, engine));
+		} catch (IOException e) {
+			fail(e);
+		}
+		Element found = XMLElementFinder.parse(toStream("<root><x><x>inner</x>outer</x><broken></root>"),
+											   new QName("x"), -1, engine);
+		assertEquals("innerouter", found.getTextContent());
+	}
+
+	@ParameterizedTest
+	@EnumSource(Engine.class)
+	void testTextCoalescing(Engine engine) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 20000; i++)
+			text.append("QUJDREVGR0hJSktMTU5PUFFSU1RVVldYWVo=&amp;");
+		Element found = XMLElementFinder.parse(toStream("<root><payload>" + text + "<?pi?>tail</payload></root>"),
+											   new QName("payload"), -1, engine);
+		assertEquals(3, found.getChildNodes().getLength());
+		assertEquals(Node.TEXT_NODE, found.getFirstChild().getNodeType());
+		assertEquals(text.toString().replace("&amp;", "&"), found.getFirstChild().getNodeValue());
+		assertEquals("tail", found.getLastChild().getNodeValue());
+	}
+
+	@ParameterizedTest
+	@EnumSource(Engine.class)
+	void testParseToString(Engine engine) throws Exception {
+		final String xml = "<env:Envelope xmlns:env=\"urn:env\" xmlns=\"urn:default\" xmlns:h=\"urn:header\">"
+						 + "<env:Header><h:Info h:id=\"a&amp;&quot;b\"><Child xmlns=\"\">x &lt; y<Empty/></Child>"
+						 + "<?pi data?><n:Nested xmlns:n=\"urn:nested\">n</n:Nested></h:Info></env:Header>"
+						 + "</env:Envelope>";
+		final QName info = new QName("urn:header", "Info");
+		String found = XMLElementFinder.parseToString(toStream(xml), Collections.singleton(info), -1, engine)
+									   .get(info);
+		assertNotNull(found);
+		assertTrue(found.startsWith("<h:Info "));
+		String startTag = found.substring(0, found.indexOf('>'));
+		assertTrue(startTag.contains(" xmlns=\"urn:default\""));
+		assertTrue(startTag.contains(" xmlns:env=\"urn:env\""));
+		assertTrue(startTag.contains(" xmlns:h=\"urn:header\""));
+		assertTrue(startTag.contains(" h:id=\"a&amp;&quot;b\""));
+		assertTrue(found.contains("<Child xmlns=\"\">x &lt; y<Empty/></Child>"));
+		assertTrue(found.contains("<?pi data?><n:Nested xmlns:n=\"urn:nested\">n</n:Nested></h:Info>"));
+
+		// The string must be parseable on its own and equal to the DOM extraction
+		Element reparsed = XMLElementFinder.parse(toStream(found), info);
+		Element dom = XMLElementFinder.parse(toStream(xml), info, -1, engine);
+		assertEquals("a&\"b", reparsed.getAttributeNS("urn:header", "id"));
+		assertNull(reparsed.getElementsByTagName("Child").item(0).getNamespaceURI());
+		assertEquals(dom.getTextContent(), reparsed.getTextContent());
+
+		assertNull(XMLElementFinder.parseToString(toStream(xml), new QName("NotInDocument")));
+	}
+
+	@Test
+	void testFindElementRange() throws IOException {
+		String content = new String(Files.readAllBytes(TEST_FILE.toPath()), StandardCharsets.UTF_8);
+		ByteBuffer range = XMLElementFinder.findElementRange(TEST_FILE.toPath(), new QName(NS_A, "ChildLevelTwo"));
+		assertNotNull(range);
+		String expected = content.substring(content.indexOf("<a:ChildLevelTwo>"),
+											content.indexOf("</a:ChildLevelTwo>") + "</a:ChildLevelTwo>".length());
+		assertEquals(expected, StandardCharsets.UTF_8.decode(range).toString());
+
+		range = XMLElementFinder.findElementRange(TEST_FILE.toPath(), new QName(NS_B, "ChildLevelTwo"));
+		assertEquals("<ChildLevelTwo>Hello World!</ChildLevelTwo>", StandardCharsets.UTF_8.decode(range).toString());
+
+		assertNull(XMLElementFinder.findElementRange(TEST_FILE.toPath(), new QName(NS_B, "ChildLevelThree")));
+	}
+
+	@Test
+	void testFindElementRangeInBuffer() {
+		byte[] xml = "garbage<root><x a=\"/>\"><x/></x><y/></root>".getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.wrap(xml);
+		buffer.position(7);
+
+		ByteBuffer range = XMLElementFinder.findElementRange(buffer, new QName("x"));
+		assertEquals(7, buffer.position());
+		assertEquals(13, range.position());
+		assertEquals("<x a=\"/>\"><x/></x>", StandardCharsets.UTF_8.decode(range).toString());
+
+		range = XMLElementFinder.findElementRange(buffer, new QName("y"));
+		assertEquals("<y/>", StandardCharsets.UTF_8.decode(range).toString());
+
+		assertNull(XMLElementFinder.findElementRange(buffer, new QName("z")));
+		// Incomplete document
+		buffer.limit(xml.length - 7);
+		assertThrows(IllegalStateException.class,
+					 () -> XMLElementFinder.findElementRange(buffer, new QName("z")));
+	}
+
+	@ParameterizedTest
+	@EnumSource(Engine.class)
+	void testFindByPath(Engine engine) {
+		// The document is broken after the requested element, so parsing must stop before reaching that point
+		final String xml = "<env:Envelope xmlns:env=\"urn:env\"><env:Header>"
+						 + "<A><B><Messaging>too deep</Messaging></B></A><Messaging>too high</Messaging>"
+						 + "<C><Messaging>found</Messaging></C></env:Header><env:Body><broken></env:Envelope>";
+		Element found = XMLElementFinder.parse(toStream(xml), XMLElementPath.compile("/{urn:env}Envelope/Header/*/Messaging"),
+											   null, engine);
+		assertNotNull(found);
+		assertEquals("found", found.getTextContent());
+
+		assertNull(XMLElementFinder.parse(toStream(xml), XMLElementPath.compile("/Envelope/Header/B"), null,
+										  engine));
+	}
+
+	@ParameterizedTest
+	@EnumSource(Engine.class)
+	void testPathExhausted(Engine engine) {
+		// Only the first Header is searched, so parsing stops at its end
+		final String xml = "<Envelope><Header><A><Messaging/></A></Header><Header><Messaging/></Header><broken>"
+						 + "</Envelope>";
+		assertNull(XMLElementFinder.parse(toStream(xml), XMLElementPath.compile("/Envelope/Header/Messaging"), null,
+										  engine));
+		assertNotNull(XMLElementFinder.parse(toStream(xml), XMLElementPath.compile("/Envelope/Header/*/Messaging"),
+											 null, engine));
+		assertThrows(IllegalStateException.class,
+					 () -> XMLElementFinder.parse(toStream(xml), XMLElementPath.compile("/Envelope/*/B"), null,
+							 					  engine));
+	}
+
+	@ParameterizedTest
+	@EnumSource(Engine.class)
+	void testStopAt(Engine engine) {
+		final String xml = "<Envelope><Header><Info>header</Info></Header><Body><Messaging>body</Messaging><broken>"
+						 + "</Envelope>";
+		assertNull(XMLElementFinder.parse(toStream(xml), new QName("Messaging"), new QName("Body")));
+		assertEquals("header", XMLElementFinder.parse(toStream(xml), new QName("Info"), new QName("Body"))
+											   .getTextContent());
+		assertNull(XMLElementFinder.parse(toStream(xml), XMLElementPath.compile("/Envelope/*/Messaging"),
+										  new QName("Body"), engine));
+		assertThrows(IllegalStateException.class,
+					 () -> XMLElementFinder.parse(toStream(xml), new QName("Other"), new QName("NotInDocument")));
+	}
+
+	@ParameterizedTest
+	@EnumSource(Engine.class)
+	void testStopAtInSkippedSubtree(Engine engine) {
+		final String xml = "<a><h><x><b/></x></h><m>m</m></a>";
+		assertNull(XMLElementFinder.parse(toStream(xml), XMLElementPath.compile("/a/m"), new QName("b"), engine));
+		assertEquals("m", XMLElementFinder.parse(toStream(xml), XMLElementPath.compile("/a/m"), new QName("c"), engine)
+										  .getTextContent());
+	}
+
+	@Test
+	void testParseMultipart() throws IOException {
+		final String msg = "--MIMEBoundary\r\nContent-Type: application/soap+xml\r\nContent-ID: <root>\r\n\r\n"
+						 + "<env:Envelope xmlns:env=\"urn:env\"><env:Header><h:Info xmlns:h=\"urn:h\">info</h:Info>"
+						 + "</env:Header><env:Body/></env:Envelope>\r\n--MIMEBoundary\r\nContent-ID: <att>\r\n\r\n"
+						 + "attachment\r\n--MIMEBoundary--\r\n";
+		Pair<Element, MultipartReader> result = XMLElementFinder.parseMultipart(toStream(msg),
+											"multipart/related; boundary=MIMEBoundary; start=\"<root>\"",
+											new QName("urn:h", "Info"));
+		assertEquals("info", result.value1().getTextContent());
+		MultipartReader.Part attachment = result.value2().nextPart();
+		assertEquals("<att>", attachment.getContentId());
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		Utils.copyStream(attachment.getContent(), content);
+		assertEquals("attachment", new String(content.toByteArray(), StandardCharsets.UTF_8));
+		assertNull(result.value2().nextPart());
+
+		assertThrows(IOException.class, () -> XMLElementFinder.parseMultipart(toStream(msg),
+											"multipart/related; boundary=MIMEBoundary; start=\"<other>\"",
+											new QName("urn:h", "Info")));
+	}
+
+	@ParameterizedTest
+	@EnumSource(Engine.class)
+	void testRejectDoctype(Engine engine) throws IOException {
+		File secret = File.createTempFile("secret", ".txt");
+		try {
+			Files.write(secret.toPath(), "secret".getBytes(StandardCharsets.UTF_8));
+			String xxe = "<?xml version=\"1.0\"?><!DOCTYPE root [<!ENTITY xxe SYSTEM \"" + secret.toURI() + "\">]>"
+						 + "<root><leak>&xxe;</leak></root>";
+			assertThrows(IllegalStateException.class,
+						 () -> XMLElementFinder.parse(toStream(xxe), new QName("leak"), -1, engine));
+		} finally {
+			secret.delete();
+		}
+
+		String expansion = "<!DOCTYPE root [<!ENTITY a \"aaaaaaaaaa\"><!ENTITY b \"&a;&a;&a;&a;&a;&a;&a;&a;&a;&a;\">]>"
+						   + "<root><x>&b;</x></root>";
+		assertThrows(IllegalStateException.class,
+					 () -> XMLElementFinder.parse(toStream(expansion), new QName("x"), -1, engine));
+		assertThrows(IllegalStateException.class,
+					 () -> XMLElementFinder.findElementRange(ByteBuffer.wrap(expansion.getBytes(StandardCharsets.UTF_8)),
+															 new QName("x")));
+	}
+
+	@ParameterizedTest
+	@EnumSource(Engine.class)
+	void testDepthLimit(Engine engine) {
+		final String allowed = nested(XMLElementFinder.DEFAULT_MAX_DEPTH);
+		assertNotNull(XMLElementFinder.parse(toStream(allowed), new QName("e"), -1, engine));
+		assertNull(XMLElementFinder.parse(toStream(allowed), new QName("absent"), -1, engine));
+		assertNotNull(XMLElementFinder.findElementRange(ByteBuffer.wrap(allowed.getBytes(StandardCharsets.UTF_8)),
+														new QName("e")));
+
+		final String tooDeep = nested(XMLElementFinder.DEFAULT_MAX_DEPTH + 1);
+		assertThrows(IllegalStateException.class,
+					 () -> XMLElementFinder.parse(toStream(tooDeep), new QName("absent"), -1, engine));
+		assertThrows(IllegalStateException.class,
+					 () -> XMLElementFinder.findElementRange(ByteBuffer.wrap(tooDeep.getBytes(StandardCharsets.UTF_8)),
+															 new QName("absent")));
+	}
+
+	@ParameterizedTest
+	@EnumSource(Engine.class)
+	void testAttributeLimit(Engine engine) {
+		final String allowed = withAttributes(XMLElementFinder.DEFAULT_MAX_ATTRIBUTES);
+		assertNotNull(XMLElementFinder.parse(toStream(allowed), new QName("e"), -1, engine));
+
+		final String tooMany = withAttributes(XMLElementFinder.DEFAULT_MAX_ATTRIBUTES + 1);
+		assertThrows(IllegalStateException.class,
+					 () -> XMLElementFinder.parse(toStream(tooMany), new QName("absent"), -1, engine));
+		assertThrows(IllegalStateException.class,
+					 () -> XMLElementFinder.findElementRange(ByteBuffer.wrap(tooMany.getBytes(StandardCharsets.UTF_8)),
+															 new QName("absent")));
+	}
+
+	private static String nested(int depth) {
+		StringBuilder xml = new StringBuilder();
+		for (int i = 0; i < depth; i++)
+			xml.append("<e>");
+		for (int i = 0; i < depth; i++)
+			xml.append("</e>");
+		return xml.toString();
+	}
+
+	private static String withAttributes(int count) {
+		StringBuilder xml = new StringBuilder("<root xmlns:p=\"urn:p\"><e");
+		for (int i = 0; i < count; i++)
+			xml.append(" p:a").append(i).append("=\"v\"");
+		return xml.append("/></root>").toString();
+	}
+
+	private static InputStream toStream(String xml) {
+		return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+	}
 }
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.xml.namespace.QName;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class XMLElementPathTest {
+
+	private static final String SOAP_NS = "http://www.w3.org/2003/05/soap-envelope";
+
+	@Test
+	void testCompile() {
+		XMLElementPath path = XMLElementPath.compile("/{" + SOAP_NS + "}Envelope/Header/*/{urn:ebms}Messaging");
+		assertEquals(4, path.length());
+		assertEquals(new QName(SOAP_NS, "Envelope"), path.getStep(0));
+		assertEquals(new QName("Header"), path.getStep(1));
+		assertEquals(new QName(XMLElementPath.WILDCARD), path.getStep(2));
+		assertEquals(new QName("urn:ebms", "Messaging"), path.getTarget());
+		assertTrue(path.isWildcard(2));
+		assertFalse(path.isWildcard(1));
+
+		assertEquals(path, XMLElementPath.compile(path.toString()));
+		assertEquals(path, XMLElementPath.of(new QName(SOAP_NS, "Envelope"), new QName("Header"), new QName("*"),
+											 new QName("urn:ebms", "Messaging")));
+	}
+
+	@Test
+	void testMatches() {
+		XMLElementPath path = XMLElementPath.compile("/{urn:a}root/child/{urn:b}*");
+		assertTrue(path.matches(0, "urn:a", "root"));
+		assertFalse(path.matches(0, "urn:b", "root"));
+		assertFalse(path.matches(0, "urn:a", "other"));
+		assertTrue(path.matches(1, "", "child"));
+		assertTrue(path.matches(1, "urn:c", "child"));
+		assertTrue(path.matches(2, "urn:b", "anything"));
+		assertFalse(path.matches(2, "urn:c", "anything"));
+		assertFalse(path.isWildcard(2));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "", "Envelope/Header", "/", "/Envelope/", "/Envelope//Header", "/{urn:a", "/{urn:a}" })
+	void testInvalid(String path) {
+		assertThrows(IllegalArgumentException.class, () -> XMLElementPath.compile(path));
+	}
+}
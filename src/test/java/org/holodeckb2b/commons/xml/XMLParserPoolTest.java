@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (C) 2026 The Holodeck Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.holodeckb2b.commons.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.SAXParser;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
+
+class XMLParserPoolTest {
+
+	@Test
+	void testReuse() throws Exception {
+		XMLParserPool pool = new XMLParserPool(2);
+
+		SAXParser parser = pool.acquireSAXParser();
+		assertTrue(parser.isNamespaceAware());
+		assertEquals(0, pool.getHits());
+		assertEquals(1, pool.getMisses());
+		pool.release(parser);
+		assertEquals(1, pool.getIdleSAXParsers());
+		assertSame(parser, pool.acquireSAXParser());
+		assertEquals(1, pool.getHits());
+
+		DocumentBuilder builder = pool.acquireDocumentBuilder();
+		assertTrue(builder.isNamespaceAware());
+		pool.release(builder);
+		assertSame(builder, pool.acquireDocumentBuilder());
+		assertEquals(2, pool.getHits());
+		assertEquals(2, pool.getMisses());
+	}
+
+	@Test
+	void testBounded() throws Exception {
+		XMLParserPool pool = new XMLParserPool(2);
+
+		SAXParser p1 = pool.acquireSAXParser();
+		SAXParser p2 = pool.acquireSAXParser();
+		SAXParser p3 = pool.acquireSAXParser();
+		assertNotSame(p1, p2);
+		assertEquals(3, pool.getMisses());
+		pool.release(p1);
+		pool.release(p2);
+		pool.release(p3);
+		assertEquals(2, pool.getIdleSAXParsers());
+
+		pool.release((SAXParser) null);
+		assertEquals(2, pool.getIdleSAXParsers());
+	}
+
+	@Test
+	void testInvalidSize() {
+		assertThrows(IllegalArgumentException.class, () -> new XMLParserPool(0));
+	}
+
+	@Test
+	void testConcurrentFinderUse() throws InterruptedException {
+		final byte[] xml = "<root><a>1</a><b>2</b></root>".getBytes(StandardCharsets.UTF_8);
+		final AtomicInteger failures = new AtomicInteger();
+		final long missesBefore = XMLElementFinder.getParserPool().getMisses();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		for (int i = 0; i < 400; i++)
+			executor.execute(() -> {
+				Element b = XMLElementFinder.parse(new ByteArrayInputStream(xml), new QName("b"));
+				if (b == null || !"2".equals(b.getTextContent()))
+					failures.incrementAndGet();
+			});
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+		assertEquals(0, failures.get());
+		// Each parse needs a parser and a builder, of which most should come from the pool
+		assertTrue(XMLElementFinder.getParserPool().getMisses() - missesBefore <= 2 * 4 * 2);
+	}
+}